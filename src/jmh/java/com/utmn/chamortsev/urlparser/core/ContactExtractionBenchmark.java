@@ -0,0 +1,92 @@
+package com.utmn.chamortsev.urlparser.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Извлечение контактов на страницах от 1 КБ до 5 МБ (в байтах UTF-8): ContactExtractor, путь
+// UrlProcessingService (extractContactInfo без трейсинга = ContactScanner.scan().toMap())
+// и прежнее извлечение - четыре Pattern.compile и четыре прохода на вызов
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContactExtractionBenchmark {
+
+    @Param({"1024", "16384", "262144", "1048576", "5242880"})
+    public int pageBytes;
+
+    @Param({"false", "true"})
+    public boolean cyrillic;
+
+    private final ContactExtractor extractor = new ContactExtractor();
+    private String page;
+
+    @Setup
+    public void setUp() {
+        page = HtmlCorpus.page(pageBytes, cyrillic);
+    }
+
+    @Benchmark
+    public ContactAnalysis extractContacts() {
+        return extractor.extractContacts(page);
+    }
+
+    @Benchmark
+    public Map<String, String> extractContactInfo() {
+        return ContactScanner.scan(page).toMap();
+    }
+
+    @Benchmark
+    public Map<String, String> legacyRegex() {
+        return legacyExtract(page);
+    }
+
+    // Копия прежнего UrlProcessingService.extractContactInfo
+    static Map<String, String> legacyExtract(String content) {
+        Map<String, String> contacts = new HashMap<>();
+
+        String emailRegex = "\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Z|a-z]{2,}\\b";
+        String phoneRegex = "(\\+?\\d{1,3}[-.\\s]?)?\\(?\\d{3}\\)?[-.\\s]?\\d{3}[-.\\s]?\\d{4}";
+        String addressRegex = "\\b(ул\\.|улица|проспект|пр\\.|бульвар|б-р|переулок|пер\\.)[^,.]{1,50},\\s*[^,.]{1,50}";
+        String hoursRegex = "(пн|вт|ср|чт|пт|сб|вс|понед|вторник|среда|четверг|пятница|суббота|воскресенье)[^.]*\\d{1,2}[:.]\\d{2}[^.]*\\d{1,2}[:.]\\d{2}";
+
+        Matcher emailMatcher = Pattern.compile(emailRegex).matcher(content);
+        Set<String> emails = new HashSet<>();
+        while (emailMatcher.find()) {
+            emails.add(emailMatcher.group());
+        }
+        if (!emails.isEmpty()) {
+            contacts.put("email", String.join(", ", emails));
+        }
+
+        Matcher phoneMatcher = Pattern.compile(phoneRegex).matcher(content);
+        Set<String> phones = new HashSet<>();
+        while (phoneMatcher.find()) {
+            phones.add(phoneMatcher.group());
+        }
+        if (!phones.isEmpty()) {
+            contacts.put("phone", String.join(", ", phones));
+        }
+
+        Matcher addressMatcher = Pattern.compile(addressRegex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE).matcher(content);
+        if (addressMatcher.find()) {
+            contacts.put("address", addressMatcher.group());
+        }
+
+        Matcher hoursMatcher = Pattern.compile(hoursRegex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE).matcher(content);
+        if (hoursMatcher.find()) {
+            contacts.put("workingHours", hoursMatcher.group());
+        }
+
+        return contacts;
+    }
+}
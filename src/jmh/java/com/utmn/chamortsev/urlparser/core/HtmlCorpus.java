@@ -0,0 +1,61 @@
+package com.utmn.chamortsev.urlparser.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+// Генератор HTML-страниц для бенчмарков: разметка, текст на латинице или кириллице,
+// контакты в начале, середине и конце страницы. Размер - в байтах UTF-8, как страница приходит по сети:
+// кириллица - два байта на символ, поэтому такая страница короче в символах
+public final class HtmlCorpus {
+
+    private static final String[] LATIN_WORDS = {
+            "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit",
+            "sed", "do", "eiusmod", "tempor", "incididunt", "labore", "magna", "aliqua"};
+    private static final String[] CYRILLIC_WORDS = {
+            "компания", "услуги", "доставка", "каталог", "товары", "скидки", "новости", "отзывы",
+            "сервис", "магазин", "оплата", "гарантия", "клиенты", "вопросы", "партнеры", "работа"};
+
+    private HtmlCorpus() {
+    }
+
+    public static String page(int sizeBytes, boolean cyrillic) {
+        Random random = new Random(sizeBytes * 31L + (cyrillic ? 1 : 0));
+        String[] words = cyrillic ? CYRILLIC_WORDS : LATIN_WORDS;
+        StringBuilder html = new StringBuilder(sizeBytes + 512);
+        html.append("<html><head><title>Benchmark page</title></head><body>\n");
+
+        int block = 0;
+        // Байты считаются по добавленным блокам, без кодирования всей страницы на каждом шаге
+        long bytes = utf8Length(html, 0);
+        while (bytes < sizeBytes) {
+            int blockStart = html.length();
+            html.append("<div class=\"item-").append(block).append("\"><p>");
+            for (int i = 0; i < 40; i++) {
+                html.append(words[random.nextInt(words.length)]).append(' ');
+                if (random.nextInt(25) == 0) {
+                    // Цифры в тексте - не телефоны, нагружают префильтр
+                    html.append(random.nextInt(100000)).append(' ');
+                }
+            }
+            html.append("</p></div>\n");
+            if (block % 50 == 0) {
+                appendContacts(html, block);
+            }
+            bytes += utf8Length(html, blockStart);
+            block++;
+        }
+        appendContacts(html, block);
+        return html.append("</body></html>").toString();
+    }
+
+    private static long utf8Length(CharSequence text, int from) {
+        return text.subSequence(from, text.length()).toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void appendContacts(StringBuilder html, int n) {
+        html.append("<p>Email: info").append(n).append("@example.com</p>")
+                .append("<p>Тел: +7 (999) 123-45-").append(String.format("%02d", n % 100)).append("</p>")
+                .append("<p>Адрес: ул. Ленина ").append(n % 200 + 1).append(", Тюмень</p>")
+                .append("<p>пн-пт 9:00 - 18:00.</p>\n");
+    }
+}
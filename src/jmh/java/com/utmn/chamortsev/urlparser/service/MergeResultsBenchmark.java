@@ -0,0 +1,81 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// ForkJoinStats.merge: одно слияние двух половин и полное дерево агрегации,
+// как в ForkJoin обходе (листья по BATCH_SIZE = 3 URL)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MergeResultsBenchmark {
+
+    private static final int BATCH_SIZE = 3;
+
+    @Param({"1000", "10000", "100000"})
+    public int urlCount;
+
+    private ForkJoinStats left;
+    private ForkJoinStats right;
+    private List<Map<String, Object>> results;
+
+    @Setup
+    public void setUp() {
+        results = new ArrayList<>(urlCount);
+        for (int i = 0; i < urlCount; i++) {
+            results.add(result(i));
+        }
+        left = batch(0, urlCount / 2);
+        right = batch(urlCount / 2, urlCount);
+    }
+
+    @Benchmark
+    public ForkJoinStats mergeTwoHalves() {
+        return new ForkJoinStats().merge(left).merge(right);
+    }
+
+    // Листья учитывают свои результаты и сливаются вверх по дереву
+    @Benchmark
+    public ForkJoinStats mergeTree() {
+        return mergeRange(0, urlCount);
+    }
+
+    private ForkJoinStats mergeRange(int from, int to) {
+        if (to - from <= BATCH_SIZE) {
+            return batch(from, to);
+        }
+        int middle = from + (to - from) / 2;
+        return mergeRange(from, middle).merge(mergeRange(middle, to));
+    }
+
+    // Статистика пакета в том же виде, что собирает UrlProcessingTask.processBatch
+    private ForkJoinStats batch(int start, int end) {
+        ForkJoinStats stats = new ForkJoinStats();
+        stats.batches = 1;
+        for (int i = start; i < end; i++) {
+            stats.record(results.get(i));
+        }
+        return stats;
+    }
+
+    // Результат URL в том же виде, что возвращает processSingleUrlForForkJoin
+    private static Map<String, Object> result(int i) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("urlId", (long) i);
+        result.put("url", "https://site" + i + ".example.com/");
+        result.put("statusCode", 200);
+        result.put("responseTime", 100L + i % 900);
+        result.put("success", true);
+        result.put("email", "info" + i + "@example.com");
+        result.put("phone", "+7 (999) 123-45-" + String.format("%02d", i % 100));
+        return result;
+    }
+}
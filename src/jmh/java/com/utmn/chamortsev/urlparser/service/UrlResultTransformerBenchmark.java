@@ -0,0 +1,62 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Сборка результата в processAllUrls: преобразования и объединение с дополнительной информацией
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UrlResultTransformerBenchmark {
+
+    private Map<String, Object> baseData;
+    private Map<String, Object> transformed;
+    private Map<String, Object> additionalInfo;
+
+    @Setup
+    public void setUp() {
+        baseData = new HashMap<>();
+        baseData.put("urlId", 42L);
+        baseData.put("url", "https://example.com/contacts");
+        baseData.put("name", "Example");
+        baseData.put("statusCode", 200);
+        baseData.put("responseTime", 2345L);
+        baseData.put("success", true);
+        baseData.put("processedAt", new Date());
+        baseData.put("email", "Info@Example.com, sales@example.com");
+        baseData.put("phone", "+7 (999)  123-45-67,  8 999 123 4567");
+        baseData.put("address", "ул. Ленина 5, Тюмень");
+        baseData.put("workingHours", "пн-пт 9:00 - 18:00");
+
+        additionalInfo = new HashMap<>();
+        additionalInfo.put("previousSuccessRate", 0.93);
+        additionalInfo.put("totalProcessings", 120);
+        additionalInfo.put("avgHistoricalResponseTime", 1830.5);
+        additionalInfo.put("reliabilityRating", 0.87);
+
+        transformed = UrlResultTransformer.applyDataTransformations(baseData);
+    }
+
+    @Benchmark
+    public Map<String, Object> applyDataTransformations() {
+        return UrlResultTransformer.applyDataTransformations(baseData);
+    }
+
+    @Benchmark
+    public Map<String, Object> combineResults() {
+        return UrlResultTransformer.combineResults(transformed, additionalInfo);
+    }
+
+    @Benchmark
+    public Map<String, Object> transformAndCombine() {
+        return UrlResultTransformer.combineResults(
+                UrlResultTransformer.applyDataTransformations(baseData), additionalInfo);
+    }
+}
@@ -1,30 +1,164 @@
 package com.utmn.chamortsev.urlparser.adapters;
 
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
 import com.utmn.chamortsev.urlparser.ports.ContentFetcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 @Component
 @Primary
 public class HttpContentFetcher implements ContentFetcher {
 
+    private static final Logger logger = LoggerFactory.getLogger(HttpContentFetcher.class);
+
+    private static final List<String> ENCODINGS = List.of("identity", "gzip", "deflate");
+
     private final RestTemplate restTemplate;
+    private final int maxBodyBytes;
+    private final boolean compression;
+    // Те же счетчики, что у PageFetcher: по кодировкам, без тега хоста
+    private final Map<String, Counter> wireBytes = new HashMap<>();
+    private final Map<String, Counter> decodedBytes = new HashMap<>();
+    private final Counter decodedCapped;
 
-    public HttpContentFetcher() {
+    public HttpContentFetcher(CrawlerProperties crawlerProperties, MeterRegistry meterRegistry) {
         this.restTemplate = new RestTemplate();
+        this.compression = crawlerProperties.getCompression().isEnabled();
+        for (String encoding : ENCODINGS) {
+            wireBytes.put(encoding, Counter.builder("url.transfer.wire.bytes")
+                    .description("Байт тела ответа по проводу (до распаковки)")
+                    .tag("encoding", encoding)
+                    .register(meterRegistry));
+            decodedBytes.put(encoding, Counter.builder("url.transfer.decoded.bytes")
+                    .description("Байт тела ответа после распаковки")
+                    .tag("encoding", encoding)
+                    .register(meterRegistry));
+        }
+        this.decodedCapped = Counter.builder("url.body.decoded.capped")
+                .description("Тело обрезано по лимиту объема после распаковки")
+                .register(meterRegistry);
+        // Лимит распакованного тела: не больше лимита чтения и лимита распаковки
+        long limit = Math.min(crawlerProperties.getStreaming().getMaxBodyBytes(),
+                crawlerProperties.getCompression().getMaxDecodedBytes());
+        this.maxBodyBytes = (int) Math.min(Integer.MAX_VALUE - 8, limit);
     }
 
     @Override
     public CompletableFuture<String> fetchContent(String url) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                return restTemplate.getForObject(url, String.class);
+                // Читаем не больше лимита, остаток тела не загружается
+                return restTemplate.execute(url, HttpMethod.GET, request -> {
+                    if (compression) {
+                        request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+                    }
+                }, response -> {
+                    MediaType contentType = response.getHeaders().getContentType();
+                    Charset charset = contentType != null && contentType.getCharset() != null
+                            ? contentType.getCharset() : StandardCharsets.UTF_8;
+                    String encoding = encodingOf(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+
+                    InputStream wire = new CountingInputStream(response.getBody(), wireBytes.get(encoding));
+                    try (InputStream body = decode(wire, encoding)) {
+                        byte[] bytes = body.readNBytes(maxBodyBytes);
+                        decodedBytes.get(encoding).increment(bytes.length);
+                        // Остался хотя бы байт - тело обрезано по лимиту
+                        if (bytes.length == maxBodyBytes && body.read() >= 0) {
+                            decodedCapped.increment();
+                            logger.warn("Тело {} обрезано по лимиту {} байт после распаковки", url, maxBodyBytes);
+                        }
+                        return new String(bytes, charset);
+                    }
+                });
             } catch (Exception e) {
                 return "<html><body>No content: " + e.getMessage() + "</body></html>";
             }
         });
     }
+
+    private static String encodingOf(String contentEncoding) {
+        String value = contentEncoding == null ? "" : contentEncoding.trim().toLowerCase(Locale.ROOT);
+        return switch (value) {
+            case "gzip", "x-gzip" -> "gzip";
+            case "deflate" -> "deflate";
+            default -> "identity";
+        };
+    }
+
+    private static InputStream decode(InputStream wire, String encoding) throws IOException {
+        return switch (encoding) {
+            case "gzip" -> new GZIPInputStream(wire);
+            case "deflate" -> {
+                // "deflate" в HTTP - поток zlib, но часть серверов присылает голый deflate
+                PushbackInputStream in = new PushbackInputStream(wire, 2);
+                byte[] head = in.readNBytes(2);
+                in.unread(head);
+                boolean zlib = head.length == 2 && (head[0] & 0x0f) == 8
+                        && (((head[0] & 0xff) << 8) | (head[1] & 0xff)) % 31 == 0;
+                // Свой Inflater поток не освобождает при close() - нативная память zlib держалась бы до GC
+                yield new InflaterInputStream(in, new Inflater(!zlib)) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            inf.end();
+                        }
+                    }
+                };
+            }
+            default -> wire;
+        };
+    }
+
+    // Байты "по проводу" до распаковки
+    private static final class CountingInputStream extends FilterInputStream {
+        private final Counter counter;
+
+        CountingInputStream(InputStream in, Counter counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                counter.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                counter.increment(n);
+            }
+            return n;
+        }
+    }
 }
@@ -0,0 +1,228 @@
+package com.utmn.chamortsev.urlparser.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "crawler")
+@Data
+public class CrawlerProperties {
+    private Execution execution = new Execution();
+    private Pipeline pipeline = new Pipeline();
+    private Politeness politeness = new Politeness();
+    private Streaming streaming = new Streaming();
+    private Persistence persistence = new Persistence();
+    private Metrics metrics = new Metrics();
+    private ForkJoin forkJoin = new ForkJoin();
+    private Compression compression = new Compression();
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private Retry retry = new Retry();
+    private Timeouts timeouts = new Timeouts();
+    private Recrawl recrawl = new Recrawl();
+    private Source source = new Source();
+    private Jobs jobs = new Jobs();
+    private Ingest ingest = new Ingest();
+    private Api api = new Api();
+    private Export export = new Export();
+    private Stats stats = new Stats();
+
+    public enum ExecutionMode {
+        // Фиксированный пул платформенных потоков
+        PLATFORM,
+        // Отдельный виртуальный поток на каждый URL
+        VIRTUAL
+    }
+
+    @Data
+    public static class Execution {
+        private ExecutionMode mode = ExecutionMode.PLATFORM;
+        // Глобальный лимит одновременно обрабатываемых URL в режиме VIRTUAL
+        private int maxConcurrency = 200;
+    }
+
+    @Data
+    public static class Pipeline {
+        // Максимум запросов "в полете" для non-blocking конвейера
+        private int maxInFlight = 1000;
+        // Потоки извлечения контактов (0 - по числу ядер)
+        private int extractionThreads = 0;
+        // Потоки записи результатов в БД
+        private int persistenceThreads = 2;
+    }
+
+    @Data
+    public static class Politeness {
+        private boolean enabled = true;
+        // Одновременных запросов к одному хосту
+        private int maxConcurrentPerHost = 4;
+        // Одновременных запросов ко всем хостам
+        private int maxConcurrentTotal = 1000;
+        // Минимальная пауза между запусками запросов к одному хосту
+        private long minDelayPerHostMs = 100;
+        // Хост без задач дольше этого удаляется из планировщика вместе с его метриками
+        private long hostIdleMs = 600000;
+    }
+
+    @Data
+    public static class Streaming {
+        // Потоковое извлечение контактов без буферизации всей страницы
+        private boolean enabled = true;
+        // Максимум читаемых байт тела ответа
+        private long maxBodyBytes = 2 * 1024 * 1024;
+    }
+
+    @Data
+    public static class Persistence {
+        // Результатов в одной пачке INSERT
+        private int batchSize = 100;
+        // Максимальное ожидание неполной пачки
+        private long flushIntervalMs = 200;
+        // Емкость очереди записи; при заполнении потоки обработки ждут
+        private int queueCapacity = 10000;
+    }
+
+    @Data
+    public static class Metrics {
+        // Период сверки счетчиков строк с БД
+        private long reconcileIntervalMs = 60000;
+    }
+
+    @Data
+    public static class ForkJoin {
+        // Параллелизм ForkJoinPool (0 - по числу ядер)
+        private int parallelism = 0;
+        // Блокирующая загрузка через ForkJoinPool.managedBlock: пул подменяет ждущие потоки
+        private boolean managedBlocking = true;
+        // Сколько потоков пул может добавить взамен заблокированных на сети
+        private int maxBlockedWorkers = 64;
+        // Желаемая длительность листовой задачи при последовательной обработке ее URL
+        private long targetLeafMs = 500;
+        // Границы порога разбиения (URL в листовой задаче)
+        private int minSplitThreshold = 1;
+        private int maxSplitThreshold = 32;
+    }
+
+    @Data
+    public static class Compression {
+        // Запрашивать сжатие (Accept-Encoding: gzip, deflate)
+        private boolean enabled = true;
+        // Максимум байт тела после распаковки - защита от zip-бомб
+        private long maxDecodedBytes = 8 * 1024 * 1024;
+    }
+
+    @Data
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        // Неудачных запросов к хосту подряд до размыкания (ошибка сети, таймаут, 5xx)
+        private int failureThreshold = 5;
+        // Пауза до пробного запроса; удваивается после каждой неудачной пробы
+        private long openMs = 30000;
+        private long maxOpenMs = 600000;
+        // Замкнутая цепь хоста без запросов дольше этого удаляется вместе с ее метриками
+        private long hostIdleMs = 600000;
+    }
+
+    @Data
+    public static class Retry {
+        // Попыток загрузки, включая первую
+        private int maxAttempts = 3;
+        // Пауза перед повтором: base * 2^n со случайной половиной, не больше max
+        private long baseDelayMs = 200;
+        private long maxDelayMs = 5000;
+        // Глобальный бюджет: каждый запрос пополняет его на долю повтора, каждый повтор тратит единицу
+        private double budgetRatio = 0.1;
+        // Начальный запас бюджета и его предел
+        private int budgetInitial = 10;
+        private int budgetMax = 100;
+    }
+
+    @Data
+    public static class Timeouts {
+        // Таймаут установки соединения (общий для клиента)
+        private long connectMs = 10000;
+        // Таймаут ответа по задержкам хоста: перцентиль * множитель в границах [min, max]
+        private boolean adaptive = true;
+        private double percentile = 0.99;
+        private double multiplier = 3.0;
+        private long minMs = 1000;
+        private long maxMs = 30000;
+        // Таймаут ответа, пока по хосту мало наблюдений (и при adaptive=false)
+        private long defaultMs = 10000;
+        private int minSamples = 20;
+        // Окно гистограммы: после стольких наблюдений старые забываются наполовину
+        private int window = 200;
+        // Задержки хоста без наблюдений дольше этого забываются вместе с метрикой таймаута
+        private long hostIdleMs = 1800000;
+    }
+
+    @Data
+    public static class Recrawl {
+        // Фоновый обход по расписанию; ручной запуск через /api/.../process работает независимо
+        private boolean enabled = false;
+        // Период проверки очереди
+        private long tickMs = 1000;
+        // Интервал для нового URL и его границы
+        private long initialIntervalSec = 3600;
+        private long minIntervalSec = 300;
+        private long maxIntervalSec = 7 * 24 * 3600;
+        // Контакты изменились - интервал умножается на speedup, не изменились или ошибка - на backoff
+        private double speedupFactor = 0.5;
+        private double backoffFactor = 1.5;
+        // Случайный разброс следующего обхода, доля интервала
+        private double jitter = 0.1;
+        // Одновременных обходов по расписанию
+        private int maxInFlight = 50;
+        // Период подхвата новых и отключенных URL из БД
+        private long resyncIntervalMs = 60000;
+    }
+
+    @Data
+    public static class Source {
+        // URL в одной странице выборки активных URL (keyset по id)
+        private int chunkSize = 500;
+        // Максимум URL, переданных в обработку и еще не завершенных, при подаче страницами
+        private int maxPending = 5000;
+    }
+
+    @Data
+    public static class Jobs {
+        // Завершенные элементы задания пишутся в БД пачкой такого размера или по интервалу
+        private int checkpointBatch = 100;
+        private long checkpointIntervalMs = 2000;
+        // Попыток записать последнюю контрольную точку при завершении задания (с паузой в интервал точки)
+        private int finishRetries = 3;
+        // Продолжать незавершенные задания после перезапуска
+        private boolean resumeOnStartup = true;
+    }
+
+    @Data
+    public static class Ingest {
+        // Массовый импорт URL: строк в одной пачке (один запрос IN и один пакетный INSERT)
+        private int chunkSize = 1000;
+        // Сколько ошибок разбора вернуть в ответе
+        private int maxErrorSamples = 20;
+    }
+
+    @Data
+    public static class Api {
+        // Размер страницы списков URL и результатов (keyset-пагинация) и его предел
+        private int defaultPageSize = 100;
+        private int maxPageSize = 1000;
+    }
+
+    @Data
+    public static class Export {
+        // Выгрузка результатов: строк между сбросами буфера в ответ
+        private int flushEvery = 1000;
+        // Запас метки since: результат пишется в БД пачкой чуть позже своего processedAt
+        private long sinceOverlapMs = 60_000;
+    }
+
+    @Data
+    public static class Stats {
+        // Статистика URL: вес нового ответа в EWMA времени ответа и число последних обходов в окне
+        private double ewmaAlpha = 0.2;
+        private int window = 20;
+    }
+}
@@ -31,6 +31,7 @@ public class DataInitializer implements CommandLineRunner {
         logger.info("=== Асинхронные операции ===");
         logger.info("GET /api/async/process       - Асинхронная обработка всех URL");
         logger.info("GET /api/async/process/forkjoin - ForkJoin обработка URL");
+        logger.info("POST /api/async/process/pipeline - Non-blocking конвейер (sendAsync)");
         logger.info("GET /api/async/status       - Статус обработки");
         logger.info("GET /api/async/results/enhanced - Статистика асинхронной обработки");
         logger.info("");
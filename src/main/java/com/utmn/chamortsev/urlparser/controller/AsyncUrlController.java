@@ -170,22 +170,8 @@ public class AsyncUrlController {
                     response.put("message", "ForkJoin обработка завершена");
                     response.put("timestamp", new Date());
 
-                    // ✅ WebSocket уведомления для каждого URL
-                    if (result.containsKey("results")) {
-                        List<Map<String, Object>> results = (List<Map<String, Object>>) result.get("results");
-                        for (Map<String, Object> singleResult : results) {
-                            Long urlId = (Long) singleResult.get("urlId");
-                            if (urlId != null) {
-                                messagingTemplate.convertAndSend("/topic/url/" + urlId, singleResult);
-                            }
-                        }
-                    } else {
-                        // Если результат содержит urlId напрямую (одиночный URL)
-                        Long urlId = (Long) result.get("urlId");
-                        if (urlId != null) {
-                            messagingTemplate.convertAndSend("/topic/url/" + urlId, result);
-                        }
-                    }
+                    // WebSocket уведомления по каждому URL отправляет сервис по мере обработки,
+                    // "results" - лишь ограниченная выборка
 
                     // Добавляем детальную статистику
                     Map<String, Object> aggregatedStats = (Map<String, Object>) result.get("aggregatedStats");
@@ -205,6 +191,33 @@ public class AsyncUrlController {
                 });
     }
 
+    @Operation(
+            summary = "Non-blocking конвейер обработки URL",
+            description = "sendAsync -> извлечение -> запись в БД на отдельных пулах, без блокировки потоков на сети"
+    )
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Конвейер отработал, возвращается сводка"
+            )
+    })
+    @PostMapping("/process/pipeline")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> processUrlsPipeline() {
+        logger.info("Запуск non-blocking конвейера обработки URL");
+
+        return urlProcessingService.processAllUrlsPipeline()
+                .thenApply(summary -> {
+                    Map<String, Object> response = new HashMap<>(summary);
+                    response.put("timestamp", new Date());
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(ex -> {
+                    logger.error("Ошибка конвейера обработки", ex);
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(Map.of("error", "Ошибка конвейера обработки: " + ex.getMessage()));
+                });
+    }
+
     @Operation(
             summary = "Сравнение методов обработки",
             description = "Сравнивает производительность разных методов обработки"
@@ -0,0 +1,107 @@
+package com.utmn.chamortsev.urlparser.controller;
+
+import com.utmn.chamortsev.urlparser.entity.CrawlJobEntity;
+import com.utmn.chamortsev.urlparser.service.CrawlJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/jobs")
+@CrossOrigin(origins = "*")
+@Tag(name = "Crawl Jobs API", description = "Задания обхода активных URL: прогресс, отмена и продолжение")
+public class CrawlJobController {
+
+    private final CrawlJobService crawlJobService;
+
+    public CrawlJobController(CrawlJobService crawlJobService) {
+        this.crawlJobService = crawlJobService;
+    }
+
+    @Operation(summary = "Последние задания", description = "Задания обхода от новых к старым с прогрессом")
+    @GetMapping
+    public Map<String, Object> getJobs(
+            @Parameter(description = "Сколько заданий вернуть", example = "20")
+            @RequestParam(defaultValue = "20") int limit) {
+        List<Map<String, Object>> jobs = crawlJobService.getRecentJobs(Math.max(1, Math.min(limit, 1000)));
+        return Map.of(
+                "jobs", jobs,
+                "runningCount", crawlJobService.getRunningCount(),
+                "timestamp", new Date()
+        );
+    }
+
+    @Operation(
+            summary = "Прогресс задания",
+            description = "Состояние, число элементов по состояниям, скорость и оценка оставшегося времени"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Состояние получено"),
+            @ApiResponse(responseCode = "404", description = "Задание не найдено")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getJob(@Parameter(description = "ID задания", example = "1") @PathVariable Long id) {
+        return crawlJobService.getStatus(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Новое задание", description = "Создает задание по всем активным URL и запускает его")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Задание создано и запущено")
+    })
+    @PostMapping
+    public ResponseEntity<?> startJob() {
+        CrawlJobEntity job = crawlJobService.startJob();
+        return ResponseEntity.accepted().body(crawlJobService.getStatus(job.getId()).orElseThrow());
+    }
+
+    @Operation(summary = "Отменить задание", description = "Новые URL не подаются, уже начатые дорабатывают")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Отмена принята"),
+            @ApiResponse(responseCode = "404", description = "Задание не найдено"),
+            @ApiResponse(responseCode = "409", description = "Задание не выполняется")
+    })
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<?> cancelJob(@PathVariable Long id) {
+        Optional<Map<String, Object>> status = crawlJobService.getStatus(id);
+        if (status.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!crawlJobService.cancel(id)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Задание не выполняется"));
+        }
+        return ResponseEntity.ok(crawlJobService.getStatus(id).orElseThrow());
+    }
+
+    @Operation(
+            summary = "Продолжить задание",
+            description = "Продолжает отмененное или прерванное задание с невыполненных URL"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Задание продолжено"),
+            @ApiResponse(responseCode = "404", description = "Задание не найдено"),
+            @ApiResponse(responseCode = "409", description = "Задание выполняется или уже завершено")
+    })
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resumeJob(@PathVariable Long id) {
+        try {
+            if (crawlJobService.resume(id).isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.accepted().body(crawlJobService.getStatus(id).orElseThrow());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.utmn.chamortsev.urlparser.controller;
+
+import com.utmn.chamortsev.urlparser.service.HostCircuitBreaker;
+import com.utmn.chamortsev.urlparser.service.HostLatencyTracker;
+import com.utmn.chamortsev.urlparser.service.RetryPolicy;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/hosts")
+@CrossOrigin(origins = "*")
+@Tag(name = "Hosts API", description = "Состояние хостов: размыкатель цепи, таймауты и бюджет повторов")
+public class HostController {
+
+    private final HostCircuitBreaker circuitBreaker;
+    private final RetryPolicy retryPolicy;
+    private final HostLatencyTracker latencyTracker;
+
+    public HostController(HostCircuitBreaker circuitBreaker, RetryPolicy retryPolicy,
+                          HostLatencyTracker latencyTracker) {
+        this.circuitBreaker = circuitBreaker;
+        this.retryPolicy = retryPolicy;
+        this.latencyTracker = latencyTracker;
+    }
+
+    @Operation(
+            summary = "Состояние всех хостов",
+            description = "Состояние цепи и действующий таймаут каждого хоста (сначала разомкнутые), общий бюджет повторов"
+    )
+    @GetMapping
+    public Map<String, Object> getHosts() {
+        List<Map<String, Object>> hosts = circuitBreaker.snapshot();
+        hosts.forEach(this::addLatency);
+        long open = hosts.stream().filter(h -> h.get("state") != HostCircuitBreaker.State.CLOSED).count();
+        return Map.of(
+                "hosts", hosts,
+                "hostCount", hosts.size(),
+                "notClosedCount", open,
+                "retryBudget", retryPolicy.toMap(),
+                "timestamp", new Date()
+        );
+    }
+
+    @Operation(summary = "Состояние хоста", description = "Состояние цепи, задержки и таймаут одного хоста")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Состояние получено"),
+            @ApiResponse(responseCode = "404", description = "К хосту еще не было запросов")
+    })
+    @GetMapping("/{host}")
+    public ResponseEntity<?> getHost(
+            @Parameter(description = "Хост с портом, если он указан в URL", example = "httpbin.org")
+            @PathVariable String host) {
+        Map<String, Object> snapshot = circuitBreaker.snapshot(host.toLowerCase(Locale.ROOT));
+        if (snapshot == null) {
+            return ResponseEntity.notFound().build();
+        }
+        addLatency(snapshot);
+        return ResponseEntity.ok(snapshot);
+    }
+
+    @Operation(summary = "Замкнуть цепь хоста", description = "Сбрасывает счетчик ошибок, запросы к хосту снова отправляются")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Цепь замкнута"),
+            @ApiResponse(responseCode = "404", description = "К хосту еще не было запросов")
+    })
+    @PostMapping("/{host}/reset")
+    public ResponseEntity<?> resetHost(@PathVariable String host) {
+        String key = host.toLowerCase(Locale.ROOT);
+        if (!circuitBreaker.reset(key)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(circuitBreaker.snapshot(key));
+    }
+
+    private void addLatency(Map<String, Object> hostSnapshot) {
+        hostSnapshot.putAll(latencyTracker.snapshot((String) hostSnapshot.get("host")));
+    }
+}
@@ -1,11 +1,18 @@
 package com.utmn.chamortsev.urlparser.controller;
 
+import com.utmn.chamortsev.urlparser.dto.UrlResultFilter;
 import com.utmn.chamortsev.urlparser.dto.UrlUpdateRequest;
+import com.utmn.chamortsev.urlparser.entity.CrawlJobEntity;
 import com.utmn.chamortsev.urlparser.entity.UrlEntity;
-import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlLatestResultEntity;
 import com.utmn.chamortsev.urlparser.repository.UrlRepository;
-import com.utmn.chamortsev.urlparser.repository.UrlResultRepository;
+import com.utmn.chamortsev.urlparser.repository.UrlLatestResultRepository;
+import com.utmn.chamortsev.urlparser.service.CrawlJobService;
+import com.utmn.chamortsev.urlparser.service.LineFormat;
+import com.utmn.chamortsev.urlparser.service.ResultExportService;
+import com.utmn.chamortsev.urlparser.service.UrlImportService;
 import com.utmn.chamortsev.urlparser.service.UrlProcessingService;
+import com.utmn.chamortsev.urlparser.service.UrlQueryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,17 +20,25 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/urls")
@@ -32,16 +47,28 @@ import java.util.concurrent.ThreadPoolExecutor;
 public class UrlController {
 
     private final UrlRepository urlRepository;
-    private final UrlResultRepository urlResultRepository;
+    private final UrlLatestResultRepository urlLatestResultRepository;
     private final UrlProcessingService urlProcessingService;
+    private final CrawlJobService crawlJobService;
+    private final UrlImportService urlImportService;
+    private final UrlQueryService urlQueryService;
+    private final ResultExportService resultExportService;
 
     public UrlController(
             UrlRepository urlRepository,
-            UrlResultRepository urlResultRepository,
-            UrlProcessingService urlProcessingService) {
+            UrlLatestResultRepository urlLatestResultRepository,
+            UrlProcessingService urlProcessingService,
+            CrawlJobService crawlJobService,
+            UrlImportService urlImportService,
+            UrlQueryService urlQueryService,
+            ResultExportService resultExportService) {
         this.urlRepository = urlRepository;
-        this.urlResultRepository = urlResultRepository;
+        this.urlLatestResultRepository = urlLatestResultRepository;
         this.urlProcessingService = urlProcessingService;
+        this.crawlJobService = crawlJobService;
+        this.urlImportService = urlImportService;
+        this.urlQueryService = urlQueryService;
+        this.resultExportService = resultExportService;
     }
 
     @Operation(
@@ -157,9 +184,34 @@ public class UrlController {
         }
     }
 
+    @Operation(
+            summary = "Массовый импорт URL",
+            description = "Тело NDJSON (строка - объект с url, name, description или строка с URL) или CSV "
+                    + "(заголовок с колонкой url либо колонки url,name,description). Тело читается потоком, "
+                    + "поддерживается Content-Encoding: gzip"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Импорт выполнен, в ответе число добавленных, повторов и ошибок"),
+            @ApiResponse(responseCode = "400", description = "Неизвестный формат или ошибка чтения тела")
+    })
+    @PostMapping("/import")
+    public ResponseEntity<?> importUrls(
+            @Parameter(description = "Формат тела: ndjson или csv; по умолчанию по Content-Type", example = "csv")
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body) {
+        try {
+            InputStream input = "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(body) : body;
+            return ResponseEntity.ok(urlImportService.importUrls(input, LineFormat.detect(format, contentType)));
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @Operation(
             summary = "Обработать все ссылки URLs",
-            description = "Метод запускающий процедуру парсинга данных по активным ссылкам"
+            description = "Создает задание обхода по активным ссылкам; прогресс - GET /api/jobs/{jobId}"
     )
     @ApiResponses({
             @ApiResponse(
@@ -170,11 +222,14 @@ public class UrlController {
     @PostMapping("/process")
     public ResponseEntity<?> processUrls() {
         try {
-            CompletableFuture<Map<String, Object>> future = urlProcessingService.processAllUrls();
+            CrawlJobEntity job = crawlJobService.startJob();
 
             return ResponseEntity.accepted().body(Map.of(
                     "message", "Сбор данных стартовал",
                     "status", "PROCESSING",
+                    "jobId", job.getId(),
+                    "totalItems", job.getTotalItems(),
+                    "statusUrl", "/api/jobs/" + job.getId(),
                     "timestamp", new Date()
             ));
         } catch (Exception e) {
@@ -183,29 +238,35 @@ public class UrlController {
     }
 
     @Operation(
-            summary = "Получить все URL записи из базы",
-            description = "Выводит все что есть в базе"
+            summary = "Получить URL записи из базы",
+            description = "Страница URL от новых к старым; следующая страница - по курсору next из ответа"
     )
     @ApiResponses({
-            @ApiResponse(
-                    responseCode = "200",
-                    description = "Список получен",
-                    content = @Content(schema = @Schema(implementation = UrlEntity[].class))
-            )
+            @ApiResponse(responseCode = "200", description = "Страница получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или размер страницы")
     })
     @GetMapping
-    public List<UrlEntity> getAllUrls() {
-        //return urlRepository.findAllByOrderByCreatedAtDesc();
-        return urlProcessingService.getAllUrls(); //Кэш
+    public ResponseEntity<?> getAllUrls(
+            @Parameter(description = "Курсор из поля next предыдущей страницы") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы", example = "100") @RequestParam(required = false) Integer size,
+            @Parameter(description = "Только активные (true) или неактивные (false)") @RequestParam(required = false) Boolean active,
+            @Parameter(description = "Хост сайта", example = "example.com") @RequestParam(required = false) String host) {
+        try {
+            return ResponseEntity.ok(urlQueryService.findUrls(cursor, size, active, host));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @Operation(
             summary = "Получить действующие записи",
-            description = "Возвращает только активные записи"
+            description = "Страница активных URL; следующая страница - по курсору next из ответа"
     )
     @GetMapping("/active")
-    public List<UrlEntity> getActiveUrls() {
-        return urlRepository.findByActiveTrueOrderByCreatedAtDesc();
+    public ResponseEntity<?> getActiveUrls(
+            @Parameter(description = "Курсор из поля next предыдущей страницы") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы", example = "100") @RequestParam(required = false) Integer size) {
+        return getAllUrls(cursor, size, true, null);
     }
 
     @GetMapping("/{id}")
@@ -219,23 +280,115 @@ public class UrlController {
 
     @Operation(
             summary = "Получить обработанные контакты из базы",
-            description = "Возвращает все записи из базы"
+            description = "Страница результатов от новых к старым с фильтрами; следующая страница - по курсору next"
     )
     @ApiResponses({
-            @ApiResponse(
-                    responseCode = "200",
-                    description = "Успех",
-                    content = @Content(schema = @Schema(implementation = UrlResultEntity[].class))
-            )
+            @ApiResponse(responseCode = "200", description = "Страница получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или размер страницы")
     })
     @GetMapping("/results")
-    public List<UrlResultEntity> getAllResults() {
-        return urlResultRepository.findActiveUrlResults();
+    public ResponseEntity<?> getAllResults(
+            @Parameter(description = "Курсор из поля next предыдущей страницы") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы", example = "100") @RequestParam(required = false) Integer size,
+            @Parameter(description = "HTTP статус код", example = "200") @RequestParam(required = false) Integer statusCode,
+            @Parameter(description = "Обработано не раньше (ISO)", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Обработано раньше (ISO)", example = "2025-02-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Хост сайта", example = "example.com") @RequestParam(required = false) String host,
+            @Parameter(description = "Найден email (true) или нет (false)") @RequestParam(required = false) Boolean hasEmail,
+            @Parameter(description = "Найден телефон (true) или нет (false)") @RequestParam(required = false) Boolean hasPhone,
+            @Parameter(description = "Только по активным (true) или неактивным (false) URL") @RequestParam(required = false) Boolean active) {
+        try {
+            return ResponseEntity.ok(urlQueryService.findResults(cursor, size,
+                    new UrlResultFilter(null, active, host, statusCode, from, to, hasEmail, hasPhone)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(
+            summary = "Последние результаты активных URL",
+            description = "По одному, последнему, результату на активный URL из url_latest_results, "
+                    + "без чтения истории; следующая страница - по курсору next"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Страница получена"),
+            @ApiResponse(responseCode = "400", description = "Некорректный курсор или размер страницы")
+    })
+    @GetMapping("/results/latest")
+    public ResponseEntity<?> getLatestResults(
+            @Parameter(description = "Курсор из поля next предыдущей страницы") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы", example = "100") @RequestParam(required = false) Integer size,
+            @Parameter(description = "Хост сайта", example = "example.com") @RequestParam(required = false) String host,
+            @Parameter(description = "HTTP статус код", example = "200") @RequestParam(required = false) Integer statusCode) {
+        try {
+            return ResponseEntity.ok(urlQueryService.findLatestResults(cursor, size, host, statusCode));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @Operation(
+            summary = "Выгрузить результаты потоком",
+            description = "Все результаты по фильтрам в NDJSON или CSV от старых к новым, без ограничения объема. "
+                    + "since - только изменения: последний результат каждого URL, полученный позже since; "
+                    + "значение для следующей выгрузки - в заголовке X-Export-Since"
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Выгрузка передается потоком"),
+            @ApiResponse(responseCode = "400", description = "Неизвестный формат")
+    })
+    @GetMapping("/results/export")
+    public ResponseEntity<?> exportResults(
+            @Parameter(description = "Формат: ndjson или csv; по умолчанию по Accept", example = "csv")
+            @RequestParam(required = false) String format,
+            @Parameter(description = "Сжать gzip; по умолчанию по Accept-Encoding")
+            @RequestParam(required = false) Boolean gzip,
+            @Parameter(description = "Только изменения после метки (ISO)", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @Parameter(description = "HTTP статус код", example = "200") @RequestParam(required = false) Integer statusCode,
+            @Parameter(description = "Обработано не раньше (ISO)", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Обработано раньше (ISO)", example = "2025-02-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Хост сайта", example = "example.com") @RequestParam(required = false) String host,
+            @Parameter(description = "Найден email (true) или нет (false)") @RequestParam(required = false) Boolean hasEmail,
+            @Parameter(description = "Найден телефон (true) или нет (false)") @RequestParam(required = false) Boolean hasPhone,
+            @Parameter(description = "Только по активным (true) или неактивным (false) URL") @RequestParam(required = false) Boolean active,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        LineFormat lineFormat;
+        try {
+            lineFormat = LineFormat.detect(format, accept);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        boolean compress = gzip != null ? gzip : acceptEncoding != null && acceptEncoding.contains("gzip");
+        LocalDateTime nextSince = resultExportService.nextSince();
+
+        response.setContentType(lineFormat.contentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"results." + lineFormat.extension() + "\"");
+        response.setHeader("X-Export-Since", nextSince.toString());
+        if (compress) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        // Пишем прямо в поток ответа в потоке запроса: без async-таймаута StreamingResponseBody
+        try (OutputStream out = compress ? new GZIPOutputStream(response.getOutputStream(), 64 * 1024, true)
+                : response.getOutputStream()) {
+            resultExportService.export(new UrlResultFilter(null, active, host, statusCode, from, to, hasEmail, hasPhone),
+                    since, lineFormat, out);
+        }
+        // Ответ уже записан
+        return null;
     }
 
     @Operation(
             summary = "Получить финальный результат собранных данных",
-            description = "Возвращает данные которые удалось собрать с сайтов"
+            description = "Страница результатов одного URL от новых к старым; следующая страница - по курсору next"
     )
     @ApiResponses({
             @ApiResponse(
@@ -250,13 +403,18 @@ public class UrlController {
     @GetMapping("/{urlId}/results")
     public ResponseEntity<?> getUrlResults(
             @Parameter(description = "ID записи URL (ссылки)", example = "1")
-            @PathVariable Long urlId) {
-        try {
-            List<UrlResultEntity> results = urlResultRepository.findByUrlEntityIdOrderByProcessedAtDesc(urlId);
-            return ResponseEntity.ok(results);
-        } catch (Exception e) {
+            @PathVariable Long urlId,
+            @Parameter(description = "Курсор из поля next предыдущей страницы") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Размер страницы", example = "100") @RequestParam(required = false) Integer size) {
+        if (!urlRepository.existsById(urlId)) {
             return ResponseEntity.notFound().build();
         }
+        try {
+            return ResponseEntity.ok(urlQueryService.findResults(cursor, size,
+                    new UrlResultFilter(urlId, null, null, null, null, null, null, null)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @Operation(
@@ -331,11 +489,12 @@ public class UrlController {
     public ResponseEntity<Map<String, ? extends Serializable>> getUrlStatus(
             @Parameter(description = "ID URL", example = "1")
             @PathVariable Long urlId) {
-        Optional<UrlResultEntity> latest = urlResultRepository
-                .findTopByUrlEntityIdOrderByProcessedAtDesc(urlId);
+        // Одна строка url_latest_results по ключу, без выборки истории
+        Optional<UrlLatestResultEntity> latest = urlLatestResultRepository.findById(urlId);
         Map<String, ? extends Serializable> status = latest.map(result -> Map.of(
                 "status", result.getStatusCode() != null ? "COMPLETED" : "PENDING",
                 "urlId", urlId,
+                "statusCode", result.getStatusCode() != null ? result.getStatusCode() : -1,
                 "lastProcessed", result.getProcessedAt()
         )).orElse(Map.of("status", "PENDING", "urlId", urlId));
         return ResponseEntity.ok(status);
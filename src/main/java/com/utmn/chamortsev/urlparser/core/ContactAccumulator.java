@@ -0,0 +1,74 @@
+package com.utmn.chamortsev.urlparser.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Накопитель найденных контактов: email/телефоны собираются все, адрес и часы работы - первые найденные
+public class ContactAccumulator {
+
+    private final Set<String> emails = new LinkedHashSet<>();
+    private final Set<String> phones = new LinkedHashSet<>();
+    private String address;
+    private String workingHours;
+
+    public void addEmail(String email) {
+        emails.add(email);
+    }
+
+    public void addPhone(String phone) {
+        phones.add(phone);
+    }
+
+    public Set<String> getEmails() {
+        return Collections.unmodifiableSet(emails);
+    }
+
+    public Set<String> getPhones() {
+        return Collections.unmodifiableSet(phones);
+    }
+
+    public boolean hasAddress() {
+        return address != null;
+    }
+
+    public void setAddress(String address) {
+        if (this.address == null) {
+            this.address = address;
+        }
+    }
+
+    public boolean hasWorkingHours() {
+        return workingHours != null;
+    }
+
+    public void setWorkingHours(String workingHours) {
+        if (this.workingHours == null) {
+            this.workingHours = workingHours;
+        }
+    }
+
+    // Найдены все категории контактов - дальше страницу можно не читать
+    public boolean hasAllCategories() {
+        return !emails.isEmpty() && !phones.isEmpty() && address != null && workingHours != null;
+    }
+
+    public Map<String, String> toMap() {
+        Map<String, String> contacts = new HashMap<>();
+        if (!emails.isEmpty()) {
+            contacts.put("email", String.join(", ", emails));
+        }
+        if (!phones.isEmpty()) {
+            contacts.put("phone", String.join(", ", phones));
+        }
+        if (address != null) {
+            contacts.put("address", address);
+        }
+        if (workingHours != null) {
+            contacts.put("workingHours", workingHours);
+        }
+        return contacts;
+    }
+}
@@ -0,0 +1,138 @@
+package com.utmn.chamortsev.urlparser.core;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Однопроходный сканер контактов. Шаблоны компилируются один раз и применяются через lookingAt()
+// только в позициях-кандидатах, остальной текст отсекается проверкой одного символа:
+// '@' - email, '+', '(' или начало серии цифр - телефон, начало кириллического слова - адрес и часы работы
+public final class ContactScanner {
+
+    // Начало email ищется от '@' назад, поэтому ведущий \b не нужен
+    static final Pattern EMAIL = Pattern.compile(
+            "[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}\\b");
+
+    // Единый формат телефона: +7 (999) 123-45-67, 8 999 123 4567, 9991234567
+    static final Pattern PHONE = Pattern.compile(
+            "(?:\\+?\\d{1,3}[-.\\s]?)?\\(?\\d{3}\\)?[-.\\s]?\\d{3}[-.\\s]?\\d{2}[-.\\s]?\\d{2}(?!\\d)");
+
+    // Без захвата разметки: совпадение не выходит за пределы тега
+    static final Pattern ADDRESS = Pattern.compile(
+            "(?:ул\\.|улица|проспект|пр\\.|бульвар|б-р|переулок|пер\\.)[^,.<>]{1,50},\\s*[^,.<>]{1,50}",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+
+    static final Pattern HOURS = Pattern.compile(
+            "(?:пн|вт|ср|чт|пт|сб|вс|понед|вторник|среда|четверг|пятница|суббота|воскресенье)"
+                    + "[^.<>]{0,40}\\d{1,2}[:.]\\d{2}[^.<>]{0,40}\\d{1,2}[:.]\\d{2}",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+
+    private ContactScanner() {
+    }
+
+    public static ContactAccumulator scan(CharSequence content) {
+        ContactAccumulator contacts = new ContactAccumulator();
+        scan(content, contacts);
+        return contacts;
+    }
+
+    public static void scan(CharSequence content, ContactAccumulator contacts) {
+        scan(content, 0, content.length(), contacts);
+    }
+
+    // Сканирует позиции-кандидаты из [from, limit) и принимает только совпадения, которые заканчиваются
+    // не дальше limit: текст после limit служит контекстом для шаблонов, но сам еще не просмотрен.
+    // Возвращает позицию, с которой нужно продолжить, когда к тексту допишется продолжение;
+    // при limit = length сканирование идет до конца, как у обычного scan()
+    public static int scan(CharSequence content, int from, int limit, ContactAccumulator contacts) {
+        int length = content.length();
+        Matcher email = matcher(EMAIL, content);
+        Matcher phone = matcher(PHONE, content);
+        Matcher address = matcher(ADDRESS, content);
+        Matcher hours = matcher(HOURS, content);
+
+        int i = from;
+        while (i < limit) {
+            char c = content.charAt(i);
+            int next = i + 1;
+
+            if (c == '@') {
+                int start = emailStart(content, i);
+                if (start >= 0 && lookingAt(email, start, length)) {
+                    if (email.end() > limit) {
+                        return i;
+                    }
+                    contacts.addEmail(email.group());
+                    next = email.end();
+                }
+            } else if (c == '+' || c == '(' || (isDigit(c) && (i == 0 || !isDigit(content.charAt(i - 1))))) {
+                if (lookingAt(phone, i, length)) {
+                    if (phone.end() > limit) {
+                        return i;
+                    }
+                    contacts.addPhone(phone.group());
+                    next = phone.end();
+                }
+            } else if (isCyrillic(c) && isWordStart(content, i)) {
+                char lower = Character.toLowerCase(c);
+                boolean tryAddress = !contacts.hasAddress() && (lower == 'у' || lower == 'п' || lower == 'б')
+                        && lookingAt(address, i, length);
+                boolean tryHours = !contacts.hasWorkingHours()
+                        && (lower == 'п' || lower == 'в' || lower == 'с' || lower == 'ч')
+                        && lookingAt(hours, i, length);
+                if ((tryAddress && address.end() > limit) || (tryHours && hours.end() > limit)) {
+                    return i;
+                }
+                if (tryAddress) {
+                    contacts.setAddress(address.group());
+                }
+                if (tryHours) {
+                    contacts.setWorkingHours(hours.group());
+                }
+            }
+
+            i = next;
+        }
+        return i;
+    }
+
+    private static Matcher matcher(Pattern pattern, CharSequence content) {
+        return pattern.matcher(content).useTransparentBounds(true).useAnchoringBounds(false);
+    }
+
+    private static boolean lookingAt(Matcher matcher, int from, int length) {
+        matcher.region(from, length);
+        return matcher.lookingAt();
+    }
+
+    // Начало локальной части email: назад по допустимым символам, затем вперед до буквы или цифры
+    private static int emailStart(CharSequence content, int at) {
+        int start = at;
+        while (start > 0 && isEmailLocalChar(content.charAt(start - 1))) {
+            start--;
+        }
+        while (start < at && !isAsciiLetterOrDigit(content.charAt(start))) {
+            start++;
+        }
+        return start < at ? start : -1;
+    }
+
+    private static boolean isWordStart(CharSequence content, int i) {
+        return i == 0 || !Character.isLetterOrDigit(content.charAt(i - 1));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isEmailLocalChar(char c) {
+        return isAsciiLetterOrDigit(c) || c == '.' || c == '_' || c == '%' || c == '+' || c == '-';
+    }
+
+    private static boolean isCyrillic(char c) {
+        return c >= '\u0400' && c <= '\u04FF';
+    }
+}
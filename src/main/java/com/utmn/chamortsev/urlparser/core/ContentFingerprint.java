@@ -0,0 +1,55 @@
+package com.utmn.chamortsev.urlparser.core;
+
+// 64-битный отпечаток содержимого страницы (FNV-1a по символам).
+// Серия пробельных символов считается одним разделителем, пробелы в начале и в конце не учитываются:
+// изменения отступов и переносов строк страницу не меняют, а появление или исчезновение пробела меняет -
+// от него зависят совпадения телефона и адреса в ContactScanner.
+// Считается по частям, поэтому подходит и для потокового чтения
+public final class ContentFingerprint {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private long hash = OFFSET_BASIS;
+    // Был ли непробельный символ и ждет ли разделитель следующего - состояние между частями
+    private boolean started = false;
+    private boolean pendingSeparator = false;
+
+    public static long of(CharSequence content) {
+        ContentFingerprint fingerprint = new ContentFingerprint();
+        fingerprint.update(content);
+        return fingerprint.value();
+    }
+
+    public void update(CharSequence content) {
+        long h = hash;
+        boolean separator = pendingSeparator;
+        for (int i = 0, length = content.length(); i < length; i++) {
+            char c = content.charAt(i);
+            if (c <= ' ' ? isAsciiWhitespace(c) : c >= 0x80 && Character.isWhitespace(c)) {
+                separator = started;
+                continue;
+            }
+            if (separator) {
+                // Разделитель - как один пробел
+                h = (h ^ ' ') * PRIME;
+                h = (h ^ 0) * PRIME;
+                separator = false;
+            }
+            // Символ - два байта, младший и старший
+            h = (h ^ (c & 0xff)) * PRIME;
+            h = (h ^ (c >>> 8)) * PRIME;
+            started = true;
+        }
+        hash = h;
+        pendingSeparator = separator;
+    }
+
+    public long value() {
+        return hash;
+    }
+
+    private static boolean isAsciiWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0x0B;
+    }
+}
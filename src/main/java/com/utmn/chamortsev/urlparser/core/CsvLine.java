@@ -0,0 +1,61 @@
+package com.utmn.chamortsev.urlparser.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Разбор и запись одной строки CSV (RFC 4180): поля через запятую, в кавычках допускаются запятые
+// и удвоенные кавычки. Перенос строки внутри поля при разборе не поддерживается - файл читается построчно
+public final class CsvLine {
+
+    private CsvLine() {
+    }
+
+    public static List<String> parse(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0, length = line.length(); i < length; i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < length && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    // null - пустое поле; в кавычки берутся только поля с запятой, кавычкой или переносом строки
+    public static String format(List<String> fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            String field = fields.get(i);
+            if (field == null) {
+                continue;
+            }
+            if (field.indexOf(',') < 0 && field.indexOf('"') < 0
+                    && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+                line.append(field);
+            } else {
+                line.append('"').append(field.replace("\"", "\"\"")).append('"');
+            }
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,94 @@
+package com.utmn.chamortsev.urlparser.core;
+
+// Кольцевой буфер последних N обходов URL: HTTP-статус и время ответа.
+// Хранится в одной строке БД ("200:35,-1:12,..." от старых к новым), поэтому читается
+// и дописывается без выборки истории. Не потокобезопасен - синхронизация на стороне вызывающего
+public final class RecentOutcomes {
+
+    private final int[] statuses;
+    private final long[] responseTimes;
+    // Индекс самого старого элемента и число элементов
+    private int head = 0;
+    private int size = 0;
+
+    public RecentOutcomes(int capacity) {
+        this.statuses = new int[Math.max(1, capacity)];
+        this.responseTimes = new long[statuses.length];
+    }
+
+    // Разбор сохраненной строки; при меньшей емкости остаются самые новые, нечитаемые элементы пропускаются
+    public static RecentOutcomes parse(String encoded, int capacity) {
+        RecentOutcomes outcomes = new RecentOutcomes(capacity);
+        if (encoded == null || encoded.isBlank()) {
+            return outcomes;
+        }
+        for (String item : encoded.split(",")) {
+            int colon = item.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            try {
+                outcomes.add(Integer.parseInt(item.substring(0, colon).trim()),
+                        Long.parseLong(item.substring(colon + 1).trim()));
+            } catch (NumberFormatException e) {
+                // Пропускаем поврежденный элемент
+            }
+        }
+        return outcomes;
+    }
+
+    public void add(int status, long responseTime) {
+        int index = (head + size) % statuses.length;
+        if (size == statuses.length) {
+            head = (head + 1) % statuses.length;
+        } else {
+            size++;
+        }
+        statuses[index] = status;
+        responseTimes[index] = responseTime;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Доля ответов 200; NaN - обходов еще не было
+    public double successRate() {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        int success = 0;
+        for (int i = 0; i < size; i++) {
+            if (statuses[(head + i) % statuses.length] == 200) {
+                success++;
+            }
+        }
+        return (double) success / size;
+    }
+
+    // Среднее время успешных ответов; NaN - успешных нет
+    public double averageSuccessTime() {
+        long sum = 0;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % statuses.length;
+            if (statuses[index] == 200) {
+                sum += responseTimes[index];
+                count++;
+            }
+        }
+        return count == 0 ? Double.NaN : (double) sum / count;
+    }
+
+    public String encode() {
+        StringBuilder encoded = new StringBuilder(size * 8);
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % statuses.length;
+            if (i > 0) {
+                encoded.append(',');
+            }
+            encoded.append(statuses[index]).append(':').append(responseTimes[index]);
+        }
+        return encoded.toString();
+    }
+}
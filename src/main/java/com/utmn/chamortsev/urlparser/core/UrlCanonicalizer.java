@@ -0,0 +1,110 @@
+package com.utmn.chamortsev.urlparser.core;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Канонический ключ URL для поиска дублей: одна и та же страница, записанная по-разному,
+// дает один ключ. Ключ не используется для загрузки - загружается исходный URL.
+// - схема и хост в нижнем регистре, http и https дают один ключ (https);
+// - порт по умолчанию для схемы убирается;
+// - пустой путь - "/", завершающий "/" у непустого пути убирается, "." и ".." раскрываются;
+// - фрагмент и параметры отслеживания (utm_*, gclid, yclid...) убираются, остальные параметры сортируются.
+// Строка, которая не разбирается как http(s)-URL с хостом, возвращается без пробелов по краям
+public final class UrlCanonicalizer {
+
+    private static final Set<String> TRACKING_PARAMS = Set.of(
+            "gclid", "dclid", "gbraid", "wbraid", "fbclid", "msclkid", "yclid", "ysclid",
+            "igshid", "mc_cid", "mc_eid", "_openstat", "_ga", "_gl");
+
+    private UrlCanonicalizer() {
+    }
+
+    public static String canonicalize(String url) {
+        if (url == null) {
+            return null;
+        }
+        String trimmed = url.trim();
+        URI uri;
+        try {
+            uri = new URI(trimmed).normalize();
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : null;
+        String host = uri.getHost();
+        if (host == null || !("http".equals(scheme) || "https".equals(scheme))) {
+            return trimmed;
+        }
+
+        StringBuilder key = new StringBuilder(trimmed.length() + 1).append("https://");
+        if (uri.getRawUserInfo() != null) {
+            key.append(uri.getRawUserInfo()).append('@');
+        }
+        host = host.toLowerCase(Locale.ROOT);
+        if (host.endsWith(".")) {
+            host = host.substring(0, host.length() - 1);
+        }
+        key.append(host);
+        int port = uri.getPort();
+        if (port != -1 && port != ("http".equals(scheme) ? 80 : 443)) {
+            key.append(':').append(port);
+        }
+
+        String path = uri.getRawPath();
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        } else if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        key.append(path);
+
+        String query = canonicalQuery(uri.getRawQuery());
+        if (!query.isEmpty()) {
+            key.append('?').append(query);
+        }
+        return key.toString();
+    }
+
+    // Хост в нижнем регистре без порта - для фильтров и группировки по сайту; null, если не разбирается
+    public static String host(String url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            String host = new URI(url.trim()).getHost();
+            if (host == null) {
+                return null;
+            }
+            host = host.toLowerCase(Locale.ROOT);
+            return host.endsWith(".") ? host.substring(0, host.length() - 1) : host;
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private static String canonicalQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+        List<String> params = new ArrayList<>();
+        for (String param : rawQuery.split("&")) {
+            if (param.isEmpty()) {
+                continue;
+            }
+            int eq = param.indexOf('=');
+            String name = (eq >= 0 ? param.substring(0, eq) : param).toLowerCase(Locale.ROOT);
+            if (name.startsWith("utm_") || TRACKING_PARAMS.contains(name)) {
+                continue;
+            }
+            params.add(param);
+        }
+        // Сортировка по имени, порядок одноименных параметров сохраняется
+        params.sort(Comparator.comparing(p -> p.indexOf('=') >= 0 ? p.substring(0, p.indexOf('=')) : p));
+        return String.join("&", params);
+    }
+}
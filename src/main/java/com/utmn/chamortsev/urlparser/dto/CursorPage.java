@@ -0,0 +1,14 @@
+package com.utmn.chamortsev.urlparser.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+// Страница keyset-пагинации: next передается в следующий запрос как cursor, null - страниц больше нет
+@Schema(description = "Страница списка с курсором следующей страницы")
+public record CursorPage<T>(
+        @Schema(description = "Элементы страницы") List<T> items,
+        @Schema(description = "Размер страницы", example = "100") int size,
+        @Schema(description = "Курсор следующей страницы; null - это последняя страница") String next
+) {
+}
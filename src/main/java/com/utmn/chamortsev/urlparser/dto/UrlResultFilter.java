@@ -0,0 +1,16 @@
+package com.utmn.chamortsev.urlparser.dto;
+
+import java.time.LocalDateTime;
+
+// Фильтры списка результатов; null - без условия
+public record UrlResultFilter(
+        Long urlId,
+        Boolean active,
+        String host,
+        Integer statusCode,
+        LocalDateTime from,
+        LocalDateTime to,
+        Boolean hasEmail,
+        Boolean hasPhone
+) {
+}
@@ -0,0 +1,25 @@
+package com.utmn.chamortsev.urlparser.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+// Проекция результата обработки вместе с URL одним запросом, без загрузки сущностей
+@Schema(description = "Результат обработки URL в постраничном списке")
+public record UrlResultView(
+        @Schema(description = "ID результата", example = "1") Long id,
+        @Schema(description = "ID URL", example = "1") Long urlId,
+        @Schema(description = "Полный URL сайта") String url,
+        @Schema(description = "Хост сайта", example = "example.com") String host,
+        @Schema(description = "HTTP статус код", example = "200") Integer statusCode,
+        @Schema(description = "Время ответа в мс", example = "350") Long responseTime,
+        @Schema(description = "Найденные email") String email,
+        @Schema(description = "Найденные телефоны") String phone,
+        @Schema(description = "Найденный адрес") String address,
+        @Schema(description = "Найденные часы работы") String workingHours,
+        @Schema(description = "Ошибка обработки") String errorMessage,
+        @Schema(description = "Время обработки") LocalDateTime processedAt,
+        @Schema(description = "Сколько обходов вернули то же содержимое", example = "1") int seenCount,
+        @Schema(description = "Последний обход с тем же содержимым") LocalDateTime lastSeenAt
+) {
+}
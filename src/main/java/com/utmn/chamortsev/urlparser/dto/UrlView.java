@@ -0,0 +1,19 @@
+package com.utmn.chamortsev.urlparser.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+// Проекция URL для постраничных списков: только колонки, без загрузки сущности
+@Schema(description = "URL в постраничном списке")
+public record UrlView(
+        @Schema(description = "ID URL", example = "1") Long id,
+        @Schema(description = "Полный URL сайта", example = "https://example.com") String url,
+        @Schema(description = "Хост сайта", example = "example.com") String host,
+        @Schema(description = "Отображаемое имя сайта") String name,
+        @Schema(description = "Описание сайта") String description,
+        @Schema(description = "Доступность сайта к обработке") boolean active,
+        @Schema(description = "Время создания записи") LocalDateTime createdAt,
+        @Schema(description = "Время следующего обхода по расписанию") LocalDateTime nextCrawlAt
+) {
+}
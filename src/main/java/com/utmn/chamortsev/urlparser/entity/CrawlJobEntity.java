@@ -0,0 +1,61 @@
+package com.utmn.chamortsev.urlparser.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Задание обхода активных URL. Счетчики обновляются при сохранении контрольной точки
+// вместе с состояниями элементов (CrawlJobItemEntity)
+@Getter
+@Setter
+@Entity
+@Table(name = "crawl_jobs")
+@Schema(description = "Задание обхода активных URL")
+public class CrawlJobEntity {
+
+    public enum Status {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Schema(description = "Идентификатор задания", example = "1")
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    @Schema(description = "Состояние задания", example = "RUNNING")
+    private Status status = Status.RUNNING;
+
+    @Schema(description = "URL в задании", example = "100")
+    private long totalItems;
+
+    @Schema(description = "Обработано успешно по последней контрольной точке", example = "40")
+    private long doneItems;
+
+    @Schema(description = "Обработано с ошибкой по последней контрольной точке", example = "2")
+    private long failedItems;
+
+    @Schema(description = "Сколько раз задание продолжено после перезапуска", example = "0")
+    private int resumeCount;
+
+    @Schema(description = "Время создания задания")
+    private LocalDateTime createdAt;
+
+    @Schema(description = "Время последней контрольной точки")
+    private LocalDateTime checkpointAt;
+
+    @Schema(description = "Время завершения задания")
+    private LocalDateTime finishedAt;
+
+    @Schema(description = "Причина ошибки задания")
+    private String errorMessage;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
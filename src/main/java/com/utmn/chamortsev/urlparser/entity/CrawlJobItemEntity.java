@@ -0,0 +1,49 @@
+package com.utmn.chamortsev.urlparser.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Элемент задания обхода - один URL. Переходы: PENDING -> IN_PROGRESS -> DONE | FAILED.
+// IN_PROGRESS живет только в памяти: в БД пишутся завершенные состояния пачками,
+// поэтому после перезапуска незавершенные элементы снова PENDING
+@Getter
+@Setter
+@Entity
+@Table(name = "crawl_job_items",
+        indexes = @Index(name = "idx_crawl_job_items_state", columnList = "job_id, state, url_id"))
+@IdClass(CrawlJobItemEntity.Key.class)
+public class CrawlJobItemEntity {
+
+    public enum State {
+        PENDING, IN_PROGRESS, DONE, FAILED
+    }
+
+    @Id
+    @Column(name = "job_id")
+    private Long jobId;
+
+    @Id
+    @Column(name = "url_id")
+    private Long urlId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private State state = State.PENDING;
+
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long jobId;
+        private Long urlId;
+    }
+}
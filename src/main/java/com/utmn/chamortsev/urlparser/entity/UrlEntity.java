@@ -1,6 +1,8 @@
 package com.utmn.chamortsev.urlparser.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.utmn.chamortsev.urlparser.core.UrlCanonicalizer;
+import com.utmn.chamortsev.urlparser.service.EntityCountListener;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import lombok.Getter;
@@ -13,7 +15,12 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
-@Table(name = "urls")
+// active, id - countActiveUrls и постраничный обход активных URL (ActiveUrlSource)
+@Table(name = "urls", indexes = {
+        @Index(name = "idx_urls_host", columnList = "host"),
+        @Index(name = "idx_urls_active", columnList = "active, id")
+})
+@EntityListeners(EntityCountListener.class)
 @Schema(description = "Введенный URL для парсинга контактов")
 public class UrlEntity {
 
@@ -28,10 +35,18 @@ public class UrlEntity {
     @Schema(description = "Уникальный идентификатор для URL", example = "1")
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     @Schema(description = "Полный URL сайта", example = "https://example.com")
     private String url;
 
+    // Канонический ключ (UrlCanonicalizer) - по нему уникальность и поиск дублей
+    @Column(nullable = false, unique = true, length = 512)
+    @Schema(description = "Канонический ключ URL", example = "https://example.com/")
+    private String canonicalUrl;
+
+    @Schema(description = "Хост сайта в нижнем регистре, без порта", example = "example.com")
+    private String host;
+
     @Schema(description = "Отображаемое имя сайта", example = "Тестовый сайт")
     private String name;
 
@@ -43,9 +58,58 @@ public class UrlEntity {
 
     @Schema(description = "Доступность сайта к обработке", example = "true")
     private boolean active = true;
+
+    // Значение active при загрузке - чтобы EntityCountListener видел смену флага
+    @Transient
+    @JsonIgnore
+    @Schema(hidden = true)
+    private boolean loadedActive;
+
+    // Валидаторы последней успешной загрузки для условных запросов (PageValidatorStore)
+    @Column(length = 512)
+    @JsonIgnore
+    @Schema(hidden = true)
+    private String etag;
+
+    @JsonIgnore
+    @Schema(hidden = true)
+    private String lastModified;
+
+    // Размер тела последней загрузки - для оценки сэкономленного трафика на 304
+    @JsonIgnore
+    @Schema(hidden = true)
+    private Long lastBodyBytes;
+
+    // Отпечаток содержимого последней загрузки (ContentFingerprint)
+    @JsonIgnore
+    @Schema(hidden = true)
+    private Long contentHash;
+
+    // Расписание повторного обхода (RecrawlScheduler): интервал подстраивается под частоту изменения контактов
+    @Schema(description = "Текущий интервал повторного обхода, секунды", example = "3600")
+    private Long recrawlIntervalSec;
+
+    @Schema(description = "Время следующего обхода по расписанию")
+    private LocalDateTime nextCrawlAt;
+
+    @Schema(description = "Когда при обходе последний раз изменились контакты")
+    private LocalDateTime contactsChangedAt;
+
+    // Отпечаток контактов последнего успешного обхода по расписанию
+    @JsonIgnore
+    @Schema(hidden = true)
+    private Long contactsHash;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
+        onUpdate();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        canonicalUrl = UrlCanonicalizer.canonicalize(url);
+        host = UrlCanonicalizer.host(url);
     }
 
     public UrlEntity() {}
@@ -0,0 +1,55 @@
+package com.utmn.chamortsev.urlparser.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+// Последний результат каждого URL - копия строки url_results, одна строка на URL.
+// Пишет UrlResultSink в той же транзакции, что и сами результаты (LatestResultStore);
+// статус URL и сводки читают одну строку по ключу вместо выборки истории.
+// Удаляется вместе с URL внешним ключом ON DELETE CASCADE
+@Getter
+@Setter
+@Entity
+@Table(name = "url_latest_results")
+public class UrlLatestResultEntity {
+
+    @Id
+    @Column(name = "url_id")
+    private Long urlId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "url_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private UrlEntity urlEntity;
+
+    // id строки url_results, с которой снята копия
+    @Column(nullable = false)
+    private Long resultId;
+
+    private Integer statusCode;
+
+    private Long responseTime;
+
+    private String address;
+
+    @Column(length = 1000)
+    private String phone;
+
+    private String email;
+
+    private String workingHours;
+
+    private String errorMessage;
+
+    private LocalDateTime processedAt;
+
+    private int seenCount = 1;
+
+    private LocalDateTime lastSeenAt;
+}
@@ -1,6 +1,7 @@
 package com.utmn.chamortsev.urlparser.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.utmn.chamortsev.urlparser.service.EntityCountListener;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import lombok.Getter;
@@ -9,13 +10,25 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "url_results")
+// Индексы под горячие запросы (проверка планов - UrlResultIndexPlanTest):
+// url_id (индекс внешнего ключа) - MAX(id) по URL (markSeenAgain, since выгрузки), результаты URL по курсору;
+// url_id, status_code, processed_at - последний успешный результат URL (PageValidatorStore);
+// status_code, response_time - countByStatusCode и findAverageResponseTime только по индексу;
+// processed_at - диапазоны from/to списков и выгрузки
+@Table(name = "url_results", indexes = {
+        @Index(name = "idx_url_results_url_status_time", columnList = "url_id, status_code, processed_at"),
+        @Index(name = "idx_url_results_status_time", columnList = "status_code, response_time"),
+        @Index(name = "idx_url_results_processed_at", columnList = "processed_at")
+})
+@EntityListeners(EntityCountListener.class)
 @Schema(description = "Result of URL parsing operation")
 @Getter
 @Setter
 public class UrlResultEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // SEQUENCE вместо IDENTITY: Hibernate может собирать INSERT в JDBC-пакеты
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "url_results_seq")
+    @SequenceGenerator(name = "url_results_seq", sequenceName = "url_results_seq", allocationSize = 100)
     @Schema(description = "Unique identifier of the result", example = "1")
     private Long id;
 
@@ -53,9 +66,24 @@ public class UrlResultEntity {
     @Column(length = 1000)
     private String notes;
 
+    @Schema(description = "How many crawls returned the same content", example = "1")
+    private int seenCount = 1;
+
+    @Schema(description = "Last crawl that returned the same content")
+    private LocalDateTime lastSeenAt;
+
+    // Результат повторяет эту строку - UrlResultSink обновит ее вместо вставки новой
+    @Transient
+    @JsonIgnore
+    @Schema(hidden = true)
+    private Long repeatOf;
+
     @PrePersist
     protected void onCreate() {
-        processedAt = LocalDateTime.now();
+        // Время может быть задано заранее, если запись отложена (UrlResultSink)
+        if (processedAt == null) {
+            processedAt = LocalDateTime.now();
+        }
     }
 
     public UrlResultEntity() {}
@@ -0,0 +1,45 @@
+package com.utmn.chamortsev.urlparser.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+// Накопительная статистика обходов URL: счетчики, EWMA времени ответа и последние N обходов
+// (RecentOutcomes). Обновляется UrlStatsStore при каждой записи результата, читается одной строкой по ключу
+@Getter
+@Setter
+@Entity
+@Table(name = "url_stats")
+public class UrlStatsEntity {
+
+    @Id
+    @Column(name = "url_id")
+    private Long urlId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "url_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private UrlEntity urlEntity;
+
+    // Все обходы, включая повторы неизмененного содержимого
+    private long crawlCount;
+
+    private long successCount;
+
+    // Сумма времени успешных ответов - для среднего за все время
+    private long successTimeSum;
+
+    // Экспоненциальное скользящее среднее времени успешных ответов
+    private Double ewmaResponseTime;
+
+    // Последние обходы "статус:мс" от старых к новым
+    @Column(length = 1024)
+    private String recent;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,60 @@
+package com.utmn.chamortsev.urlparser.repository;
+
+import com.utmn.chamortsev.urlparser.entity.CrawlJobEntity;
+import com.utmn.chamortsev.urlparser.entity.CrawlJobItemEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CrawlJobRepository extends JpaRepository<CrawlJobEntity, Long> {
+
+    List<CrawlJobEntity> findByStatus(CrawlJobEntity.Status status);
+
+    List<CrawlJobEntity> findAllByOrderByIdDesc(Limit limit);
+
+    // Элементы задания - все активные URL одним INSERT ... SELECT, без выборки в память
+    @Modifying
+    @Query(value = """
+    INSERT INTO crawl_job_items (job_id, url_id, state, updated_at)
+    SELECT :jobId, u.id, 'PENDING', :now FROM urls u WHERE u.active = true
+        """, nativeQuery = true)
+    int insertItemsForActiveUrls(@Param("jobId") Long jobId, @Param("now") LocalDateTime now);
+
+    // Невыполненные элементы страницами по url_id
+    @Query("""
+    SELECT i.urlId FROM CrawlJobItemEntity i
+    WHERE i.jobId = :jobId AND i.state = :state AND i.urlId > :afterUrlId
+    ORDER BY i.urlId
+        """)
+    List<Long> findItemUrlIds(@Param("jobId") Long jobId,
+                              @Param("state") CrawlJobItemEntity.State state,
+                              @Param("afterUrlId") Long afterUrlId,
+                              Limit limit);
+
+    @Modifying
+    @Query("""
+    UPDATE CrawlJobItemEntity i SET i.state = :state, i.updatedAt = :now
+    WHERE i.jobId = :jobId AND i.urlId IN :urlIds
+        """)
+    int updateItemStates(@Param("jobId") Long jobId,
+                         @Param("urlIds") Collection<Long> urlIds,
+                         @Param("state") CrawlJobItemEntity.State state,
+                         @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("""
+    UPDATE CrawlJobEntity j SET j.doneItems = j.doneItems + :done, j.failedItems = j.failedItems + :failed,
+        j.checkpointAt = :now
+    WHERE j.id = :jobId
+        """)
+    int addCheckpoint(@Param("jobId") Long jobId, @Param("done") long done, @Param("failed") long failed,
+                      @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,32 @@
+package com.utmn.chamortsev.urlparser.repository;
+
+import com.utmn.chamortsev.urlparser.dto.UrlResultView;
+import com.utmn.chamortsev.urlparser.entity.UrlLatestResultEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface UrlLatestResultRepository extends JpaRepository<UrlLatestResultEntity, Long> {
+
+    // Последние результаты активных URL страницей (keyset по id URL, от новых к старым):
+    // одна строка на URL, история url_results не читается
+    @Query("""
+    SELECT new com.utmn.chamortsev.urlparser.dto.UrlResultView(l.resultId, u.id, u.url, u.host, l.statusCode,
+        l.responseTime, l.email, l.phone, l.address, l.workingHours, l.errorMessage, l.processedAt,
+        l.seenCount, l.lastSeenAt)
+    FROM UrlLatestResultEntity l JOIN l.urlEntity u
+    WHERE u.active = true AND u.id < :beforeUrlId
+      AND (:host IS NULL OR u.host = :host)
+      AND (:statusCode IS NULL OR l.statusCode = :statusCode)
+    ORDER BY u.id DESC
+        """)
+    List<UrlResultView> findActivePage(@Param("beforeUrlId") Long beforeUrlId,
+                                       @Param("host") String host,
+                                       @Param("statusCode") Integer statusCode,
+                                       Limit limit);
+}
@@ -1,19 +1,77 @@
 package com.utmn.chamortsev.urlparser.repository;
 
+import com.utmn.chamortsev.urlparser.core.UrlCanonicalizer;
+import com.utmn.chamortsev.urlparser.dto.UrlView;
 import com.utmn.chamortsev.urlparser.entity.UrlEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UrlRepository extends JpaRepository<UrlEntity, Long> {
-    Optional<UrlEntity> findByUrl(String url);
-    List<UrlEntity> findAllByOrderByCreatedAtDesc();
-    List<UrlEntity> findByActiveTrueOrderByCreatedAtDesc();
-    boolean existsByUrl(String url);
+    Optional<UrlEntity> findByCanonicalUrl(String canonicalUrl);
+    // Страница активных URL после заданного id (keyset-пагинация, ActiveUrlSource)
+    List<UrlEntity> findByActiveTrueAndIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+    boolean existsByCanonicalUrl(String canonicalUrl);
+
+    // Поиск по каноническому ключу: разные записи одного адреса находят одну строку
+    default Optional<UrlEntity> findByUrl(String url) {
+        return findByCanonicalUrl(UrlCanonicalizer.canonicalize(url));
+    }
+
+    default boolean existsByUrl(String url) {
+        return existsByCanonicalUrl(UrlCanonicalizer.canonicalize(url));
+    }
+
+    // Какие из ключей уже есть - одним запросом на пачку импорта
+    @Query("SELECT u.canonicalUrl FROM UrlEntity u WHERE u.canonicalUrl IN :keys")
+    List<String> findExistingCanonicalUrls(@Param("keys") Collection<String> canonicalUrls);
+
+    // Страница URL от новых к старым (keyset по id); null в фильтре - без условия
+    @Query("""
+    SELECT new com.utmn.chamortsev.urlparser.dto.UrlView(u.id, u.url, u.host, u.name, u.description, u.active,
+        u.createdAt, u.nextCrawlAt)
+    FROM UrlEntity u
+    WHERE u.id < :beforeId
+      AND (:active IS NULL OR u.active = :active)
+      AND (:host IS NULL OR u.host = :host)
+    ORDER BY u.id DESC
+        """)
+    List<UrlView> findUrlPage(@Param("beforeId") Long beforeId,
+                              @Param("active") Boolean active,
+                              @Param("host") String host,
+                              Limit limit);
 
     @Query("SELECT COUNT(*) FROM UrlEntity  WHERE active = true")
     long countActiveUrls();
-}
\ No newline at end of file
+
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE UrlEntity u SET u.etag = :etag, u.lastModified = :lastModified,
+        u.lastBodyBytes = :bodyBytes, u.contentHash = :contentHash
+    WHERE u.id = :id
+        """)
+    int updateFetchState(@Param("id") Long id, @Param("etag") String etag,
+                         @Param("lastModified") String lastModified, @Param("bodyBytes") Long bodyBytes,
+                         @Param("contentHash") Long contentHash);
+
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE UrlEntity u SET u.recrawlIntervalSec = :intervalSec, u.nextCrawlAt = :nextCrawlAt,
+        u.contactsHash = :contactsHash, u.contactsChangedAt = :contactsChangedAt
+    WHERE u.id = :id
+        """)
+    int updateRecrawlState(@Param("id") Long id, @Param("intervalSec") Long intervalSec,
+                           @Param("nextCrawlAt") LocalDateTime nextCrawlAt, @Param("contactsHash") Long contactsHash,
+                           @Param("contactsChangedAt") LocalDateTime contactsChangedAt);
+}
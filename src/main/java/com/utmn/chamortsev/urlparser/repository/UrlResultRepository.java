@@ -1,24 +1,108 @@
 package com.utmn.chamortsev.urlparser.repository;
 
+import com.utmn.chamortsev.urlparser.dto.UrlResultView;
 import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UrlResultRepository extends JpaRepository<UrlResultEntity, Long> {
-    List<UrlResultEntity> findByUrlEntityIdOrderByProcessedAtDesc(Long urlId);
-    List<UrlResultEntity> findAllByOrderByProcessedAtDesc();
+    // Условие по внешнему ключу ur.urlEntity.id, а не производный запрос: тот соединяет urls и фильтрует
+    // по urls.id, и индекс (url_id, status_code, processed_at) не используется
+    @Query("""
+    SELECT ur FROM UrlResultEntity ur
+    WHERE ur.urlEntity.id = :urlId AND ur.statusCode = :statusCode
+    ORDER BY ur.processedAt DESC
+    LIMIT 1
+        """)
+    Optional<UrlResultEntity> findFirstByUrlEntityIdAndStatusCodeOrderByProcessedAtDesc(@Param("urlId") Long urlId,
+                                                                                       @Param("statusCode") Integer statusCode);
 
 
-    @Query("SELECT r FROM UrlResultEntity r WHERE r.urlEntity.id = :urlId ORDER BY r.processedAt DESC")
-    Optional<UrlResultEntity> findTopByUrlEntityIdOrderByProcessedAtDesc(@Param("urlId") Long urlId);
+    // Страница результатов от новых к старым (keyset по id) вместе с URL; null в фильтре - без условия.
+    // Пустая строка в email/phone - то же, что отсутствие
+    @Query("""
+    SELECT new com.utmn.chamortsev.urlparser.dto.UrlResultView(ur.id, u.id, u.url, u.host, ur.statusCode,
+        ur.responseTime, ur.email, ur.phone, ur.address, ur.workingHours, ur.errorMessage, ur.processedAt,
+        ur.seenCount, ur.lastSeenAt)
+    FROM UrlResultEntity ur JOIN ur.urlEntity u
+    WHERE ur.id < :beforeId
+      AND (:urlId IS NULL OR u.id = :urlId)
+      AND (:active IS NULL OR u.active = :active)
+      AND (:host IS NULL OR u.host = :host)
+      AND (:statusCode IS NULL OR ur.statusCode = :statusCode)
+      AND (:from IS NULL OR ur.processedAt >= :from)
+      AND (:to IS NULL OR ur.processedAt < :to)
+      AND (:hasEmail IS NULL
+           OR (:hasEmail = true AND ur.email IS NOT NULL AND ur.email <> '')
+           OR (:hasEmail = false AND (ur.email IS NULL OR ur.email = '')))
+      AND (:hasPhone IS NULL
+           OR (:hasPhone = true AND ur.phone IS NOT NULL AND ur.phone <> '')
+           OR (:hasPhone = false AND (ur.phone IS NULL OR ur.phone = '')))
+    ORDER BY ur.id DESC
+        """)
+    List<UrlResultView> findResultPage(@Param("beforeId") Long beforeId,
+                                       @Param("urlId") Long urlId,
+                                       @Param("active") Boolean active,
+                                       @Param("host") String host,
+                                       @Param("statusCode") Integer statusCode,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to,
+                                       @Param("hasEmail") Boolean hasEmail,
+                                       @Param("hasPhone") Boolean hasPhone,
+                                       Limit limit);
 
-    @Query("SELECT ur FROM UrlResultEntity ur JOIN ur.urlEntity u WHERE u.active = true ORDER BY ur.processedAt DESC")
-    List<UrlResultEntity> findActiveUrlResults();
+    // Выгрузка: те же фильтры, от старых к новым, одним курсором без загрузки всей выборки.
+    // since - только изменения: последний результат URL, если он получен позже since
+    // (повтор того же содержимого новой строки не создает и изменением не считается)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+    SELECT new com.utmn.chamortsev.urlparser.dto.UrlResultView(ur.id, u.id, u.url, u.host, ur.statusCode,
+        ur.responseTime, ur.email, ur.phone, ur.address, ur.workingHours, ur.errorMessage, ur.processedAt,
+        ur.seenCount, ur.lastSeenAt)
+    FROM UrlResultEntity ur JOIN ur.urlEntity u
+    WHERE (:urlId IS NULL OR u.id = :urlId)
+      AND (:active IS NULL OR u.active = :active)
+      AND (:host IS NULL OR u.host = :host)
+      AND (:statusCode IS NULL OR ur.statusCode = :statusCode)
+      AND (:from IS NULL OR ur.processedAt >= :from)
+      AND (:to IS NULL OR ur.processedAt < :to)
+      AND (:hasEmail IS NULL
+           OR (:hasEmail = true AND ur.email IS NOT NULL AND ur.email <> '')
+           OR (:hasEmail = false AND (ur.email IS NULL OR ur.email = '')))
+      AND (:hasPhone IS NULL
+           OR (:hasPhone = true AND ur.phone IS NOT NULL AND ur.phone <> '')
+           OR (:hasPhone = false AND (ur.phone IS NULL OR ur.phone = '')))
+      AND (:since IS NULL
+           OR (ur.processedAt > :since
+               AND ur.id = (SELECT MAX(r.id) FROM UrlResultEntity r WHERE r.urlEntity = ur.urlEntity)))
+    ORDER BY ur.id
+        """)
+    Stream<UrlResultView> streamResults(@Param("urlId") Long urlId,
+                                        @Param("active") Boolean active,
+                                        @Param("host") String host,
+                                        @Param("statusCode") Integer statusCode,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to,
+                                        @Param("hasEmail") Boolean hasEmail,
+                                        @Param("hasPhone") Boolean hasPhone,
+                                        @Param("since") LocalDateTime since);
 
     @Query("SELECT AVG(ur.responseTime) FROM UrlResultEntity ur WHERE ur.statusCode = 200")
     Double findAverageResponseTime();
@@ -31,4 +115,14 @@ public interface UrlResultRepository extends JpaRepository<UrlResultEntity, Long
     WHERE ur.statusCode = 200 AND ur.urlEntity.active = true
         """)
     long countSuccessfulActiveRequests();
+
+    // Повтор результата: обновляем строку, только если она все еще последняя для URL
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE UrlResultEntity ur SET ur.seenCount = ur.seenCount + 1, ur.lastSeenAt = :seenAt
+    WHERE ur.id = :id
+      AND ur.id = (SELECT MAX(r.id) FROM UrlResultEntity r WHERE r.urlEntity = ur.urlEntity)
+        """)
+    int markSeenAgain(@Param("id") Long id, @Param("seenAt") LocalDateTime seenAt);
 }
@@ -0,0 +1,9 @@
+package com.utmn.chamortsev.urlparser.repository;
+
+import com.utmn.chamortsev.urlparser.entity.UrlStatsEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UrlStatsRepository extends JpaRepository<UrlStatsEntity, Long> {
+}
@@ -0,0 +1,116 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.entity.UrlEntity;
+import com.utmn.chamortsev.urlparser.repository.UrlRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Активные URL для запусков обработки: страницы по id (keyset), каждая читается отдельным коротким
+// запросом без общей транзакции. В памяти одна страница, независимо от размера таблицы
+@Component
+public class ActiveUrlSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ActiveUrlSource.class);
+
+    private final UrlRepository urlRepository;
+    private final int chunkSize;
+    private final int maxPending;
+
+    public ActiveUrlSource(UrlRepository urlRepository, CrawlerProperties crawlerProperties) {
+        this.urlRepository = urlRepository;
+        this.chunkSize = Math.max(1, crawlerProperties.getSource().getChunkSize());
+        this.maxPending = Math.max(1, crawlerProperties.getSource().getMaxPending());
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    // Следующая страница читается после обработки текущей; возвращает число URL
+    public long forEachChunk(Consumer<List<UrlEntity>> consumer) {
+        long afterId = 0;
+        long total = 0;
+        while (true) {
+            List<UrlEntity> chunk = urlRepository.findByActiveTrueAndIdGreaterThanOrderByIdAsc(
+                    afterId, Limit.of(chunkSize));
+            if (chunk.isEmpty()) {
+                return total;
+            }
+            consumer.accept(chunk);
+            total += chunk.size();
+            if (chunk.size() < chunkSize) {
+                return total;
+            }
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+
+    public long forEach(Consumer<UrlEntity> consumer) {
+        return forEachChunk(chunk -> chunk.forEach(consumer));
+    }
+
+    // Подача URL в асинхронную обработку: незавершенных не больше window, поэтому страницы
+    // читаются по мере освобождения окна. Ждет только поток-диспетчер (виртуальный).
+    // Результат - число поданных URL, когда все они обработаны
+    public <T> CompletableFuture<Long> dispatch(String name, int window,
+                                                Function<UrlEntity, CompletableFuture<T>> processor,
+                                                BiConsumer<T, Throwable> onResult) {
+        return dispatch(name, window, this::forEach, processor, onResult);
+    }
+
+    // То же для другого источника URL (например, невыполненные элементы задания обхода)
+    public static <T> CompletableFuture<Long> dispatch(String name, int window,
+                                                       Consumer<Consumer<UrlEntity>> source,
+                                                       Function<UrlEntity, CompletableFuture<T>> processor,
+                                                       BiConsumer<T, Throwable> onResult) {
+        Semaphore permits = new Semaphore(Math.max(1, window));
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        AtomicLong dispatched = new AtomicLong(0);
+        // Незавершенные URL плюс сам диспетчер, пока он подает
+        AtomicLong pending = new AtomicLong(1);
+        Thread.ofVirtual().name(name).start(() -> {
+            try {
+                source.accept(url -> {
+                    permits.acquireUninterruptibly();
+                    dispatched.incrementAndGet();
+                    pending.incrementAndGet();
+                    CompletableFuture<T> future;
+                    try {
+                        future = processor.apply(url);
+                    } catch (RuntimeException e) {
+                        future = CompletableFuture.failedFuture(e);
+                    }
+                    future.whenComplete((result, ex) -> {
+                        permits.release();
+                        try {
+                            onResult.accept(result, ex);
+                        } finally {
+                            if (pending.decrementAndGet() == 0) {
+                                done.complete(dispatched.get());
+                            }
+                        }
+                    });
+                });
+            } catch (RuntimeException e) {
+                // Уже поданные URL дорабатывают, запуск завершится по ним
+                logger.error("Ошибка выборки URL, подано {}: {}", dispatched.get(), e.getMessage());
+            } finally {
+                if (pending.decrementAndGet() == 0) {
+                    done.complete(dispatched.get());
+                }
+            }
+        });
+        return done;
+    }
+}
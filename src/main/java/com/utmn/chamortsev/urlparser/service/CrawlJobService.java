@@ -0,0 +1,409 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.entity.CrawlJobEntity;
+import com.utmn.chamortsev.urlparser.entity.CrawlJobItemEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import com.utmn.chamortsev.urlparser.repository.CrawlJobRepository;
+import com.utmn.chamortsev.urlparser.repository.UrlRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Задания обхода: каждый активный URL - элемент задания в БД. Завершенные элементы копятся в памяти
+// и пишутся контрольной точкой (пачка или интервал) одной транзакцией со счетчиками задания.
+// После перезапуска задание продолжается с невыполненных элементов, а не с начала
+@Service
+public class CrawlJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrawlJobService.class);
+
+    // Ограничение размера IN (...) в одном UPDATE
+    private static final int UPDATE_CHUNK = 1000;
+
+    private final CrawlJobRepository crawlJobRepository;
+    private final UrlRepository urlRepository;
+    private final UrlProcessingService urlProcessingService;
+    private final HostPolitenessScheduler hostScheduler;
+    private final TransactionTemplate transactionTemplate;
+    private final CrawlerProperties.Jobs config;
+    private final int chunkSize;
+    private final int window;
+    private final ScheduledExecutorService checkpointer;
+    private final Timer checkpointTimer;
+
+    private final Map<Long, JobRun> runs = new ConcurrentHashMap<>();
+    private volatile boolean stopping = false;
+
+    public CrawlJobService(CrawlJobRepository crawlJobRepository,
+                           UrlRepository urlRepository,
+                           UrlProcessingService urlProcessingService,
+                           HostPolitenessScheduler hostScheduler,
+                           PlatformTransactionManager transactionManager,
+                           ActiveUrlSource activeUrlSource,
+                           CrawlerProperties crawlerProperties,
+                           MeterRegistry meterRegistry) {
+        this.crawlJobRepository = crawlJobRepository;
+        this.urlRepository = urlRepository;
+        this.urlProcessingService = urlProcessingService;
+        this.hostScheduler = hostScheduler;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = crawlerProperties.getJobs();
+        this.chunkSize = Math.max(1, crawlerProperties.getSource().getChunkSize());
+        this.window = activeUrlSource.getMaxPending();
+        this.checkpointer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("crawl-job-checkpoint").daemon().factory());
+
+        Gauge.builder("crawler.jobs.running", runs, Map::size)
+                .description("Выполняемые задания обхода")
+                .register(meterRegistry);
+        this.checkpointTimer = Timer.builder("crawler.jobs.checkpoint.time")
+                .description("Время записи контрольной точки задания")
+                .register(meterRegistry);
+
+        checkpointer.scheduleWithFixedDelay(this::checkpointAll,
+                config.getCheckpointIntervalMs(), config.getCheckpointIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    // Задания, прерванные остановкой приложения, продолжаются с невыполненных элементов
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        if (!config.isResumeOnStartup()) {
+            return;
+        }
+        for (CrawlJobEntity job : crawlJobRepository.findByStatus(CrawlJobEntity.Status.RUNNING)) {
+            job.setResumeCount(job.getResumeCount() + 1);
+            crawlJobRepository.save(job);
+            logger.info("Продолжаем задание обхода {}: выполнено {} из {}",
+                    job.getId(), job.getDoneItems() + job.getFailedItems(), job.getTotalItems());
+            run(job);
+        }
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        // Подача останавливается, выполненное сохраняется; задания остаются RUNNING до следующего запуска
+        stopping = true;
+        checkpointer.shutdownNow();
+        runs.values().forEach(this::checkpoint);
+    }
+
+    // Новое задание по всем активным URL
+    public CrawlJobEntity startJob() {
+        CrawlJobEntity job = transactionTemplate.execute(status -> {
+            CrawlJobEntity created = crawlJobRepository.save(new CrawlJobEntity());
+            created.setTotalItems(crawlJobRepository.insertItemsForActiveUrls(created.getId(), LocalDateTime.now()));
+            return crawlJobRepository.save(created);
+        });
+        logger.info("Создано задание обхода {} на {} URL", job.getId(), job.getTotalItems());
+        run(job);
+        return job;
+    }
+
+    // Отмена: новые URL не подаются, уже поданные дорабатывают
+    public boolean cancel(Long jobId) {
+        JobRun run = runs.get(jobId);
+        if (run == null) {
+            return false;
+        }
+        run.cancelled = true;
+        logger.info("Задание обхода {} отменяется", jobId);
+        return true;
+    }
+
+    // Продолжение отмененного или прерванного ошибкой задания
+    public synchronized Optional<CrawlJobEntity> resume(Long jobId) {
+        Optional<CrawlJobEntity> found = crawlJobRepository.findById(jobId);
+        found.ifPresent(job -> {
+            if (runs.containsKey(jobId)) {
+                throw new IllegalStateException("Задание уже выполняется");
+            }
+            if (job.getStatus() == CrawlJobEntity.Status.COMPLETED) {
+                throw new IllegalStateException("Задание уже завершено");
+            }
+            job.setStatus(CrawlJobEntity.Status.RUNNING);
+            job.setResumeCount(job.getResumeCount() + 1);
+            job.setFinishedAt(null);
+            job.setErrorMessage(null);
+            run(crawlJobRepository.save(job));
+        });
+        return found;
+    }
+
+    public Optional<Map<String, Object>> getStatus(Long jobId) {
+        return crawlJobRepository.findById(jobId).map(this::toMap);
+    }
+
+    public List<Map<String, Object>> getRecentJobs(int limit) {
+        return crawlJobRepository.findAllByOrderByIdDesc(Limit.of(limit)).stream()
+                .map(this::toMap)
+                .collect(Collectors.toList());
+    }
+
+    public int getRunningCount() {
+        return runs.size();
+    }
+
+    private void run(CrawlJobEntity job) {
+        JobRun run = new JobRun(job);
+        runs.put(job.getId(), run);
+
+        ActiveUrlSource.dispatch("crawl-job-" + job.getId(), window,
+                        consumer -> forEachPending(run, consumer),
+                        processItem(run),
+                        (outcome, ex) -> run.record(outcome))
+                .thenAccept(dispatched -> checkpointer.execute(() -> finish(run, 1)));
+    }
+
+    // Результат обработки URL переводится в состояние элемента; ошибка - тоже результат.
+    // URL, дождавшийся очереди хоста после отмены, не обрабатывается и остается PENDING
+    private Function<UrlEntity, CompletableFuture<Outcome>> processItem(JobRun run) {
+        return url -> {
+            run.inProgress.incrementAndGet();
+            return hostScheduler.submit(url.getUrl(), () -> run.cancelled || stopping
+                            ? CompletableFuture.completedFuture(new Outcome(url.getId(), CrawlJobItemEntity.State.PENDING))
+                            : urlProcessingService.processSingleUrlAsync(url)
+                                    .thenApply(result -> new Outcome(url.getId(), stateOf(result))))
+                    .exceptionally(ex -> new Outcome(url.getId(), CrawlJobItemEntity.State.FAILED));
+        };
+    }
+
+    private static CrawlJobItemEntity.State stateOf(UrlResultEntity result) {
+        return result != null && result.getStatusCode() != null && result.getStatusCode() == 200
+                ? CrawlJobItemEntity.State.DONE : CrawlJobItemEntity.State.FAILED;
+    }
+
+    // Невыполненные элементы страницами; URL, удаленный после создания задания, считается ошибкой
+    private void forEachPending(JobRun run, Consumer<UrlEntity> consumer) {
+        long afterUrlId = 0;
+        while (!run.cancelled && !stopping) {
+            List<Long> urlIds = crawlJobRepository.findItemUrlIds(run.jobId, CrawlJobItemEntity.State.PENDING,
+                    afterUrlId, Limit.of(chunkSize));
+            if (urlIds.isEmpty()) {
+                return;
+            }
+            Map<Long, UrlEntity> urls = urlRepository.findAllById(urlIds).stream()
+                    .collect(Collectors.toMap(UrlEntity::getId, Function.identity()));
+            for (Long urlId : urlIds) {
+                if (run.cancelled || stopping) {
+                    return;
+                }
+                UrlEntity url = urls.get(urlId);
+                if (url != null) {
+                    consumer.accept(url);
+                } else {
+                    run.inProgress.incrementAndGet();
+                    run.record(new Outcome(urlId, CrawlJobItemEntity.State.FAILED));
+                }
+            }
+            if (urlIds.size() < chunkSize) {
+                return;
+            }
+            afterUrlId = urlIds.get(urlIds.size() - 1);
+        }
+    }
+
+    // Вызывается на потоке контрольных точек - не пересекается с checkpoint().
+    // Итог считается по сохраненным счетчикам: если последняя точка не записалась и после повторов,
+    // задание помечается FAILED - несохраненные элементы остались PENDING и выполнятся при resume
+    private void finish(JobRun run, int attempt) {
+        if (stopping) {
+            return;
+        }
+        if (!checkpoint(run) && attempt < config.getFinishRetries()) {
+            try {
+                checkpointer.schedule(() -> finish(run, attempt + 1),
+                        config.getCheckpointIntervalMs(), TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException e) {
+                // Остановка: остаток пишет shutdown()
+                return;
+            }
+        }
+        int unsaved = run.unsaved.size();
+        runs.remove(run.jobId);
+
+        CrawlJobEntity.Status status = null;
+        try {
+            status = transactionTemplate.execute(tx -> crawlJobRepository.findById(run.jobId).map(job -> {
+                long saved = job.getDoneItems() + job.getFailedItems();
+                CrawlJobEntity.Status result;
+                String error = null;
+                if (unsaved > 0) {
+                    result = CrawlJobEntity.Status.FAILED;
+                    error = "Не сохранено результатов: " + unsaved + ", сохранено " + saved + " из " + job.getTotalItems();
+                } else if (saved >= job.getTotalItems()) {
+                    result = CrawlJobEntity.Status.COMPLETED;
+                } else if (run.cancelled) {
+                    result = CrawlJobEntity.Status.CANCELLED;
+                } else {
+                    // Выборка элементов прервалась ошибкой БД; оставшиеся можно продолжить через resume
+                    result = CrawlJobEntity.Status.FAILED;
+                    error = "Обработано " + saved + " из " + job.getTotalItems();
+                }
+                job.setStatus(result);
+                job.setFinishedAt(LocalDateTime.now());
+                job.setErrorMessage(error);
+                return result;
+            }).orElse(null));
+        } catch (Exception e) {
+            // Задание остается RUNNING и продолжится после перезапуска
+            logger.error("Не удалось сохранить итог задания обхода {}: {}", run.jobId, e.getMessage());
+        }
+        logger.info("Задание обхода {} {}: успешно {}, с ошибкой {}, не сохранено {}, за {} с",
+                run.jobId, status, run.done(), run.failed(), unsaved,
+                (System.currentTimeMillis() - run.startedAt) / 1000);
+    }
+
+    private void checkpointAll() {
+        runs.values().forEach(this::checkpoint);
+    }
+
+    // Контрольная точка: состояния завершенных элементов и счетчики задания одной транзакцией.
+    // При ошибке записи элементы возвращаются в буфер до следующей точки; false - если не записалось
+    private boolean checkpoint(JobRun run) {
+        List<Outcome> outcomes = new ArrayList<>();
+        Outcome next;
+        while ((next = run.unsaved.poll()) != null) {
+            outcomes.add(next);
+        }
+        if (outcomes.isEmpty()) {
+            return true;
+        }
+
+        Map<CrawlJobItemEntity.State, List<Long>> byState = outcomes.stream()
+                .collect(Collectors.groupingBy(Outcome::state,
+                        () -> new EnumMap<>(CrawlJobItemEntity.State.class),
+                        Collectors.mapping(Outcome::urlId, Collectors.toList())));
+        List<Long> done = byState.getOrDefault(CrawlJobItemEntity.State.DONE, List.of());
+        List<Long> failed = byState.getOrDefault(CrawlJobItemEntity.State.FAILED, List.of());
+
+        Timer.Sample sample = Timer.start();
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                LocalDateTime now = LocalDateTime.now();
+                byState.forEach((state, urlIds) -> {
+                    for (int from = 0; from < urlIds.size(); from += UPDATE_CHUNK) {
+                        crawlJobRepository.updateItemStates(run.jobId,
+                                urlIds.subList(from, Math.min(urlIds.size(), from + UPDATE_CHUNK)), state, now);
+                    }
+                });
+                crawlJobRepository.addCheckpoint(run.jobId, done.size(), failed.size(), now);
+            });
+            logger.debug("Контрольная точка задания {}: {} элементов", run.jobId, outcomes.size());
+            return true;
+        } catch (Exception e) {
+            logger.warn("Ошибка записи контрольной точки задания {}: {}", run.jobId, e.getMessage());
+            run.unsaved.addAll(outcomes);
+            return false;
+        } finally {
+            sample.stop(checkpointTimer);
+        }
+    }
+
+    private Map<String, Object> toMap(CrawlJobEntity job) {
+        JobRun run = runs.get(job.getId());
+        long done = run != null ? run.done() : job.getDoneItems();
+        long failed = run != null ? run.failed() : job.getFailedItems();
+        long inProgress = run != null ? run.inProgress.get() : 0;
+        long total = job.getTotalItems();
+        long pending = Math.max(0, total - done - failed - inProgress);
+
+        Map<String, Object> states = new LinkedHashMap<>();
+        states.put(CrawlJobItemEntity.State.PENDING.name(), pending);
+        states.put(CrawlJobItemEntity.State.IN_PROGRESS.name(), inProgress);
+        states.put(CrawlJobItemEntity.State.DONE.name(), done);
+        states.put(CrawlJobItemEntity.State.FAILED.name(), failed);
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", job.getId());
+        map.put("status", job.getStatus());
+        map.put("totalItems", total);
+        map.put("states", states);
+        map.put("progressPercent", total > 0 ? String.format("%.1f", (done + failed) * 100.0 / total) : "100.0");
+        map.put("checkpointedItems", job.getDoneItems() + job.getFailedItems());
+        if (run != null) {
+            // Скорость текущего запуска: после продолжения задания прошлые запуски не учитываются
+            double seconds = Math.max(0.001, (System.currentTimeMillis() - run.startedAt) / 1000.0);
+            double throughput = run.processedThisRun.get() / seconds;
+            map.put("urlsPerSecond", String.format("%.2f", throughput));
+            map.put("etaSeconds", throughput > 0 ? Math.round((pending + inProgress) / throughput) : null);
+            map.put("cancelRequested", run.cancelled);
+        }
+        map.put("resumeCount", job.getResumeCount());
+        map.put("createdAt", job.getCreatedAt());
+        map.put("checkpointAt", job.getCheckpointAt());
+        map.put("finishedAt", job.getFinishedAt());
+        map.put("errorMessage", job.getErrorMessage());
+        return map;
+    }
+
+    private record Outcome(long urlId, CrawlJobItemEntity.State state) {
+    }
+
+    // Выполнение задания в этом процессе: счетчики в памяти и буфер до контрольной точки
+    private final class JobRun {
+        private final long jobId;
+        private final long total;
+        private final long startedAt = System.currentTimeMillis();
+        // Выполнено к началу запуска (по контрольной точке)
+        private final long initialDone;
+        private final long initialFailed;
+        private final AtomicLong done = new AtomicLong(0);
+        private final AtomicLong failed = new AtomicLong(0);
+        private final AtomicLong inProgress = new AtomicLong(0);
+        private final AtomicLong processedThisRun = new AtomicLong(0);
+        private final Queue<Outcome> unsaved = new ConcurrentLinkedQueue<>();
+        private volatile boolean cancelled = false;
+
+        JobRun(CrawlJobEntity job) {
+            this.jobId = job.getId();
+            this.total = job.getTotalItems();
+            this.initialDone = job.getDoneItems();
+            this.initialFailed = job.getFailedItems();
+        }
+
+        void record(Outcome outcome) {
+            inProgress.decrementAndGet();
+            if (outcome == null || outcome.state() == CrawlJobItemEntity.State.PENDING) {
+                return;
+            }
+            (outcome.state() == CrawlJobItemEntity.State.DONE ? done : failed).incrementAndGet();
+            unsaved.add(outcome);
+            // Полная пачка пишется сразу, не дожидаясь интервала
+            if (processedThisRun.incrementAndGet() % Math.max(1, config.getCheckpointBatch()) == 0) {
+                try {
+                    checkpointer.execute(() -> checkpoint(this));
+                } catch (RejectedExecutionException e) {
+                    // Остановка: остаток пишет shutdown()
+                }
+            }
+        }
+
+        long done() {
+            return initialDone + done.get();
+        }
+
+        long failed() {
+            return initialFailed + failed.get();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Распаковка gzip/deflate по мере поступления тела: нижестоящий подписчик получает уже
+// распакованные байты. Распакованный объем ограничен (защита от zip-бомб) - при превышении
+// тело обрезается по лимиту, остаток не загружается
+class DecodingBodySubscriber<T> implements HttpResponse.BodySubscriber<T> {
+
+    enum Encoding {
+        IDENTITY, GZIP, DEFLATE;
+
+        // Неизвестные кодировки не запрашиваются в Accept-Encoding - читаем как есть
+        static Encoding of(HttpHeaders headers) {
+            String value = headers.firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+            return switch (value) {
+                case "gzip", "x-gzip" -> GZIP;
+                case "deflate" -> DEFLATE;
+                default -> IDENTITY;
+            };
+        }
+    }
+
+    private static final int OUTPUT_CHUNK = 16 * 1024;
+    // Заголовок gzip без необязательных полей
+    private static final int GZIP_MIN_HEADER = 10;
+    private static final int FHCRC = 0x02, FEXTRA = 0x04, FNAME = 0x08, FCOMMENT = 0x10;
+
+    private final HttpResponse.BodySubscriber<T> downstream;
+    private final Encoding encoding;
+    private final long maxDecodedBytes;
+    private final Counter wireBytes;
+    private final Counter decodedBytes;
+    private final Runnable onCapped;
+
+    private Flow.Subscription upstream;
+    private Inflater inflater;
+    // Начало тела до разбора заголовка gzip/zlib
+    private ByteBuffer prefix = ByteBuffer.allocate(0);
+    private long decoded = 0;
+    private boolean done = false;
+    private volatile boolean cancelled = false;
+
+    DecodingBodySubscriber(HttpResponse.BodySubscriber<T> downstream, Encoding encoding, long maxDecodedBytes,
+                           Counter wireBytes, Counter decodedBytes, Runnable onCapped) {
+        this.downstream = downstream;
+        this.encoding = encoding;
+        this.maxDecodedBytes = maxDecodedBytes;
+        this.wireBytes = wireBytes;
+        this.decodedBytes = decodedBytes;
+        this.onCapped = onCapped;
+    }
+
+    @Override
+    public CompletionStage<T> getBody() {
+        return downstream.getBody();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.upstream = subscription;
+        downstream.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                upstream.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                upstream.cancel();
+            }
+        });
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        if (done || cancelled) {
+            return;
+        }
+        try {
+            List<ByteBuffer> output = new ArrayList<>(items.size());
+            boolean capped = false;
+            for (ByteBuffer item : items) {
+                wireBytes.increment(item.remaining());
+                capped = encoding == Encoding.IDENTITY ? passThrough(item, output) : inflate(item, output);
+                if (capped) {
+                    break;
+                }
+            }
+
+            if (capped) {
+                upstream.cancel();
+                onCapped.run();
+                deliver(output);
+                complete();
+            } else if (output.isEmpty()) {
+                // Нижестоящий подписчик ничего не получил - запрашиваем следующую часть сами
+                upstream.request(1);
+            } else {
+                deliver(output);
+            }
+            if (cancelled) {
+                // Нижестоящий подписчик остановил чтение (найдены все контакты)
+                release();
+            }
+        } catch (IOException | DataFormatException e) {
+            upstream.cancel();
+            onError(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (done) {
+            return;
+        }
+        done = true;
+        release();
+        downstream.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        // Обрезанный поток сжатых данных отдаем как есть, без ошибки
+        complete();
+    }
+
+    private void complete() {
+        if (done) {
+            return;
+        }
+        done = true;
+        release();
+        if (!cancelled) {
+            downstream.onComplete();
+        }
+    }
+
+    private void deliver(List<ByteBuffer> output) {
+        if (!output.isEmpty() && !cancelled) {
+            downstream.onNext(output);
+        }
+    }
+
+    // true - достигнут лимит
+    private boolean passThrough(ByteBuffer item, List<ByteBuffer> output) {
+        long allowed = maxDecodedBytes - decoded;
+        boolean capped = item.remaining() > allowed;
+        if (capped) {
+            item.limit(item.position() + (int) allowed);
+        }
+        decoded += item.remaining();
+        decodedBytes.increment(item.remaining());
+        output.add(item);
+        return capped;
+    }
+
+    // true - достигнут лимит
+    private boolean inflate(ByteBuffer item, List<ByteBuffer> output) throws IOException, DataFormatException {
+        if (inflater == null) {
+            ByteBuffer input = append(prefix, item);
+            if (!startInflater(input)) {
+                // Буферы тела после onNext не сохраняем - копируем начало
+                prefix = ByteBuffer.allocate(input.remaining()).put(input).flip();
+                return false;
+            }
+            prefix = null;
+            item = input;
+        }
+        if (inflater.finished()) {
+            // Хвост gzip (CRC32, размер) и возможные следующие члены не читаем
+            return false;
+        }
+
+        inflater.setInput(item);
+        while (!inflater.finished() && !inflater.needsInput()) {
+            byte[] chunk = new byte[OUTPUT_CHUNK];
+            int n = inflater.inflate(chunk);
+            if (n == 0) {
+                if (inflater.needsDictionary()) {
+                    throw new IOException("Сжатый поток требует словарь");
+                }
+                continue;
+            }
+            long allowed = maxDecodedBytes - decoded;
+            int accepted = (int) Math.min(n, allowed);
+            decoded += accepted;
+            decodedBytes.increment(accepted);
+            output.add(ByteBuffer.wrap(chunk, 0, accepted));
+            if (accepted < n || decoded >= maxDecodedBytes && !inflater.finished()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Разбирает заголовок; false - данных пока недостаточно
+    private boolean startInflater(ByteBuffer input) throws IOException {
+        if (encoding == Encoding.GZIP) {
+            int headerLength = gzipHeaderLength(input);
+            if (headerLength < 0) {
+                return false;
+            }
+            input.position(input.position() + headerLength);
+            inflater = new Inflater(true);
+            return true;
+        }
+        if (input.remaining() < 2) {
+            return false;
+        }
+        // "deflate" в HTTP - поток zlib, но часть серверов присылает голый deflate
+        int cmf = input.get(input.position()) & 0xff;
+        int flg = input.get(input.position() + 1) & 0xff;
+        boolean zlib = (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+        inflater = new Inflater(!zlib);
+        return true;
+    }
+
+    // Длина заголовка gzip (RFC 1952) или -1, если он еще не получен целиком
+    static int gzipHeaderLength(ByteBuffer input) throws IOException {
+        int start = input.position();
+        int limit = input.limit();
+        if (limit - start < GZIP_MIN_HEADER) {
+            return -1;
+        }
+        if ((input.get(start) & 0xff) != 0x1f || (input.get(start + 1) & 0xff) != 0x8b || input.get(start + 2) != 8) {
+            throw new IOException("Некорректный заголовок gzip");
+        }
+        int flags = input.get(start + 3) & 0xff;
+        int pos = start + GZIP_MIN_HEADER;
+        if ((flags & FEXTRA) != 0) {
+            if (limit - pos < 2) {
+                return -1;
+            }
+            pos += 2 + ((input.get(pos) & 0xff) | (input.get(pos + 1) & 0xff) << 8);
+        }
+        for (int flag : new int[]{FNAME, FCOMMENT}) {
+            if ((flags & flag) != 0) {
+                while (pos < limit && input.get(pos) != 0) {
+                    pos++;
+                }
+                if (pos >= limit) {
+                    return -1;
+                }
+                pos++;
+            }
+        }
+        if ((flags & FHCRC) != 0) {
+            pos += 2;
+        }
+        return pos <= limit ? pos - start : -1;
+    }
+
+    private static ByteBuffer append(ByteBuffer prefix, ByteBuffer item) {
+        if (!prefix.hasRemaining()) {
+            return item;
+        }
+        ByteBuffer joined = ByteBuffer.allocate(prefix.remaining() + item.remaining());
+        joined.put(prefix).put(item).flip();
+        return joined;
+    }
+
+    private void release() {
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+}
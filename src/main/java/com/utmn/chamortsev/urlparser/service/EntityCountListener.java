@@ -0,0 +1,81 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.entity.UrlEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+// JPA-слушатель для UrlEntity и UrlResultEntity: переносит вставки, удаления и смену active
+// в EntityCountTracker после коммита, чтобы откаченные транзакции не сбивали счетчики
+@Component
+public class EntityCountListener {
+
+    // Через ObjectProvider: слушатель создается вместе с EntityManagerFactory, раньше репозиториев
+    private final ObjectProvider<EntityCountTracker> tracker;
+
+    public EntityCountListener(ObjectProvider<EntityCountTracker> tracker) {
+        this.tracker = tracker;
+    }
+
+    @PostLoad
+    public void onLoad(Object entity) {
+        if (entity instanceof UrlEntity url) {
+            url.setLoadedActive(url.isActive());
+        }
+    }
+
+    @PostPersist
+    public void onPersist(Object entity) {
+        if (entity instanceof UrlEntity url) {
+            boolean active = url.isActive();
+            url.setLoadedActive(active);
+            afterCommit(t -> t.urlAdded(active));
+        } else if (entity instanceof UrlResultEntity) {
+            afterCommit(EntityCountTracker::resultAdded);
+        }
+    }
+
+    @PostUpdate
+    public void onUpdate(Object entity) {
+        if (entity instanceof UrlEntity url && url.isActive() != url.isLoadedActive()) {
+            boolean active = url.isActive();
+            url.setLoadedActive(active);
+            afterCommit(t -> t.urlActiveChanged(active));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        if (entity instanceof UrlEntity url) {
+            boolean active = url.isLoadedActive();
+            afterCommit(t -> t.urlRemoved(active));
+        } else if (entity instanceof UrlResultEntity) {
+            afterCommit(EntityCountTracker::resultRemoved);
+        }
+    }
+
+    private void afterCommit(Consumer<EntityCountTracker> update) {
+        EntityCountTracker countTracker = tracker.getIfAvailable();
+        if (countTracker == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.accept(countTracker);
+                }
+            });
+        } else {
+            update.accept(countTracker);
+        }
+    }
+}
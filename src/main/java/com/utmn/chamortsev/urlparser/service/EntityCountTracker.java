@@ -0,0 +1,122 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.repository.UrlRepository;
+import com.utmn.chamortsev.urlparser.repository.UrlResultRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Счетчики строк для метрик: обновляются событиями сущностей (EntityCountListener),
+// поэтому метрики не делают COUNT(*) ни на каждый URL, ни на каждый опрос Prometheus.
+// Изменения в обход JPA (data.sql, массовые запросы) поправляет периодическая сверка.
+@Component
+public class EntityCountTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(EntityCountTracker.class);
+
+    private final UrlRepository urlRepository;
+    private final UrlResultRepository urlResultRepository;
+    private final long reconcileIntervalMs;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong totalUrls = new AtomicLong(0);
+    private final AtomicLong activeUrls = new AtomicLong(0);
+    private final AtomicLong totalResults = new AtomicLong(0);
+
+    public EntityCountTracker(UrlRepository urlRepository,
+                              UrlResultRepository urlResultRepository,
+                              CrawlerProperties crawlerProperties) {
+        this.urlRepository = urlRepository;
+        this.urlResultRepository = urlResultRepository;
+        this.reconcileIntervalMs = crawlerProperties.getMetrics().getReconcileIntervalMs();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("count-reconciler").daemon().factory());
+    }
+
+    // Первая сверка - после data.sql, дальше по расписанию
+    @EventListener(ApplicationReadyEvent.class)
+    public void startReconciliation() {
+        scheduler.scheduleWithFixedDelay(this::reconcile, 0, reconcileIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public void reconcile() {
+        try {
+            long urls = urlRepository.count();
+            long active = urlRepository.countActiveUrls();
+            long results = urlResultRepository.count();
+
+            long urlsDrift = urls - totalUrls.getAndSet(urls);
+            long activeDrift = active - activeUrls.getAndSet(active);
+            long resultsDrift = results - totalResults.getAndSet(results);
+            if (urlsDrift != 0 || activeDrift != 0 || resultsDrift != 0) {
+                logger.debug("Сверка счетчиков: urls {}, active {}, results {}", urlsDrift, activeDrift, resultsDrift);
+            }
+        } catch (Exception e) {
+            logger.warn("Ошибка сверки счетчиков: {}", e.getMessage());
+        }
+    }
+
+    void urlAdded(boolean active) {
+        totalUrls.incrementAndGet();
+        if (active) {
+            activeUrls.incrementAndGet();
+        }
+    }
+
+    // Вставка пачкой в обход JPA (UrlImportService)
+    void urlsAdded(long count, boolean active) {
+        totalUrls.addAndGet(count);
+        if (active) {
+            activeUrls.addAndGet(count);
+        }
+    }
+
+    void urlRemoved(boolean active) {
+        totalUrls.decrementAndGet();
+        if (active) {
+            activeUrls.decrementAndGet();
+        }
+    }
+
+    void urlActiveChanged(boolean active) {
+        if (active) {
+            activeUrls.incrementAndGet();
+        } else {
+            activeUrls.decrementAndGet();
+        }
+    }
+
+    void resultAdded() {
+        totalResults.incrementAndGet();
+    }
+
+    void resultRemoved() {
+        totalResults.decrementAndGet();
+    }
+
+    public long getTotalUrls() {
+        return totalUrls.get();
+    }
+
+    public long getActiveUrls() {
+        return activeUrls.get();
+    }
+
+    public long getTotalResults() {
+        return totalResults.get();
+    }
+}
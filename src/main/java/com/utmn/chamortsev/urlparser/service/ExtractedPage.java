@@ -0,0 +1,9 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import java.util.Map;
+
+// Результат потокового чтения тела: контакты, сколько байт прочитано/пропущено
+// и отпечаток прочитанной части (при ранней остановке контакты зависят только от нее)
+record ExtractedPage(Map<String, String> contacts, long bytesRead, long bytesSkipped,
+                     boolean truncated, boolean stoppedEarly, long contentHash) {
+}
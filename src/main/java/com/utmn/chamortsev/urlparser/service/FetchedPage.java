@@ -0,0 +1,16 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import java.util.Map;
+
+// Загруженная страница после извлечения контактов. previousResultId - содержимое не изменилось
+// (304 или тот же отпечаток), контакты взяты из этого результата
+record FetchedPage(int statusCode, Map<String, String> contacts, Long previousResultId) {
+
+    FetchedPage(int statusCode, Map<String, String> contacts) {
+        this(statusCode, contacts, null);
+    }
+
+    boolean notModified() {
+        return previousResultId != null;
+    }
+}
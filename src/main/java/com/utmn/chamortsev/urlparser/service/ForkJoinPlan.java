@@ -0,0 +1,49 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Параметры одного ForkJoin запуска. Порог разбиения подбирается так, чтобы листовых задач
+// хватало на все одновременные загрузки и лист при этом не работал дольше targetLeafMs
+record ForkJoinPlan(int urlCount,
+                    int parallelism,
+                    int maxConcurrentFetches,
+                    boolean managedBlocking,
+                    double observedLatencyMs,
+                    int splitThreshold) {
+
+    // Листовых задач на одну одновременную загрузку - запас для work stealing
+    static final int LEAVES_PER_FETCH = 2;
+
+    static ForkJoinPlan of(int urlCount, int parallelism, double observedLatencyMs,
+                           CrawlerProperties.ForkJoin config) {
+        // Без ManagedBlocker одновременно загружается не больше URL, чем потоков в пуле
+        int maxConcurrentFetches = config.isManagedBlocking()
+                ? parallelism + config.getMaxBlockedWorkers() : parallelism;
+
+        int byPool = Math.max(1, urlCount / (maxConcurrentFetches * LEAVES_PER_FETCH));
+        // Пока задержка не измерена, порог определяется только размером пула
+        int byLatency = observedLatencyMs > 0
+                ? (int) Math.max(1, config.getTargetLeafMs() / observedLatencyMs) : byPool;
+
+        int threshold = Math.min(byPool, byLatency);
+        threshold = Math.max(config.getMinSplitThreshold(), Math.min(config.getMaxSplitThreshold(), threshold));
+
+        return new ForkJoinPlan(urlCount, parallelism, maxConcurrentFetches,
+                config.isManagedBlocking(), observedLatencyMs, threshold);
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("parallelism", parallelism);
+        map.put("managedBlocking", managedBlocking);
+        map.put("maxConcurrentFetches", maxConcurrentFetches);
+        map.put("observedLatencyMs", observedLatencyMs > 0
+                ? String.format("%.2f", observedLatencyMs) : "N/A");
+        map.put("splitThreshold", splitThreshold);
+        map.put("estimatedLeafTasks", (urlCount + splitThreshold - 1) / splitThreshold);
+        return map;
+    }
+}
@@ -0,0 +1,111 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Агрегат ForkJoin обработки на примитивных полях: слияние двух поддеревьев - O(1),
+// размер не зависит от числа URL
+final class ForkJoinStats {
+
+    // Верхние границы корзин гистограммы времени ответа, мс; последняя корзина - все остальное
+    static final long[] RESPONSE_TIME_BOUNDS = {100, 250, 500, 1000, 2500, 5000, 10000};
+
+    int batches;
+    int processed;
+    int success;
+    int failed;
+    int emailsFound;
+    int phonesFound;
+    int addressesFound;
+    long totalResponseTime;
+    long minResponseTime = Long.MAX_VALUE;
+    long maxResponseTime = Long.MIN_VALUE;
+    final long[] histogram = new long[RESPONSE_TIME_BOUNDS.length + 1];
+
+    void record(Map<String, Object> result) {
+        processed++;
+        if (Boolean.TRUE.equals(result.get("success"))) {
+            success++;
+        } else {
+            failed++;
+        }
+
+        Object responseTime = result.get("responseTime");
+        if (responseTime instanceof Long time) {
+            recordResponseTime(time);
+        }
+
+        if (isPresent(result.get("email"))) {
+            emailsFound++;
+        }
+        if (isPresent(result.get("phone"))) {
+            phonesFound++;
+        }
+        if (isPresent(result.get("address"))) {
+            addressesFound++;
+        }
+    }
+
+    void recordFailure() {
+        processed++;
+        failed++;
+    }
+
+    private void recordResponseTime(long time) {
+        totalResponseTime += time;
+        minResponseTime = Math.min(minResponseTime, time);
+        maxResponseTime = Math.max(maxResponseTime, time);
+
+        int bucket = 0;
+        while (bucket < RESPONSE_TIME_BOUNDS.length && time >= RESPONSE_TIME_BOUNDS[bucket]) {
+            bucket++;
+        }
+        histogram[bucket]++;
+    }
+
+    // Сливает other в this и возвращает this
+    ForkJoinStats merge(ForkJoinStats other) {
+        batches += other.batches;
+        processed += other.processed;
+        success += other.success;
+        failed += other.failed;
+        emailsFound += other.emailsFound;
+        phonesFound += other.phonesFound;
+        addressesFound += other.addressesFound;
+        totalResponseTime += other.totalResponseTime;
+        minResponseTime = Math.min(minResponseTime, other.minResponseTime);
+        maxResponseTime = Math.max(maxResponseTime, other.maxResponseTime);
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] += other.histogram[i];
+        }
+        return this;
+    }
+
+    boolean hasResponseTimes() {
+        return maxResponseTime != Long.MIN_VALUE;
+    }
+
+    // Среднее по всем URL с измеренным временем ответа, в том числе неуспешным
+    double averageResponseTime() {
+        long timed = 0;
+        for (long count : histogram) {
+            timed += count;
+        }
+        return timed > 0 ? totalResponseTime * 1.0 / timed : 0;
+    }
+
+    Map<String, Long> histogramToMap() {
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        long lower = 0;
+        for (int i = 0; i < RESPONSE_TIME_BOUNDS.length; i++) {
+            buckets.put(lower + "-" + RESPONSE_TIME_BOUNDS[i] + "ms", histogram[i]);
+            lower = RESPONSE_TIME_BOUNDS[i];
+        }
+        buckets.put(">=" + lower + "ms", histogram[RESPONSE_TIME_BOUNDS.length]);
+        return buckets;
+    }
+
+    private static boolean isPresent(Object value) {
+        return value instanceof String s && !s.isEmpty();
+    }
+}
@@ -0,0 +1,275 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Размыкатель цепи на хост: после серии ошибок запросы к хосту не отправляются (даже сокет не открывается),
+// пока не истечет пауза; затем один пробный запрос решает, замкнуть цепь или продлить паузу
+@Component
+public class HostCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(HostCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long openMs;
+    private final long maxOpenMs;
+    private final long hostIdleMs;
+
+    private final Map<String, HostCircuit> circuits = new ConcurrentHashMap<>();
+    private final AtomicLong lastEvictionAt = new AtomicLong(System.currentTimeMillis());
+
+    public HostCircuitBreaker(MeterRegistry meterRegistry, CrawlerProperties crawlerProperties) {
+        CrawlerProperties.CircuitBreaker config = crawlerProperties.getCircuitBreaker();
+        this.meterRegistry = meterRegistry;
+        this.enabled = config.isEnabled();
+        this.failureThreshold = Math.max(1, config.getFailureThreshold());
+        this.openMs = config.getOpenMs();
+        this.maxOpenMs = Math.max(config.getOpenMs(), config.getMaxOpenMs());
+        this.hostIdleMs = config.getHostIdleMs();
+
+        logger.info("HostCircuitBreaker: enabled={}, порог {} ошибок, пауза {}-{} мс",
+                enabled, failureThreshold, openMs, maxOpenMs);
+    }
+
+    // Разрешение на запрос к хосту; при разомкнутой цепи - исключение без обращения к сети
+    public void acquire(String host) throws CircuitOpenException {
+        if (!enabled) {
+            return;
+        }
+        HostCircuit circuit = circuitOf(host);
+        synchronized (circuit) {
+            long now = System.currentTimeMillis();
+            circuit.lastActiveAt = now;
+            if (circuit.state == State.OPEN && now >= circuit.retryAt) {
+                transition(circuit, State.HALF_OPEN);
+            }
+            if (circuit.state == State.CLOSED) {
+                return;
+            }
+            if (circuit.state == State.HALF_OPEN && !circuit.probeInFlight) {
+                circuit.probeInFlight = true;
+                return;
+            }
+            circuit.rejected.increment();
+            throw new CircuitOpenException(host, circuit.state == State.OPEN ? circuit.retryAt : now);
+        }
+    }
+
+    // Ответ получен: 5xx считается ошибкой хоста, остальные статусы - успехом
+    public void onResponse(String host, int statusCode) {
+        if (statusCode >= 500) {
+            onFailure(host, "HTTP " + statusCode);
+        } else {
+            onSuccess(host);
+        }
+    }
+
+    public void onSuccess(String host) {
+        if (!enabled) {
+            return;
+        }
+        HostCircuit circuit = circuitOf(host);
+        synchronized (circuit) {
+            circuit.lastActiveAt = System.currentTimeMillis();
+            circuit.consecutiveFailures = 0;
+            if (circuit.state == State.HALF_OPEN) {
+                circuit.probeInFlight = false;
+                circuit.openMs = openMs;
+                transition(circuit, State.CLOSED);
+            }
+        }
+    }
+
+    public void onFailure(String host, String error) {
+        if (!enabled) {
+            return;
+        }
+        HostCircuit circuit = circuitOf(host);
+        synchronized (circuit) {
+            circuit.lastActiveAt = System.currentTimeMillis();
+            circuit.lastError = error;
+            circuit.consecutiveFailures++;
+            if (circuit.state == State.HALF_OPEN) {
+                // Проба не удалась - пауза вдвое длиннее
+                circuit.probeInFlight = false;
+                open(circuit, Math.min(maxOpenMs, circuit.openMs * 2));
+            } else if (circuit.state == State.CLOSED && circuit.consecutiveFailures >= failureThreshold) {
+                open(circuit, openMs);
+            }
+        }
+    }
+
+    // Запрос прерван не по вине хоста - пробный слот освобождается без решения
+    public void release(String host) {
+        if (!enabled) {
+            return;
+        }
+        HostCircuit circuit = circuitOf(host);
+        synchronized (circuit) {
+            circuit.probeInFlight = false;
+        }
+    }
+
+    public boolean reset(String host) {
+        HostCircuit circuit = circuits.get(host);
+        if (circuit == null) {
+            return false;
+        }
+        synchronized (circuit) {
+            circuit.consecutiveFailures = 0;
+            circuit.probeInFlight = false;
+            circuit.openMs = openMs;
+            transition(circuit, State.CLOSED);
+        }
+        logger.info("Цепь хоста {} замкнута вручную", host);
+        return true;
+    }
+
+    public Map<String, Object> snapshot(String host) {
+        HostCircuit circuit = circuits.get(host);
+        return circuit != null ? toMap(circuit) : null;
+    }
+
+    // Сначала разомкнутые хосты, затем по числу отклоненных запросов
+    public List<Map<String, Object>> snapshot() {
+        List<HostCircuit> sorted = new ArrayList<>(circuits.values());
+        sorted.sort(Comparator.comparing((HostCircuit c) -> c.state).reversed()
+                .thenComparing(c -> -c.rejected.count()));
+        List<Map<String, Object>> result = new ArrayList<>(sorted.size());
+        for (HostCircuit circuit : sorted) {
+            result.add(toMap(circuit));
+        }
+        return result;
+    }
+
+    private Map<String, Object> toMap(HostCircuit circuit) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        synchronized (circuit) {
+            map.put("host", circuit.host);
+            map.put("state", circuit.state);
+            map.put("consecutiveFailures", circuit.consecutiveFailures);
+            map.put("lastError", circuit.lastError);
+            map.put("openedCount", (long) circuit.opened.count());
+            map.put("rejectedRequests", (long) circuit.rejected.count());
+            if (circuit.state == State.OPEN) {
+                map.put("retryAt", new Date(circuit.retryAt));
+            }
+            map.put("stateChangedAt", new Date(circuit.stateChangedAt));
+        }
+        return map;
+    }
+
+    private void open(HostCircuit circuit, long pauseMs) {
+        circuit.openMs = pauseMs;
+        circuit.retryAt = System.currentTimeMillis() + pauseMs;
+        circuit.opened.increment();
+        transition(circuit, State.OPEN);
+        logger.warn("Цепь хоста {} разомкнута на {} мс после {} ошибок подряд: {}",
+                circuit.host, pauseMs, circuit.consecutiveFailures, circuit.lastError);
+    }
+
+    private void transition(HostCircuit circuit, State state) {
+        if (circuit.state != state) {
+            circuit.state = state;
+            circuit.stateChangedAt = System.currentTimeMillis();
+        }
+    }
+
+    private HostCircuit circuitOf(String host) {
+        HostCircuit circuit = circuits.get(host);
+        if (circuit != null) {
+            return circuit;
+        }
+        evictIdleCircuits();
+        return circuits.computeIfAbsent(host, this::newCircuit);
+    }
+
+    // Число цепей растет только при появлении нового хоста, поэтому проверка - там же и не чаще четверти
+    // периода простоя. Разомкнутые и пробные цепи не удаляются: их пауза защищает хост
+    private void evictIdleCircuits() {
+        long now = System.currentTimeMillis();
+        long last = lastEvictionAt.get();
+        if (now - last < hostIdleMs / 4 || !lastEvictionAt.compareAndSet(last, now)) {
+            return;
+        }
+        int evicted = 0;
+        for (HostCircuit circuit : circuits.values()) {
+            synchronized (circuit) {
+                if (circuit.state != State.CLOSED || circuit.probeInFlight
+                        || now - circuit.lastActiveAt < hostIdleMs) {
+                    continue;
+                }
+                // Сначала метрики: новая цепь этого хоста зарегистрирует свои, а не получит удаляемые
+                circuit.meters.forEach(meterRegistry::remove);
+                circuits.remove(circuit.host, circuit);
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logger.debug("Удалено простаивающих цепей хостов: {}, осталось {}", evicted, circuits.size());
+        }
+    }
+
+    private HostCircuit newCircuit(String host) {
+        HostCircuit circuit = new HostCircuit(host);
+        circuit.openMs = openMs;
+        circuit.meters.add(Gauge.builder("crawler.host.circuit.state", circuit, c -> c.state.ordinal())
+                .description("Состояние цепи хоста: 0 - замкнута, 1 - проба, 2 - разомкнута")
+                .tags("host", host)
+                .register(meterRegistry));
+        circuit.opened = Counter.builder("crawler.host.circuit.opened")
+                .description("Размыкания цепи хоста")
+                .tags("host", host)
+                .register(meterRegistry);
+        circuit.rejected = Counter.builder("crawler.host.circuit.rejected")
+                .description("Запросы, отклоненные без обращения к хосту")
+                .tags("host", host)
+                .register(meterRegistry);
+        circuit.meters.add(circuit.opened);
+        circuit.meters.add(circuit.rejected);
+        return circuit;
+    }
+
+    public static class CircuitOpenException extends IOException {
+        CircuitOpenException(String host, long retryAt) {
+            super("Цепь хоста " + host + " разомкнута до " + new Date(retryAt));
+        }
+    }
+
+    private static final class HostCircuit {
+        private final String host;
+        private final List<Meter> meters = new ArrayList<>(3);
+        // Читается метрикой без блокировки
+        private volatile State state = State.CLOSED;
+        private long stateChangedAt = System.currentTimeMillis();
+        private int consecutiveFailures = 0;
+        private long openMs;
+        private long retryAt = 0;
+        private boolean probeInFlight = false;
+        private String lastError;
+        private long lastActiveAt = System.currentTimeMillis();
+        private Counter opened;
+        private Counter rejected;
+
+        HostCircuit(String host) {
+            this.host = host;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.core.LatencyHistogram;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Задержки хостов (время до заголовков ответа) и таймаут запроса по ним: перцентиль * множитель
+// в заданных границах. Быстрый хост, который иногда зависает, не держит поток 10 с,
+// а медленный, но рабочий хост не обрывается на общем таймауте
+@Component
+public class HostLatencyTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(HostLatencyTracker.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean adaptive;
+    private final double percentile;
+    private final double multiplier;
+    private final long minMs;
+    private final long maxMs;
+    private final long defaultMs;
+    private final int minSamples;
+    private final int window;
+    private final long hostIdleMs;
+
+    private final Map<String, HostLatency> hosts = new ConcurrentHashMap<>();
+    private final AtomicLong lastEvictionAt = new AtomicLong(System.currentTimeMillis());
+
+    public HostLatencyTracker(MeterRegistry meterRegistry, CrawlerProperties crawlerProperties) {
+        CrawlerProperties.Timeouts config = crawlerProperties.getTimeouts();
+        this.meterRegistry = meterRegistry;
+        this.adaptive = config.isAdaptive();
+        this.percentile = config.getPercentile();
+        this.multiplier = config.getMultiplier();
+        this.minMs = config.getMinMs();
+        this.maxMs = Math.max(config.getMinMs(), config.getMaxMs());
+        this.defaultMs = config.getDefaultMs();
+        this.window = Math.max(2, config.getWindow());
+        this.hostIdleMs = config.getHostIdleMs();
+        // После уменьшения окна вдвое наблюдений должно хватать для расчета
+        this.minSamples = Math.min(Math.max(1, config.getMinSamples()), window / 2);
+
+        logger.info("HostLatencyTracker: adaptive={}, таймаут p{} * {} в границах {}-{} мс, по умолчанию {} мс",
+                adaptive, percentile * 100, multiplier, minMs, maxMs, defaultMs);
+    }
+
+    public Duration timeoutFor(String host) {
+        return Duration.ofMillis(timeoutMillis(host));
+    }
+
+    public long timeoutMillis(String host) {
+        if (!adaptive) {
+            return defaultMs;
+        }
+        HostLatency latency = hosts.get(host);
+        return latency != null ? latency.timeoutMs : defaultMs;
+    }
+
+    // Получены заголовки ответа
+    public void record(String host, long millis) {
+        hostLatency(host).record(millis);
+    }
+
+    // Таймаут: задержка не меньше примененного таймаута. Учитывается как наблюдение,
+    // чтобы медленный хост постепенно получал больший таймаут, а не обрывался каждый раз
+    public void recordTimeout(String host) {
+        HostLatency latency = hostLatency(host);
+        latency.record(latency.timeoutMs);
+    }
+
+    public Map<String, Object> snapshot(String host) {
+        HostLatency latency = hosts.get(host);
+        Map<String, Object> map = new LinkedHashMap<>();
+        if (latency == null) {
+            map.put("timeoutMs", timeoutMillis(host));
+            return map;
+        }
+        synchronized (latency) {
+            map.put("timeoutMs", timeoutMillis(host));
+            map.put("latencySamples", latency.histogram.count());
+            map.put("latencyP50Ms", latency.histogram.percentile(0.5));
+            map.put("latencyP99Ms", latency.histogram.percentile(0.99));
+            map.put("timeoutAdaptive", adaptive && latency.histogram.count() >= minSamples);
+        }
+        return map;
+    }
+
+    private HostLatency hostLatency(String host) {
+        HostLatency latency = hosts.get(host);
+        if (latency != null) {
+            return latency;
+        }
+        evictIdleHosts();
+        return hosts.computeIfAbsent(host, this::newHostLatency);
+    }
+
+    private HostLatency newHostLatency(String host) {
+        HostLatency latency = new HostLatency(host, new LatencyHistogram(window), defaultMs);
+        latency.gauge = Gauge.builder("crawler.host.timeout", latency, l -> adaptive ? l.timeoutMs : defaultMs)
+                .description("Таймаут ответа хоста, мс")
+                .tags("host", host)
+                .register(meterRegistry);
+        return latency;
+    }
+
+    // Число хостов растет только при появлении нового, поэтому проверка - там же и не чаще четверти
+    // периода простоя. Забытый хост снова получает таймаут по умолчанию, пока не наберет наблюдений
+    private void evictIdleHosts() {
+        long now = System.currentTimeMillis();
+        long last = lastEvictionAt.get();
+        if (now - last < hostIdleMs / 4 || !lastEvictionAt.compareAndSet(last, now)) {
+            return;
+        }
+        int evicted = 0;
+        for (HostLatency latency : hosts.values()) {
+            if (now - latency.lastRecordedAt >= hostIdleMs) {
+                // Сначала метрика: новая запись этого хоста зарегистрирует свою, а не получит удаляемую
+                meterRegistry.remove(latency.gauge);
+                hosts.remove(latency.host, latency);
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logger.debug("Удалено простаивающих хостов: {}, осталось {}", evicted, hosts.size());
+        }
+    }
+
+    private final class HostLatency {
+        private final String host;
+        private final LatencyHistogram histogram;
+        // Пересчитывается при записи - запросы читают готовое значение без блокировки
+        private volatile long timeoutMs;
+        private volatile long lastRecordedAt = System.currentTimeMillis();
+        private Gauge gauge;
+
+        HostLatency(String host, LatencyHistogram histogram, long timeoutMs) {
+            this.host = host;
+            this.histogram = histogram;
+            this.timeoutMs = timeoutMs;
+        }
+
+        synchronized void record(long millis) {
+            lastRecordedAt = System.currentTimeMillis();
+            histogram.record(millis);
+            if (histogram.count() >= minSamples) {
+                long derived = (long) Math.ceil(histogram.percentile(percentile) * multiplier);
+                timeoutMs = Math.max(minMs, Math.min(maxMs, derived));
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// Планировщик "вежливого" обхода: очереди по хостам, лимиты на хост и пауза между запросами к хосту.
+// Хосты обслуживаются по кругу, поэтому медленный или throttling-хост занимает только свои слоты.
+@Component
+public class HostPolitenessScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(HostPolitenessScheduler.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int maxConcurrentPerHost;
+    private final int maxConcurrentTotal;
+    private final long minDelayNanos;
+    private final long hostIdleNanos;
+
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    private final ArrayDeque<HostQueue> readyHosts = new ArrayDeque<>();
+    private final ScheduledExecutorService timer;
+    private final ExecutorService starter;
+    private int globalRunning = 0;
+    private boolean wakeScheduled = false;
+    private long nextWakeAt;
+    private long lastEvictionAt = System.nanoTime();
+
+    public HostPolitenessScheduler(MeterRegistry meterRegistry, CrawlerProperties crawlerProperties) {
+        CrawlerProperties.Politeness politeness = crawlerProperties.getPoliteness();
+        this.meterRegistry = meterRegistry;
+        this.enabled = politeness.isEnabled();
+        this.maxConcurrentPerHost = politeness.getMaxConcurrentPerHost();
+        this.maxConcurrentTotal = politeness.getMaxConcurrentTotal();
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(politeness.getMinDelayPerHostMs());
+        this.hostIdleNanos = TimeUnit.MILLISECONDS.toNanos(politeness.getHostIdleMs());
+        this.timer = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("host-scheduler").daemon().factory());
+        // Задачи стартуют каждая в своем виртуальном потоке: при переполненном пуле загрузки (CallerRunsPolicy)
+        // блокирующая загрузка с ретраями выполнится там, а не в потоке планировщика
+        this.starter = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("host-task-", 0).factory());
+
+        logger.info("HostPolitenessScheduler: enabled={}, на хост {}, всего {}, пауза {} мс",
+                enabled, maxConcurrentPerHost, maxConcurrentTotal, politeness.getMinDelayPerHostMs());
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        timer.shutdownNow();
+        starter.shutdownNow();
+    }
+
+    public static String hostOf(String url) {
+        try {
+            String authority = URI.create(url).getAuthority();
+            return authority != null ? authority.toLowerCase(Locale.ROOT) : "unknown";
+        } catch (IllegalArgumentException e) {
+            return "invalid";
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Ставит задачу в очередь хоста; задача стартует, когда у хоста есть слот и прошла пауза
+    public <T> CompletableFuture<T> submit(String url, Supplier<CompletableFuture<T>> task) {
+        if (!enabled) {
+            return task.get();
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        PendingTask pending = new PendingTask(() -> {
+            CompletableFuture<T> running;
+            try {
+                running = task.get();
+            } catch (RuntimeException e) {
+                running = CompletableFuture.failedFuture(e);
+            }
+            return running.whenComplete((value, ex) -> {
+                if (ex != null) {
+                    result.completeExceptionally(ex);
+                } else {
+                    result.complete(value);
+                }
+            });
+        });
+
+        synchronized (this) {
+            HostQueue hostQueue = hostQueue(hostOf(url));
+            hostQueue.queue.add(pending);
+            markReady(hostQueue);
+        }
+        drain();
+        return result;
+    }
+
+    // Хост ответил 429 - откладываем следующие запросы к нему (учитывая Retry-After)
+    public void onThrottled(String url, Duration retryAfter) {
+        if (!enabled) {
+            return;
+        }
+        long backoff = Math.max(retryAfter != null ? retryAfter.toNanos() : 0, minDelayNanos * 10);
+        synchronized (this) {
+            HostQueue hostQueue = hostQueue(hostOf(url));
+            hostQueue.nextAllowedAt = Math.max(hostQueue.nextAllowedAt, System.nanoTime() + backoff);
+        }
+        logger.warn("Хост {} ограничивает запросы (429), пауза {} мс", hostOf(url),
+                TimeUnit.NANOSECONDS.toMillis(backoff));
+    }
+
+    // Под this
+    private HostQueue hostQueue(String host) {
+        HostQueue hostQueue = hosts.get(host);
+        if (hostQueue == null) {
+            evictIdleHosts();
+            hostQueue = newHostQueue(host);
+            hosts.put(host, hostQueue);
+        }
+        hostQueue.lastActiveAt = System.nanoTime();
+        return hostQueue;
+    }
+
+    private HostQueue newHostQueue(String host) {
+        HostQueue hostQueue = new HostQueue(host, System.nanoTime());
+        hostQueue.meters.add(Gauge.builder("crawler.host.queue.depth", hostQueue, q -> q.queue.size())
+                .description("Задачи в очереди хоста")
+                .tags("host", host)
+                .register(meterRegistry));
+        hostQueue.meters.add(Gauge.builder("crawler.host.inflight", hostQueue, q -> q.running)
+                .description("Выполняемые запросы к хосту")
+                .tags("host", host)
+                .register(meterRegistry));
+        hostQueue.waitTimer = Timer.builder("crawler.host.wait.time")
+                .description("Время ожидания задачи в очереди хоста")
+                .tags("host", host)
+                .register(meterRegistry);
+        hostQueue.meters.add(hostQueue.waitTimer);
+        return hostQueue;
+    }
+
+    // Под this. Число хостов растет только при появлении нового, поэтому проверка - там же и не чаще
+    // четверти периода простоя. Хост с задачами или неистекшей паузой (в т.ч. после 429) не удаляется
+    private void evictIdleHosts() {
+        long now = System.nanoTime();
+        if (now - lastEvictionAt < hostIdleNanos / 4) {
+            return;
+        }
+        lastEvictionAt = now;
+        int evicted = 0;
+        for (Iterator<HostQueue> it = hosts.values().iterator(); it.hasNext(); ) {
+            HostQueue hostQueue = it.next();
+            if (hostQueue.queue.isEmpty() && hostQueue.running == 0 && !hostQueue.ready
+                    && now - hostQueue.lastActiveAt >= hostIdleNanos && now - hostQueue.nextAllowedAt >= 0) {
+                it.remove();
+                hostQueue.meters.forEach(meterRegistry::remove);
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logger.debug("Удалено простаивающих хостов: {}, осталось {}", evicted, hosts.size());
+        }
+    }
+
+    private void markReady(HostQueue hostQueue) {
+        if (!hostQueue.ready && !hostQueue.queue.isEmpty()) {
+            hostQueue.ready = true;
+            readyHosts.add(hostQueue);
+        }
+    }
+
+    // Обход готовых хостов по кругу: с каждого хоста не больше одной задачи за проход
+    private void drain() {
+        List<PendingTask> toStart = new ArrayList<>();
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            int skipped = 0;
+            while (globalRunning < maxConcurrentTotal && skipped < readyHosts.size()) {
+                HostQueue hostQueue = readyHosts.poll();
+                if (hostQueue.queue.isEmpty()) {
+                    hostQueue.ready = false;
+                    continue;
+                }
+                if (hostQueue.running >= maxConcurrentPerHost) {
+                    readyHosts.add(hostQueue);
+                    skipped++;
+                    continue;
+                }
+                if (now - hostQueue.nextAllowedAt < 0) {
+                    scheduleWake(hostQueue.nextAllowedAt);
+                    readyHosts.add(hostQueue);
+                    skipped++;
+                    continue;
+                }
+
+                PendingTask pending = hostQueue.queue.poll();
+                hostQueue.running++;
+                globalRunning++;
+                hostQueue.nextAllowedAt = now + minDelayNanos;
+                hostQueue.waitTimer.record(now - pending.enqueuedAt, TimeUnit.NANOSECONDS);
+                pending.hostQueue = hostQueue;
+                toStart.add(pending);
+
+                if (hostQueue.queue.isEmpty()) {
+                    hostQueue.ready = false;
+                } else {
+                    readyHosts.add(hostQueue);
+                }
+                skipped = 0;
+            }
+        }
+
+        for (PendingTask pending : toStart) {
+            start(pending);
+        }
+    }
+
+    private void start(PendingTask pending) {
+        CompletableFuture.supplyAsync(pending.task, starter)
+                .thenCompose(running -> running)
+                // Освобождение слота - в потоке планировщика, чтобы синхронно завершенные задачи не рекурсировали в drain
+                .whenCompleteAsync((value, ex) -> release(pending.hostQueue), timer);
+    }
+
+    private void release(HostQueue hostQueue) {
+        synchronized (this) {
+            hostQueue.running--;
+            hostQueue.lastActiveAt = System.nanoTime();
+            globalRunning--;
+            markReady(hostQueue);
+        }
+        drain();
+    }
+
+    // Под this. Моменты System.nanoTime() сравниваются только через разность - у nanoTime произвольное начало
+    private void scheduleWake(long wakeAt) {
+        if (wakeScheduled && nextWakeAt - wakeAt <= 0) {
+            return;
+        }
+        wakeScheduled = true;
+        nextWakeAt = wakeAt;
+        timer.schedule(() -> {
+            synchronized (this) {
+                wakeScheduled = false;
+            }
+            drain();
+        }, Math.max(0, wakeAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private static final class HostQueue {
+        private final String host;
+        private final ArrayDeque<PendingTask> queue = new ArrayDeque<>();
+        private final List<Meter> meters = new ArrayList<>(3);
+        private Timer waitTimer;
+        private int running = 0;
+        private long lastActiveAt;
+        private long nextAllowedAt;
+        private boolean ready = false;
+
+        HostQueue(String host, long createdAt) {
+            this.host = host;
+            this.lastActiveAt = createdAt;
+            this.nextAllowedAt = createdAt;
+        }
+    }
+
+    private static final class PendingTask {
+        private final Supplier<CompletableFuture<?>> task;
+        private final long enqueuedAt = System.nanoTime();
+        private HostQueue hostQueue;
+
+        PendingTask(Supplier<CompletableFuture<?>> task) {
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Поддержка url_latest_results при записи результатов. Вызывается из UrlResultSink в его транзакции,
+// поэтому копия не расходится с url_results. Пакетный MERGE: строка заменяется, только если результат
+// новее (по id) - запоздавшая запись не откатит последний результат назад
+@Component
+public class LatestResultStore {
+
+    private static final String MERGE_SQL = """
+            MERGE INTO url_latest_results l
+            USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS INTEGER), CAST(? AS BIGINT),
+                           CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(1000)), CAST(? AS VARCHAR(255)),
+                           CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS TIMESTAMP),
+                           CAST(? AS INTEGER), CAST(? AS TIMESTAMP)))
+                AS s (url_id, result_id, status_code, response_time, address, phone, email,
+                      working_hours, error_message, processed_at, seen_count, last_seen_at)
+            ON l.url_id = s.url_id
+            WHEN MATCHED AND l.result_id < s.result_id THEN UPDATE SET
+                result_id = s.result_id, status_code = s.status_code, response_time = s.response_time,
+                address = s.address, phone = s.phone, email = s.email, working_hours = s.working_hours,
+                error_message = s.error_message, processed_at = s.processed_at,
+                seen_count = s.seen_count, last_seen_at = s.last_seen_at
+            WHEN NOT MATCHED THEN INSERT (url_id, result_id, status_code, response_time, address, phone, email,
+                working_hours, error_message, processed_at, seen_count, last_seen_at)
+                VALUES (s.url_id, s.result_id, s.status_code, s.response_time, s.address, s.phone, s.email,
+                        s.working_hours, s.error_message, s.processed_at, s.seen_count, s.last_seen_at)
+            """;
+
+    private static final String SEEN_AGAIN_SQL =
+            "UPDATE url_latest_results SET seen_count = seen_count + 1, last_seen_at = ? WHERE result_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public LatestResultStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Вставленные результаты (id уже назначены); из нескольких результатов одного URL берется новейший
+    public void inserted(Collection<UrlResultEntity> results) {
+        Map<Long, UrlResultEntity> latest = new LinkedHashMap<>();
+        for (UrlResultEntity result : results) {
+            latest.merge(result.getUrlEntity().getId(), result,
+                    (current, next) -> next.getId() > current.getId() ? next : current);
+        }
+        if (latest.isEmpty()) {
+            return;
+        }
+        List<UrlResultEntity> rows = List.copyOf(latest.values());
+        jdbcTemplate.batchUpdate(MERGE_SQL, rows, rows.size(), (ps, result) -> {
+            ps.setLong(1, result.getUrlEntity().getId());
+            ps.setLong(2, result.getId());
+            ps.setObject(3, result.getStatusCode(), Types.INTEGER);
+            ps.setObject(4, result.getResponseTime(), Types.BIGINT);
+            ps.setString(5, result.getAddress());
+            ps.setString(6, result.getPhone());
+            ps.setString(7, result.getEmail());
+            ps.setString(8, result.getWorkingHours());
+            ps.setString(9, result.getErrorMessage());
+            ps.setTimestamp(10, timestamp(result.getProcessedAt()));
+            ps.setInt(11, result.getSeenCount());
+            ps.setTimestamp(12, timestamp(result.getLastSeenAt()));
+        });
+    }
+
+    // Повтор содержимого отмечен в строке url_results - то же в копии
+    public void seenAgain(Long resultId, LocalDateTime seenAt) {
+        jdbcTemplate.update(SEEN_AGAIN_SQL, timestamp(seenAt), resultId);
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+}
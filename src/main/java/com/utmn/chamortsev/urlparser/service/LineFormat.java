@@ -0,0 +1,37 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import java.util.Locale;
+
+// Построчные форматы массового импорта и выгрузки: одна запись - одна строка
+public enum LineFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv;charset=UTF-8", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    LineFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    // Явный параметр важнее Content-Type (Accept при выгрузке); по умолчанию NDJSON
+    public static LineFormat detect(String format, String mediaType) {
+        if (format != null && !format.isBlank()) {
+            return switch (format.trim().toLowerCase(Locale.ROOT)) {
+                case "ndjson", "jsonl" -> NDJSON;
+                case "csv" -> CSV;
+                default -> throw new IllegalArgumentException("Неизвестный формат: " + format);
+            };
+        }
+        return mediaType != null && mediaType.toLowerCase(Locale.ROOT).contains("csv") ? CSV : NDJSON;
+    }
+}
@@ -22,8 +22,13 @@ public class LoadTestService {
 
     private final UrlRepository urlRepository;
     private final UrlProcessingService urlProcessingService;
+    private final ActiveUrlSource activeUrlSource;
+    private final HostPolitenessScheduler hostScheduler;
     private final ThreadPoolExecutor loadTestExecutor;
 
+    // Сколько активных URL держать в памяти для случайного выбора во время теста
+    private static final int URL_SAMPLE_SIZE = 10_000;
+
     // Список тестовых сайтов для генерации URL
     private static final String[] TEST_DOMAINS = {
             "https://httpbin.org",
@@ -58,9 +63,12 @@ public class LoadTestService {
     private final AtomicInteger activeLoadTests = new AtomicInteger(0);
     private final Map<String, LoadTestStats> activeTests = new ConcurrentHashMap<>();
 
-    public LoadTestService(UrlRepository urlRepository, UrlProcessingService urlProcessingService) {
+    public LoadTestService(UrlRepository urlRepository, UrlProcessingService urlProcessingService,
+                           ActiveUrlSource activeUrlSource, HostPolitenessScheduler hostScheduler) {
         this.urlRepository = urlRepository;
         this.urlProcessingService = urlProcessingService;
+        this.activeUrlSource = activeUrlSource;
+        this.hostScheduler = hostScheduler;
 
         // Создаем отдельный пул потоков для нагрузочного тестирования
         this.loadTestExecutor = new ThreadPoolExecutor(
@@ -147,6 +155,28 @@ public class LoadTestService {
         );
     }
 
+    /**
+     * Равномерная выборка активных URL (reservoir sampling): таблица читается страницами,
+     * в памяти не больше size URL
+     */
+    private List<UrlEntity> sampleActiveUrls(int size) {
+        List<UrlEntity> sample = new ArrayList<>();
+        Random random = new Random();
+        long[] seen = {0};
+        activeUrlSource.forEach(url -> {
+            seen[0]++;
+            if (sample.size() < size) {
+                sample.add(url);
+            } else {
+                long slot = random.nextLong(seen[0]);
+                if (slot < size) {
+                    sample.set((int) slot, url);
+                }
+            }
+        });
+        return sample;
+    }
+
     /**
      * Выполнение нагрузочного теста
      */
@@ -159,7 +189,7 @@ public class LoadTestService {
             testUrls = generateTestUrls(request.getUrlCount());
             stats.setGeneratedUrls(testUrls.size());
         } else {
-            testUrls = urlRepository.findByActiveTrueOrderByCreatedAtDesc();
+            testUrls = sampleActiveUrls(URL_SAMPLE_SIZE);
             stats.setGeneratedUrls(testUrls.size());
         }
 
@@ -201,7 +231,9 @@ public class LoadTestService {
                                     urlProcessingService.processSingleUrlForForkJoin(url);
                                     break;
                                 case "SYNC":
-                                    urlProcessingService.processSingleUrl(url);
+                                    // Очередь хоста на стороне вызывающего, как у заданий обхода
+                                    hostScheduler.submit(url.getUrl(),
+                                            () -> urlProcessingService.processSingleUrlAsync(url)).join();
                                     break;
                                 default:
                                     urlProcessingService.processSingleUrlForForkJoin(url);
@@ -211,8 +243,9 @@ public class LoadTestService {
                             stats.recordSuccess(responseTime);
 
                         } catch (Exception e) {
-                            stats.recordError(e.getMessage());
-                            logger.debug("Ошибка при обработке URL {}: {}", url.getUrl(), e.getMessage());
+                            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                            stats.recordError(cause.getMessage());
+                            logger.debug("Ошибка при обработке URL {}: {}", url.getUrl(), cause.getMessage());
                         }
 
                         // Ждем указанный интервал
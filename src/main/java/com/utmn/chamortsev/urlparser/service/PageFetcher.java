@@ -0,0 +1,331 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.entity.UrlEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Загрузка страниц: общий HttpClient и построение запросов для всех путей обработки
+@Component
+public class PageFetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageFetcher.class);
+
+    private static final String USER_AGENT = "URL-Parser-Bot/1.0";
+
+    private final HttpClient httpClient;
+    private final HostPolitenessScheduler hostScheduler;
+    private final HostCircuitBreaker circuitBreaker;
+    private final RetryPolicy retryPolicy;
+    private final HostLatencyTracker latencyTracker;
+    private final boolean streaming;
+    private final long maxBodyBytes;
+    private final boolean compression;
+    private final long maxDecodedBytes;
+
+    private final Counter bufferedBytesRead;
+    private final Counter streamingBytesRead;
+    private final Counter streamingBytesSkipped;
+    private final Counter streamingEarlyStops;
+    private final Counter streamingTruncated;
+    private final Counter decodedCapped;
+    // Без тега хоста: счетчики по хостам росли бы с числом обойденных хостов
+    private final Map<DecodingBodySubscriber.Encoding, Counter> wireBytes =
+            new EnumMap<>(DecodingBodySubscriber.Encoding.class);
+    private final Map<DecodingBodySubscriber.Encoding, Counter> decodedBytes =
+            new EnumMap<>(DecodingBodySubscriber.Encoding.class);
+
+    public PageFetcher(HostPolitenessScheduler hostScheduler, HostCircuitBreaker circuitBreaker,
+                       RetryPolicy retryPolicy, HostLatencyTracker latencyTracker,
+                       CrawlerProperties crawlerProperties, MeterRegistry meterRegistry) {
+        this.hostScheduler = hostScheduler;
+        this.circuitBreaker = circuitBreaker;
+        this.retryPolicy = retryPolicy;
+        this.latencyTracker = latencyTracker;
+        this.streaming = crawlerProperties.getStreaming().isEnabled();
+        this.maxBodyBytes = crawlerProperties.getStreaming().getMaxBodyBytes();
+        this.compression = crawlerProperties.getCompression().isEnabled();
+        this.maxDecodedBytes = crawlerProperties.getCompression().getMaxDecodedBytes();
+
+        this.bufferedBytesRead = Counter.builder("url.body.bytes.read")
+                .description("Прочитано байт тела ответа")
+                .tag("mode", "buffered")
+                .register(meterRegistry);
+        this.streamingBytesRead = Counter.builder("url.body.bytes.read")
+                .description("Прочитано байт тела ответа")
+                .tag("mode", "streaming")
+                .register(meterRegistry);
+        this.streamingBytesSkipped = Counter.builder("url.body.bytes.skipped")
+                .description("Не прочитано байт тела ответа (известный Content-Length)")
+                .tag("mode", "streaming")
+                .register(meterRegistry);
+        this.streamingEarlyStops = Counter.builder("url.body.early.stop")
+                .description("Чтение остановлено - найдены все категории контактов")
+                .register(meterRegistry);
+        this.streamingTruncated = Counter.builder("url.body.truncated")
+                .description("Чтение остановлено по лимиту размера тела")
+                .register(meterRegistry);
+        this.decodedCapped = Counter.builder("url.body.decoded.capped")
+                .description("Тело обрезано по лимиту объема после распаковки")
+                .register(meterRegistry);
+        for (DecodingBodySubscriber.Encoding encoding : DecodingBodySubscriber.Encoding.values()) {
+            String encodingTag = encoding.name().toLowerCase(Locale.ROOT);
+            wireBytes.put(encoding, Counter.builder("url.transfer.wire.bytes")
+                    .description("Байт тела ответа по проводу (до распаковки)")
+                    .tag("encoding", encodingTag)
+                    .register(meterRegistry));
+            decodedBytes.put(encoding, Counter.builder("url.transfer.decoded.bytes")
+                    .description("Байт тела ответа после распаковки")
+                    .tag("encoding", encodingTag)
+                    .register(meterRegistry));
+        }
+
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(crawlerProperties.getTimeouts().getConnectMs()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    HttpRequest buildRequest(UrlEntity urlEntity) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(urlEntity.getUrl()))
+                // Таймаут до заголовков ответа - по задержкам этого хоста
+                .timeout(latencyTracker.timeoutFor(HostPolitenessScheduler.hostOf(urlEntity.getUrl())))
+                .header("User-Agent", USER_AGENT);
+        if (compression) {
+            builder.header("Accept-Encoding", "gzip, deflate");
+        }
+        // Условный запрос: при неизменной странице сервер ответит 304 без тела
+        if (urlEntity.getEtag() != null) {
+            builder.header("If-None-Match", urlEntity.getEtag());
+        }
+        if (urlEntity.getLastModified() != null) {
+            builder.header("If-Modified-Since", urlEntity.getLastModified());
+        }
+        return builder.GET().build();
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    // Блокирующая загрузка - для ThreadPool/ForkJoin путей
+    public HttpResponse<String> send(UrlEntity urlEntity) throws Exception {
+        return execute(urlEntity, this::bufferedBody);
+    }
+
+    // Неблокирующая загрузка - поток не ждет сокет
+    public CompletableFuture<HttpResponse<String>> sendAsync(UrlEntity urlEntity) {
+        retryPolicy.onRequest();
+        return executeAsync(urlEntity, this::bufferedBody, 1);
+    }
+
+    // Блокирующая загрузка с потоковым извлечением контактов
+    public HttpResponse<ExtractedPage> sendStreaming(UrlEntity urlEntity) throws Exception {
+        return execute(urlEntity, this::streamingBody);
+    }
+
+    // Неблокирующая загрузка с потоковым извлечением контактов
+    public CompletableFuture<HttpResponse<ExtractedPage>> sendStreamingAsync(UrlEntity urlEntity) {
+        retryPolicy.onRequest();
+        return executeAsync(urlEntity, this::streamingBody, 1);
+    }
+
+    // Загрузка через размыкатель хоста; ошибки сети и 502/503/504 повторяются в пределах бюджета
+    private <T> HttpResponse<T> execute(UrlEntity urlEntity, HttpResponse.BodyHandler<T> handler) throws Exception {
+        String host = HostPolitenessScheduler.hostOf(urlEntity.getUrl());
+        retryPolicy.onRequest();
+        for (int attempt = 1; ; attempt++) {
+            HttpRequest request = buildRequest(urlEntity);
+            circuitBreaker.acquire(host);
+            HttpResponse<T> response;
+            try {
+                response = checkThrottled(urlEntity, httpClient.send(request, decoding(urlEntity, handler)));
+            } catch (Exception e) {
+                if (!retryAfterFailure(urlEntity, host, attempt, e)) {
+                    throw e;
+                }
+                Thread.sleep(retryPolicy.backoffMillis(attempt));
+                continue;
+            }
+            if (!retryAfterResponse(urlEntity, host, attempt, response.statusCode())) {
+                return response;
+            }
+            Thread.sleep(retryPolicy.backoffMillis(attempt));
+        }
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> executeAsync(UrlEntity urlEntity,
+                                                                HttpResponse.BodyHandler<T> handler, int attempt) {
+        String host = HostPolitenessScheduler.hostOf(urlEntity.getUrl());
+        HttpRequest request;
+        try {
+            request = buildRequest(urlEntity);
+            circuitBreaker.acquire(host);
+        } catch (IllegalArgumentException | HostCircuitBreaker.CircuitOpenException e) {
+            // Некорректный URI или разомкнутая цепь - ошибка в цепочке, а не в вызывающем потоке
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(request, decoding(urlEntity, handler))
+                .handle((response, ex) -> {
+                    if (ex == null) {
+                        checkThrottled(urlEntity, response);
+                        return retryAfterResponse(urlEntity, host, attempt, response.statusCode())
+                                ? retryLater(urlEntity, handler, attempt)
+                                : CompletableFuture.completedFuture(response);
+                    }
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    return retryAfterFailure(urlEntity, host, attempt, cause)
+                            ? retryLater(urlEntity, handler, attempt)
+                            : CompletableFuture.<HttpResponse<T>>failedFuture(cause);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> retryLater(UrlEntity urlEntity,
+                                                              HttpResponse.BodyHandler<T> handler, int attempt) {
+        Executor delayed = CompletableFuture.delayedExecutor(retryPolicy.backoffMillis(attempt), TimeUnit.MILLISECONDS);
+        return CompletableFuture.supplyAsync(() -> executeAsync(urlEntity, handler, attempt + 1), delayed)
+                .thenCompose(Function.identity());
+    }
+
+    // Ответ получен: учитываем его в размыкателе; true - нужен повтор
+    private boolean retryAfterResponse(UrlEntity urlEntity, String host, int attempt, int statusCode) {
+        circuitBreaker.onResponse(host, statusCode);
+        if (!RetryPolicy.isRetryable(statusCode) || !retryPolicy.tryRetry(attempt)) {
+            return false;
+        }
+        logger.debug("Повтор {} после HTTP {} (попытка {})", urlEntity.getUrl(), statusCode, attempt);
+        return true;
+    }
+
+    // Запрос не выполнен: ошибки сети считаются ошибками хоста; true - нужен повтор
+    private boolean retryAfterFailure(UrlEntity urlEntity, String host, int attempt, Throwable failure) {
+        if (failure instanceof HttpTimeoutException && !(failure instanceof HttpConnectTimeoutException)) {
+            latencyTracker.recordTimeout(host);
+        }
+        if (!RetryPolicy.isRetryable(failure)) {
+            circuitBreaker.release(host);
+            return false;
+        }
+        circuitBreaker.onFailure(host, failure.toString());
+        if (!retryPolicy.tryRetry(attempt)) {
+            return false;
+        }
+        logger.debug("Повтор {} после ошибки {} (попытка {})", urlEntity.getUrl(), failure, attempt);
+        return true;
+    }
+
+    // Распаковка и учет байт "по проводу" и после распаковки по кодировкам.
+    // Обработчик вызывается при получении заголовков - здесь же фиксируется задержка хоста
+    private <T> HttpResponse.BodyHandler<T> decoding(UrlEntity urlEntity, HttpResponse.BodyHandler<T> handler) {
+        String host = HostPolitenessScheduler.hostOf(urlEntity.getUrl());
+        long sentAt = System.nanoTime();
+        return responseInfo -> {
+            latencyTracker.record(host, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentAt));
+            DecodingBodySubscriber.Encoding encoding = DecodingBodySubscriber.Encoding.of(responseInfo.headers());
+            return new DecodingBodySubscriber<>(handler.apply(responseInfo), encoding, maxDecodedBytes,
+                    wireBytes.get(encoding), decodedBytes.get(encoding),
+                    () -> {
+                        decodedCapped.increment();
+                        logger.warn("Тело {} обрезано по лимиту {} байт после распаковки",
+                                urlEntity.getUrl(), maxDecodedBytes);
+                    });
+        };
+    }
+
+    // Тело целиком в памяти: байты считаются для сравнения с потоковым режимом
+    private HttpResponse.BodySubscriber<String> bufferedBody(HttpResponse.ResponseInfo responseInfo) {
+        Charset charset = charsetOf(responseInfo.headers());
+        return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), bytes -> {
+            bufferedBytesRead.increment(bytes.length);
+            return new String(bytes, charset);
+        });
+    }
+
+    private HttpResponse.BodySubscriber<ExtractedPage> streamingBody(HttpResponse.ResponseInfo responseInfo) {
+        // У сжатого ответа Content-Length - размер до распаковки, для пропущенных байт не подходит
+        boolean identity = DecodingBodySubscriber.Encoding.of(responseInfo.headers())
+                == DecodingBodySubscriber.Encoding.IDENTITY;
+        long contentLength = identity ? responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1) : -1;
+        StreamingContactSubscriber subscriber =
+                new StreamingContactSubscriber(charsetOf(responseInfo.headers()), maxBodyBytes, contentLength);
+        subscriber.getBody().thenAccept(this::recordStreaming);
+        return subscriber;
+    }
+
+    private void recordStreaming(ExtractedPage page) {
+        streamingBytesRead.increment(page.bytesRead());
+        streamingBytesSkipped.increment(page.bytesSkipped());
+        if (page.stoppedEarly()) {
+            streamingEarlyStops.increment();
+        }
+        if (page.truncated()) {
+            streamingTruncated.increment();
+        }
+    }
+
+    // Кодировка из Content-Type, по умолчанию UTF-8
+    static Charset charsetOf(HttpHeaders headers) {
+        return headers.firstValue("Content-Type")
+                .map(PageFetcher::charsetOf)
+                .orElse(StandardCharsets.UTF_8);
+    }
+
+    static Charset charsetOf(String contentType) {
+        for (String param : contentType.split(";")) {
+            String[] pair = param.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].trim().toLowerCase(Locale.ROOT).equals("charset")) {
+                try {
+                    return Charset.forName(pair[1].trim().replace("\"", ""));
+                } catch (IllegalArgumentException e) {
+                    // Неизвестная кодировка - читаем как UTF-8
+                    return StandardCharsets.UTF_8;
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    // 429 - сообщаем планировщику, чтобы он притормозил этот хост
+    private <T> HttpResponse<T> checkThrottled(UrlEntity urlEntity, HttpResponse<T> response) {
+        if (response.statusCode() == 429) {
+            Duration retryAfter = response.headers().firstValue("Retry-After")
+                    .map(PageFetcher::parseRetryAfter)
+                    .orElse(null);
+            hostScheduler.onThrottled(urlEntity.getUrl(), retryAfter);
+        }
+        return response;
+    }
+
+    private static Duration parseRetryAfter(String value) {
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            // HTTP-date не разбираем - используется пауза по умолчанию
+            return null;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.entity.UrlEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import com.utmn.chamortsev.urlparser.repository.UrlRepository;
+import com.utmn.chamortsev.urlparser.repository.UrlResultRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpHeaders;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Состояние последней загрузки URL в UrlEntity: валидаторы ETag/Last-Modified для условных запросов
+// и отпечаток содержимого. На 304 или тот же отпечаток переиспользуется последний успешный результат
+// без извлечения контактов
+@Component
+public class PageValidatorStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageValidatorStore.class);
+
+    private final UrlRepository urlRepository;
+    private final UrlResultRepository urlResultRepository;
+    private final UrlResultSink resultSink;
+
+    private final Counter notModifiedCounter;
+    private final Counter modifiedCounter;
+    private final Counter bytesSavedCounter;
+    private final Counter unchangedContentCounter;
+
+    public PageValidatorStore(UrlRepository urlRepository,
+                              UrlResultRepository urlResultRepository,
+                              UrlResultSink resultSink,
+                              MeterRegistry meterRegistry) {
+        this.urlRepository = urlRepository;
+        this.urlResultRepository = urlResultRepository;
+        this.resultSink = resultSink;
+
+        this.notModifiedCounter = Counter.builder("url.conditional.requests")
+                .description("Условные запросы по результату")
+                .tag("result", "not_modified")
+                .register(meterRegistry);
+        this.modifiedCounter = Counter.builder("url.conditional.requests")
+                .description("Условные запросы по результату")
+                .tag("result", "modified")
+                .register(meterRegistry);
+        this.bytesSavedCounter = Counter.builder("url.conditional.bytes.saved")
+                .description("Не загружено байт благодаря ответам 304 (по размеру прошлой загрузки)")
+                .register(meterRegistry);
+        this.unchangedContentCounter = Counter.builder("url.content.unchanged")
+                .description("Полные загрузки с тем же отпечатком содержимого")
+                .register(meterRegistry);
+        Gauge.builder("url.conditional.hit.ratio", this, PageValidatorStore::hitRatio)
+                .description("Доля условных запросов, завершившихся 304")
+                .register(meterRegistry);
+    }
+
+    public boolean hasValidators(UrlEntity urlEntity) {
+        return urlEntity.getEtag() != null || urlEntity.getLastModified() != null;
+    }
+
+    // Ответ 304 на условный запрос
+    public void notModified(UrlEntity urlEntity) {
+        notModifiedCounter.increment();
+        if (urlEntity.getLastBodyBytes() != null) {
+            bytesSavedCounter.increment(urlEntity.getLastBodyBytes());
+        }
+    }
+
+    // Последний успешный результат или null, если его нет - тогда состояние сбрасывается
+    // и страницу нужно загрузить заново без валидаторов
+    public FetchedPage reusePrevious(UrlEntity urlEntity) {
+        UrlResultEntity pending = resultSink.pendingSuccess(urlEntity.getId());
+        if (pending != null) {
+            // Последний результат еще в очереди записи: строки в БД старше и могут хранить другие контакты.
+            // Повтор ссылается на ту же строку, что и ожидающий результат; если тот сам новый - обычная вставка
+            return new FetchedPage(200, contactsOf(pending), pending.getRepeatOf());
+        }
+        UrlResultEntity previous = urlResultRepository
+                .findFirstByUrlEntityIdAndStatusCodeOrderByProcessedAtDesc(urlEntity.getId(), 200)
+                .orElse(null);
+        if (previous == null) {
+            logger.warn("Содержимое {} не изменилось, но прошлого результата нет - повторная загрузка",
+                    urlEntity.getUrl());
+            store(urlEntity, null, null, null, null);
+            return null;
+        }
+        return new FetchedPage(200, contactsOf(previous), previous.getId());
+    }
+
+    // Полный ответ: запоминаем валидаторы и отпечаток успешной загрузки, если они изменились.
+    // true - отпечаток совпал с прошлой загрузкой
+    public boolean remember(UrlEntity urlEntity, int statusCode, HttpHeaders headers,
+                            long bodyBytes, boolean conditional, long contentHash) {
+        if (conditional) {
+            modifiedCounter.increment();
+        }
+        if (statusCode != 200) {
+            return false;
+        }
+
+        boolean unchanged = Objects.equals(contentHash, urlEntity.getContentHash());
+        if (unchanged) {
+            unchangedContentCounter.increment();
+        }
+
+        String etag = headers.firstValue("ETag").orElse(null);
+        String lastModified = headers.firstValue("Last-Modified").orElse(null);
+        // Без Content-Length (потоковое чтение с ранней остановкой) размер - сколько прочитано
+        long size = headers.firstValueAsLong("Content-Length").orElse(bodyBytes);
+
+        if (!unchanged
+                || !Objects.equals(etag, urlEntity.getEtag())
+                || !Objects.equals(lastModified, urlEntity.getLastModified())
+                || !Objects.equals(size, urlEntity.getLastBodyBytes())) {
+            store(urlEntity, etag, lastModified, size, contentHash);
+        }
+        return unchanged;
+    }
+
+    private void store(UrlEntity urlEntity, String etag, String lastModified, Long bodyBytes, Long contentHash) {
+        urlEntity.setEtag(etag);
+        urlEntity.setLastModified(lastModified);
+        urlEntity.setLastBodyBytes(bodyBytes);
+        urlEntity.setContentHash(contentHash);
+        try {
+            urlRepository.updateFetchState(urlEntity.getId(), etag, lastModified, bodyBytes, contentHash);
+        } catch (Exception e) {
+            // Без сохраненного состояния следующая загрузка будет полной - не ошибка обработки
+            logger.warn("Не удалось сохранить состояние загрузки для {}: {}", urlEntity.getUrl(), e.getMessage());
+        }
+    }
+
+    private double hitRatio() {
+        double hits = notModifiedCounter.count();
+        double total = hits + modifiedCounter.count();
+        return total > 0 ? hits / total : 0.0;
+    }
+
+    private static Map<String, String> contactsOf(UrlResultEntity result) {
+        Map<String, String> contacts = new HashMap<>();
+        if (result.getEmail() != null) {
+            contacts.put("email", result.getEmail());
+        }
+        if (result.getPhone() != null) {
+            contacts.put("phone", result.getPhone());
+        }
+        if (result.getAddress() != null) {
+            contacts.put("address", result.getAddress());
+        }
+        if (result.getWorkingHours() != null) {
+            contacts.put("workingHours", result.getWorkingHours());
+        }
+        return contacts;
+    }
+}
@@ -0,0 +1,254 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.core.ContentFingerprint;
+import com.utmn.chamortsev.urlparser.entity.UrlEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import com.utmn.chamortsev.urlparser.repository.UrlRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Обход по расписанию: очередь URL по времени следующего обхода. Интервал каждого URL
+// подстраивается под то, как часто меняются извлеченные контакты: изменились - интервал
+// сокращается, не изменились - растет. Загрузки тратятся на страницы, где данные действительно меняются
+@Component
+public class RecrawlScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecrawlScheduler.class);
+
+    private final UrlRepository urlRepository;
+    private final UrlProcessingService urlProcessingService;
+    private final ActiveUrlSource activeUrlSource;
+    private final CrawlerProperties.Recrawl config;
+    private final ScheduledExecutorService scheduler;
+
+    // Очередь и множество запланированных (в очереди или в обработке) URL - под this
+    private final PriorityQueue<Due> queue = new PriorityQueue<>(Comparator.comparingLong(Due::dueAt));
+    private final Set<Long> scheduled = new HashSet<>();
+    private int inFlight = 0;
+
+    private final Counter changedCounter;
+    private final Counter unchangedCounter;
+    private final Counter failedCounter;
+
+    public RecrawlScheduler(UrlRepository urlRepository,
+                            UrlProcessingService urlProcessingService,
+                            ActiveUrlSource activeUrlSource,
+                            CrawlerProperties crawlerProperties,
+                            MeterRegistry meterRegistry) {
+        this.urlRepository = urlRepository;
+        this.urlProcessingService = urlProcessingService;
+        this.activeUrlSource = activeUrlSource;
+        this.config = crawlerProperties.getRecrawl();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("recrawl-scheduler").daemon().factory());
+
+        this.changedCounter = Counter.builder("crawler.recrawl.visits")
+                .description("Обходы по расписанию по результату")
+                .tag("result", "changed")
+                .register(meterRegistry);
+        this.unchangedCounter = Counter.builder("crawler.recrawl.visits")
+                .description("Обходы по расписанию по результату")
+                .tag("result", "unchanged")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("crawler.recrawl.visits")
+                .description("Обходы по расписанию по результату")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        Gauge.builder("crawler.recrawl.queue.size", this, RecrawlScheduler::queueSize)
+                .description("URL в очереди обхода по расписанию")
+                .register(meterRegistry);
+        Gauge.builder("crawler.recrawl.inflight", this, RecrawlScheduler::inFlight)
+                .description("Выполняемые обходы по расписанию")
+                .register(meterRegistry);
+    }
+
+    // Очередь заполняется после data.sql
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        logger.info("RecrawlScheduler: интервал {}-{} с (начальный {}), до {} обходов одновременно",
+                config.getMinIntervalSec(), config.getMaxIntervalSec(), config.getInitialIntervalSec(),
+                config.getMaxInFlight());
+        scheduler.scheduleWithFixedDelay(this::resync, 0, config.getResyncIntervalMs(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::tick, config.getTickMs(), config.getTickMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // Новые активные URL попадают в очередь; срок - сохраненный nextCrawlAt или сейчас
+    void resync() {
+        try {
+            int[] added = {0};
+            activeUrlSource.forEach(url -> {
+                synchronized (this) {
+                    if (scheduled.add(url.getId())) {
+                        queue.add(new Due(url.getId(), url.getNextCrawlAt() != null
+                                ? toMillis(url.getNextCrawlAt()) : System.currentTimeMillis()));
+                        added[0]++;
+                    }
+                }
+            });
+            if (added[0] > 0) {
+                logger.info("В расписание обхода добавлено {} URL", added[0]);
+            }
+        } catch (Exception e) {
+            logger.warn("Ошибка обновления расписания обхода: {}", e.getMessage());
+        }
+    }
+
+    // Берет из очереди наступившие сроки в пределах лимита одновременных обходов
+    void tick() {
+        List<Long> due = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            while (inFlight + due.size() < config.getMaxInFlight()
+                    && !queue.isEmpty() && queue.peek().dueAt() <= now) {
+                due.add(queue.poll().urlId());
+            }
+            inFlight += due.size();
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        // Взятые из очереди, но еще не переданные в обход URL
+        Set<Long> pending = new HashSet<>(due);
+        try {
+            for (UrlEntity url : urlRepository.findAllById(due)) {
+                pending.remove(url.getId());
+                if (url.isActive()) {
+                    visit(url);
+                } else {
+                    // Отключенный URL снова попадет в расписание при следующем resync после включения
+                    forget(url.getId());
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Ошибка обхода по расписанию: {}", e.getMessage());
+        } finally {
+            // Удаленные и не обработанные из-за ошибки URL освобождают слот; живые вернутся при resync
+            pending.forEach(this::forget);
+        }
+    }
+
+    private void visit(UrlEntity url) {
+        try {
+            urlProcessingService.processUrlScheduled(url)
+                    .whenComplete((result, ex) -> onVisited(url, result, ex));
+        } catch (RuntimeException e) {
+            onVisited(url, null, e);
+        }
+    }
+
+    private void onVisited(UrlEntity url, UrlResultEntity result, Throwable ex) {
+        long interval = url.getRecrawlIntervalSec() != null
+                ? url.getRecrawlIntervalSec() : config.getInitialIntervalSec();
+        Long contactsHash = url.getContactsHash();
+        LocalDateTime changedAt = url.getContactsChangedAt();
+
+        if (ex != null || result == null || result.getStatusCode() == null || result.getStatusCode() != 200) {
+            // Ошибка ничего не говорит об изменениях - реже обращаемся к недоступной странице
+            failedCounter.increment();
+            interval = scale(interval, config.getBackoffFactor());
+        } else {
+            long hash = contactsHash(result);
+            if (contactsHash == null) {
+                // Первый обход: только запоминаем контакты
+                contactsHash = hash;
+            } else if (hash != contactsHash) {
+                changedCounter.increment();
+                interval = scale(interval, config.getSpeedupFactor());
+                contactsHash = hash;
+                changedAt = LocalDateTime.now();
+            } else {
+                unchangedCounter.increment();
+                interval = scale(interval, config.getBackoffFactor());
+            }
+        }
+
+        long nextAt = System.currentTimeMillis() + jittered(interval) * 1000;
+        try {
+            urlRepository.updateRecrawlState(url.getId(), interval, toLocalDateTime(nextAt), contactsHash, changedAt);
+        } catch (Exception e) {
+            // Расписание в памяти продолжает работать; после перезапуска URL будет обойден раньше срока
+            logger.warn("Не удалось сохранить расписание обхода для {}: {}", url.getUrl(), e.getMessage());
+        }
+        logger.debug("Следующий обход {} через {} с", url.getUrl(), interval);
+
+        synchronized (this) {
+            inFlight--;
+            queue.add(new Due(url.getId(), nextAt));
+        }
+    }
+
+    private synchronized void forget(Long urlId) {
+        inFlight--;
+        scheduled.remove(urlId);
+    }
+
+    private long scale(long intervalSec, double factor) {
+        long scaled = Math.round(intervalSec * factor);
+        return Math.max(config.getMinIntervalSec(), Math.min(config.getMaxIntervalSec(), scaled));
+    }
+
+    // Разброс, чтобы URL, добавленные одновременно, не обходились одной волной
+    private long jittered(long intervalSec) {
+        double spread = config.getJitter() * intervalSec;
+        if (spread < 1) {
+            return intervalSec;
+        }
+        return Math.max(1, intervalSec + Math.round(ThreadLocalRandom.current().nextDouble(-spread, spread)));
+    }
+
+    // Отпечаток извлеченных контактов; разделитель, чтобы значения не "перетекали" между полями
+    static long contactsHash(UrlResultEntity result) {
+        ContentFingerprint fingerprint = new ContentFingerprint();
+        for (String value : new String[]{result.getEmail(), result.getPhone(),
+                result.getAddress(), result.getWorkingHours()}) {
+            fingerprint.update(value != null ? value : "");
+            fingerprint.update("\u0001");
+        }
+        return fingerprint.value();
+    }
+
+    private synchronized int queueSize() {
+        return queue.size();
+    }
+
+    private synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    private record Due(long urlId, long dueAt) {
+    }
+}
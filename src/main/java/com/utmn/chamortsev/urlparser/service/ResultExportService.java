@@ -0,0 +1,116 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.core.CsvLine;
+import com.utmn.chamortsev.urlparser.dto.UrlResultFilter;
+import com.utmn.chamortsev.urlparser.dto.UrlResultView;
+import com.utmn.chamortsev.urlparser.repository.UrlResultRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+// Потоковая выгрузка результатов в NDJSON или CSV: строки идут из одного курсора БД прямо в ответ.
+// Проекции не попадают в контекст персистентности, поэтому память не зависит от объема выгрузки
+@Service
+public class ResultExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultExportService.class);
+
+    private static final List<String> CSV_HEADER = List.of("id", "urlId", "url", "host", "statusCode",
+            "responseTime", "email", "phone", "address", "workingHours", "errorMessage", "processedAt",
+            "seenCount", "lastSeenAt");
+
+    private final UrlResultRepository urlResultRepository;
+    private final ObjectMapper objectMapper;
+    private final CrawlerProperties.Export config;
+    private final Counter ndjsonRowsCounter;
+    private final Counter csvRowsCounter;
+
+    public ResultExportService(UrlResultRepository urlResultRepository,
+                               ObjectMapper objectMapper,
+                               CrawlerProperties crawlerProperties,
+                               MeterRegistry meterRegistry) {
+        this.urlResultRepository = urlResultRepository;
+        this.objectMapper = objectMapper;
+        this.config = crawlerProperties.getExport();
+
+        this.ndjsonRowsCounter = Counter.builder("url.export.rows")
+                .description("Строки потоковой выгрузки результатов по формату")
+                .tag("format", "ndjson")
+                .register(meterRegistry);
+        this.csvRowsCounter = Counter.builder("url.export.rows")
+                .description("Строки потоковой выгрузки результатов по формату")
+                .tag("format", "csv")
+                .register(meterRegistry);
+    }
+
+    // Метка для следующей выгрузки изменений; берется до начала чтения и с запасом назад,
+    // так что повтор строки возможен, а пропуск - нет
+    public LocalDateTime nextSince() {
+        return LocalDateTime.now().minusNanos(config.getSinceOverlapMs() * 1_000_000);
+    }
+
+    // Курсор живет в транзакции только на чтение; возвращает число выгруженных строк.
+    // Обрыв соединения клиентом приходит сюда как IOException и закрывает курсор
+    @Transactional(readOnly = true)
+    public long export(UrlResultFilter filter, LocalDateTime since, LineFormat format, OutputStream out) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        long rows = 0;
+        int flushEvery = Math.max(1, config.getFlushEvery());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        try (Stream<UrlResultView> results = urlResultRepository.streamResults(filter.urlId(), filter.active(),
+                UrlQueryService.normalizeHost(filter.host()), filter.statusCode(), filter.from(), filter.to(),
+                filter.hasEmail(), filter.hasPhone(), since)) {
+            if (format == LineFormat.CSV) {
+                writer.write(CsvLine.format(CSV_HEADER));
+                writer.write('\n');
+            }
+            for (Iterator<UrlResultView> it = results.iterator(); it.hasNext(); ) {
+                UrlResultView result = it.next();
+                writer.write(format == LineFormat.CSV ? CsvLine.format(csvFields(result))
+                        : objectMapper.writeValueAsString(result));
+                writer.write('\n');
+                if (++rows % flushEvery == 0) {
+                    writer.flush();
+                }
+            }
+            writer.flush();
+        } finally {
+            (format == LineFormat.CSV ? csvRowsCounter : ndjsonRowsCounter).increment(rows);
+        }
+        logger.info("Выгрузка результатов ({}): {} строк за {} мс", format, rows,
+                System.currentTimeMillis() - startedAt);
+        return rows;
+    }
+
+    private static List<String> csvFields(UrlResultView result) {
+        return Arrays.asList(
+                Objects.toString(result.id(), null),
+                Objects.toString(result.urlId(), null),
+                result.url(),
+                result.host(),
+                Objects.toString(result.statusCode(), null),
+                Objects.toString(result.responseTime(), null),
+                result.email(),
+                result.phone(),
+                result.address(),
+                result.workingHours(),
+                result.errorMessage(),
+                Objects.toString(result.processedAt(), null),
+                Integer.toString(result.seenCount()),
+                Objects.toString(result.lastSeenAt(), null));
+    }
+}
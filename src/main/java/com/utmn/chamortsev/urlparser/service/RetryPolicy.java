@@ -0,0 +1,106 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Повторы загрузки: экспоненциальная пауза со случайной составляющей и общий бюджет повторов.
+// Бюджет растет на долю повтора с каждым запросом, поэтому при массовых ошибках повторов
+// не больше этой доли от потока запросов
+@Component
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final double budgetRatio;
+    private final double budgetMax;
+
+    private double budget;
+
+    private final Counter retriedCounter;
+    private final Counter budgetExhaustedCounter;
+
+    public RetryPolicy(MeterRegistry meterRegistry, CrawlerProperties crawlerProperties) {
+        CrawlerProperties.Retry config = crawlerProperties.getRetry();
+        this.maxAttempts = Math.max(1, config.getMaxAttempts());
+        this.baseDelayMs = Math.max(1, config.getBaseDelayMs());
+        this.maxDelayMs = Math.max(baseDelayMs, config.getMaxDelayMs());
+        this.budgetRatio = config.getBudgetRatio();
+        this.budgetMax = Math.max(1, config.getBudgetMax());
+        this.budget = Math.min(budgetMax, config.getBudgetInitial());
+
+        this.retriedCounter = Counter.builder("url.fetch.retries")
+                .description("Повторы загрузки")
+                .tag("result", "retried")
+                .register(meterRegistry);
+        this.budgetExhaustedCounter = Counter.builder("url.fetch.retries")
+                .description("Повторы загрузки")
+                .tag("result", "budget_exhausted")
+                .register(meterRegistry);
+        Gauge.builder("url.fetch.retry.budget", this, RetryPolicy::getBudget)
+                .description("Доступно повторов в общем бюджете")
+                .register(meterRegistry);
+    }
+
+    // Ошибки сети и таймауты; разомкнутая цепь - не повод для повтора
+    public static boolean isRetryable(Throwable failure) {
+        return failure instanceof IOException && !(failure instanceof HostCircuitBreaker.CircuitOpenException);
+    }
+
+    // Временная недоступность; 500 обычно повторяется на тот же запрос, поэтому не повторяем
+    public static boolean isRetryable(int statusCode) {
+        return statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    // Первая попытка загрузки пополняет бюджет
+    public synchronized void onRequest() {
+        budget = Math.min(budgetMax, budget + budgetRatio);
+    }
+
+    // true - повтор после attempt-й попытки разрешен, единица бюджета списана
+    public boolean tryRetry(int attempt) {
+        if (attempt >= maxAttempts) {
+            return false;
+        }
+        synchronized (this) {
+            if (budget < 1) {
+                budgetExhaustedCounter.increment();
+                return false;
+            }
+            budget -= 1;
+        }
+        retriedCounter.increment();
+        return true;
+    }
+
+    // Пауза перед повтором после attempt-й попытки: половина фиксирована, половина случайна,
+    // чтобы повторы к одному хосту не совпадали по времени
+    public long backoffMillis(int attempt) {
+        long delay = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    public synchronized double getBudget() {
+        return budget;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("maxAttempts", maxAttempts);
+        map.put("budget", getBudget());
+        map.put("budgetMax", budgetMax);
+        map.put("budgetRatio", budgetRatio);
+        map.put("retried", (long) retriedCounter.count());
+        map.put("budgetExhausted", (long) budgetExhaustedCounter.count());
+        return map;
+    }
+}
@@ -0,0 +1,169 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.core.ContactAccumulator;
+import com.utmn.chamortsev.urlparser.core.ContactScanner;
+import com.utmn.chamortsev.urlparser.core.ContentFingerprint;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+// Потоковое извлечение контактов: тело декодируется по частям и сканируется окнами,
+// страница целиком в памяти не хранится. Чтение прекращается, когда найдены все категории
+// контактов или прочитан лимит байт.
+class StreamingContactSubscriber implements HttpResponse.BodySubscriber<ExtractedPage> {
+
+    // Размер окна сканирования в символах
+    static final int WINDOW_CHARS = 32 * 1024;
+    // Хвост окна, который на промежуточном сканировании служит только контекстом для шаблонов:
+    // совпадения, заходящие в него, откладываются до следующего окна
+    static final int OVERLAP_CHARS = 256;
+    // Сколько уже просмотренного текста оставляется перед точкой продолжения:
+    // начало email ищется назад от '@', а границы слов и серий цифр - по предыдущему символу
+    static final int LOOKBEHIND_CHARS = 64;
+
+    private final CompletableFuture<ExtractedPage> result = new CompletableFuture<>();
+    private final ContactAccumulator contacts = new ContactAccumulator();
+    private final ContentFingerprint fingerprint = new ContentFingerprint();
+    private final StringBuilder window = new StringBuilder(WINDOW_CHARS + OVERLAP_CHARS);
+    private final CharsetDecoder decoder;
+    private final long maxBytes;
+    private final long contentLength;
+
+    private Flow.Subscription subscription;
+    // Незавершенная многобайтовая последовательность с конца предыдущей части
+    private ByteBuffer leftover;
+    // Позиция в окне, с которой продолжается сканирование
+    private int scanFrom = 0;
+    private long bytesRead = 0;
+    private boolean truncated = false;
+    private boolean done = false;
+
+    StreamingContactSubscriber(Charset charset, long maxBytes, long contentLength) {
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.maxBytes = maxBytes;
+        this.contentLength = contentLength;
+    }
+
+    @Override
+    public CompletionStage<ExtractedPage> getBody() {
+        return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        if (done) {
+            return;
+        }
+        try {
+            for (ByteBuffer item : items) {
+                long allowed = maxBytes - bytesRead;
+                if (item.remaining() > allowed) {
+                    item.limit(item.position() + (int) allowed);
+                    truncated = true;
+                }
+                bytesRead += item.remaining();
+                decode(item, false);
+                if (truncated) {
+                    break;
+                }
+            }
+
+            if (truncated) {
+                ContactScanner.scan(window, scanFrom, window.length(), contacts);
+                finish(true);
+                return;
+            }
+            if (window.length() >= WINDOW_CHARS) {
+                scanWindow();
+                if (contacts.hasAllCategories()) {
+                    finish(true);
+                    return;
+                }
+            }
+            subscription.request(1);
+        } catch (RuntimeException e) {
+            subscription.cancel();
+            onError(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (done) {
+            return;
+        }
+        done = true;
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (done) {
+            return;
+        }
+        decode(ByteBuffer.allocate(0), true);
+        CharBuffer tail = CharBuffer.allocate(16);
+        decoder.flush(tail);
+        tail.flip();
+        fingerprint.update(tail);
+        window.append(tail);
+        ContactScanner.scan(window, scanFrom, window.length(), contacts);
+        finish(false);
+    }
+
+    private void decode(ByteBuffer input, boolean endOfInput) {
+        ByteBuffer bytes = input;
+        if (leftover != null) {
+            bytes = ByteBuffer.allocate(leftover.remaining() + input.remaining());
+            bytes.put(leftover).put(input).flip();
+            leftover = null;
+        }
+
+        CharBuffer chars = CharBuffer.allocate((int) (bytes.remaining() * (double) decoder.maxCharsPerByte()) + 1);
+        decoder.decode(bytes, chars, endOfInput);
+        chars.flip();
+        fingerprint.update(chars);
+        window.append(chars);
+
+        if (bytes.hasRemaining()) {
+            leftover = ByteBuffer.allocate(bytes.remaining());
+            leftover.put(bytes).flip();
+        }
+    }
+
+    // Сканирует окно без последних OVERLAP_CHARS символов и переносит непросмотренный хвост
+    // в следующее окно; до конца сканируется только последнее окно
+    private void scanWindow() {
+        int resume = ContactScanner.scan(window, scanFrom, window.length() - OVERLAP_CHARS, contacts);
+        int cut = Math.max(0, resume - LOOKBEHIND_CHARS);
+        window.delete(0, cut);
+        scanFrom = resume - cut;
+    }
+
+    private void finish(boolean cancel) {
+        done = true;
+        if (cancel) {
+            subscription.cancel();
+        }
+        // Пропущенные байты известны, только если сервер прислал Content-Length
+        long bytesSkipped = contentLength >= 0 ? Math.max(0, contentLength - bytesRead) : 0;
+        result.complete(new ExtractedPage(contacts.toMap(), bytesRead, bytesSkipped, truncated,
+                cancel && !truncated, fingerprint.value()));
+    }
+}
@@ -1,6 +1,7 @@
 package com.utmn.chamortsev.urlparser.service;
 
 import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
 import io.opentelemetry.api.trace.StatusCode;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.context.Scope;
@@ -35,12 +36,15 @@ public class TracingService {
             return Span.getInvalid();
         }
 
-        return tracer.spanBuilder("url.parsing")
+        SpanBuilder builder = tracer.spanBuilder("url.parsing")
                 .setAttribute("http.url", url)
-                .setAttribute("url.id", urlId)
                 .setAttribute("processing.method", method)
-                .setAttribute("span.type", "url-parsing")
-                .startSpan();
+                .setAttribute("span.type", "url-parsing");
+        // urlId может отсутствовать (traceOperation), setAttribute(String, long) падает на null
+        if (urlId != null) {
+            builder.setAttribute("url.id", urlId);
+        }
+        return builder.startSpan();
     }
 
 
@@ -0,0 +1,278 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.core.CsvLine;
+import com.utmn.chamortsev.urlparser.core.UrlCanonicalizer;
+import com.utmn.chamortsev.urlparser.repository.UrlRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Массовый импорт URL из NDJSON или CSV. Тело читается построчно, в памяти одна пачка:
+// повторы (по каноническому ключу) внутри пачки отсекаются в памяти, уже существующие - одним запросом IN на пачку,
+// новые вставляются пакетным INSERT (JdbcTemplate: IDENTITY не дает Hibernate собирать пакеты).
+// Повтор из более ранней пачки того же тела к этому моменту уже в БД и находится тем же запросом
+@Service
+public class UrlImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UrlImportService.class);
+
+    // Длина колонок urls по умолчанию (varchar(255))
+    private static final int MAX_COLUMN_LENGTH = 255;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String INSERT_SQL =
+            "INSERT INTO urls (url, canonical_url, host, name, description, created_at, active) VALUES (?, ?, ?, ?, ?, ?, true)";
+
+    private final UrlRepository urlRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityCountTracker countTracker;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxErrorSamples;
+
+    private final Counter acceptedCounter;
+    private final Counter duplicateCounter;
+    private final Counter invalidCounter;
+
+    public UrlImportService(UrlRepository urlRepository,
+                            JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            EntityCountTracker countTracker,
+                            ObjectMapper objectMapper,
+                            CrawlerProperties crawlerProperties,
+                            MeterRegistry meterRegistry) {
+        this.urlRepository = urlRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.countTracker = countTracker;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, crawlerProperties.getIngest().getChunkSize());
+        this.maxErrorSamples = crawlerProperties.getIngest().getMaxErrorSamples();
+
+        this.acceptedCounter = Counter.builder("url.import.rows")
+                .description("Строки массового импорта URL по результату")
+                .tag("result", "accepted")
+                .register(meterRegistry);
+        this.duplicateCounter = Counter.builder("url.import.rows")
+                .description("Строки массового импорта URL по результату")
+                .tag("result", "duplicate")
+                .register(meterRegistry);
+        this.invalidCounter = Counter.builder("url.import.rows")
+                .description("Строки массового импорта URL по результату")
+                .tag("result", "invalid")
+                .register(meterRegistry);
+    }
+
+    // Каждая пачка - своя короткая транзакция: ошибка в конце тела не откатывает уже вставленное
+    public Map<String, Object> importUrls(InputStream body, LineFormat format) throws IOException {
+        ImportRun run = new ImportRun(format);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Map<String, Row> chunk = new LinkedHashMap<>();
+        int[] columns = null;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            run.lines++;
+            if (run.lines == 1 && line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+
+            Row row;
+            if (format == LineFormat.CSV) {
+                List<String> fields = CsvLine.parse(line);
+                if (columns == null) {
+                    columns = headerColumns(fields);
+                    if (columns != null) {
+                        continue;
+                    }
+                    // Без заголовка: url, name, description
+                    columns = new int[]{0, 1, 2};
+                }
+                row = Row.of(field(fields, columns[0]), field(fields, columns[1]), field(fields, columns[2]));
+            } else {
+                try {
+                    JsonNode node = objectMapper.readTree(line);
+                    row = node.isTextual()
+                            ? Row.of(node.asText(), null, null)
+                            : Row.of(text(node, "url"), text(node, "name"), text(node, "description"));
+                } catch (JsonProcessingException e) {
+                    run.invalid("Некорректный JSON");
+                    continue;
+                }
+            }
+
+            String error = validate(row.url());
+            if (error != null) {
+                run.invalid(error);
+                continue;
+            }
+            if (chunk.putIfAbsent(row.canonicalUrl(), row) != null) {
+                run.duplicates++;
+                continue;
+            }
+            if (chunk.size() >= chunkSize) {
+                insertChunk(chunk, run);
+                chunk.clear();
+            }
+        }
+        insertChunk(chunk, run);
+
+        acceptedCounter.increment(run.accepted);
+        duplicateCounter.increment(run.duplicates);
+        invalidCounter.increment(run.invalid);
+        logger.info("Импорт URL ({}): строк {}, добавлено {}, повторов {}, с ошибкой {}",
+                format, run.lines, run.accepted, run.duplicates, run.invalid);
+        return run.toMap();
+    }
+
+    // Повтор пачки - если тот же URL успел вставить параллельный запрос
+    private void insertChunk(Map<String, Row> chunk, ImportRun run) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                int[] counts = transactionTemplate.execute(status -> {
+                    Set<String> existing = new HashSet<>(urlRepository.findExistingCanonicalUrls(chunk.keySet()));
+                    List<Row> rows = chunk.values().stream()
+                            .filter(row -> !existing.contains(row.canonicalUrl()))
+                            .toList();
+                    Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                    jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+                        ps.setString(1, row.url());
+                        ps.setString(2, row.canonicalUrl());
+                        ps.setString(3, UrlCanonicalizer.host(row.url()));
+                        ps.setString(4, row.name());
+                        ps.setString(5, row.description());
+                        ps.setTimestamp(6, now);
+                    });
+                    return new int[]{rows.size(), existing.size()};
+                });
+                run.accepted += counts[0];
+                run.duplicates += counts[1];
+                countTracker.urlsAdded(counts[0], true);
+                return;
+            } catch (DuplicateKeyException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                logger.debug("Пачка импорта пересекается с параллельной вставкой, повтор {}", attempt);
+            }
+        }
+    }
+
+    // Заголовок CSV - если среди полей первой строки есть url; индексы url, name, description
+    private static int[] headerColumns(List<String> fields) {
+        List<String> names = fields.stream().map(f -> f.toLowerCase(Locale.ROOT)).toList();
+        if (!names.contains("url")) {
+            return null;
+        }
+        return new int[]{names.indexOf("url"), names.indexOf("name"), names.indexOf("description")};
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : null;
+    }
+
+    private static String text(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        return value != null && !value.isNull() ? value.asText() : null;
+    }
+
+    private static String validate(String url) {
+        if (url == null || url.isBlank()) {
+            return "Пустой URL";
+        }
+        if (url.length() > MAX_COLUMN_LENGTH) {
+            return "URL длиннее " + MAX_COLUMN_LENGTH + " символов";
+        }
+        try {
+            URI uri = new URI(url);
+            String scheme = uri.getScheme();
+            if (scheme == null || !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))) {
+                return "Поддерживаются только http и https";
+            }
+            if (uri.getHost() == null) {
+                return "Нет хоста";
+            }
+        } catch (URISyntaxException e) {
+            return "Некорректный URL";
+        }
+        return null;
+    }
+
+    private static String truncate(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.length() > MAX_COLUMN_LENGTH ? value.substring(0, MAX_COLUMN_LENGTH) : value;
+    }
+
+    private record Row(String url, String canonicalUrl, String name, String description) {
+        static Row of(String url, String name, String description) {
+            String trimmed = url != null ? url.trim() : null;
+            return new Row(trimmed, UrlCanonicalizer.canonicalize(trimmed), truncate(name), truncate(description));
+        }
+    }
+
+    // Итоги одного импорта; выполняется в потоке запроса
+    private final class ImportRun {
+        private final LineFormat format;
+        private final long startedAt = System.currentTimeMillis();
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        private long lines;
+        private long accepted;
+        private long duplicates;
+        private long invalid;
+
+        ImportRun(LineFormat format) {
+            this.format = format;
+        }
+
+        void invalid(String error) {
+            invalid++;
+            if (errors.size() < maxErrorSamples) {
+                errors.add(Map.of("line", lines, "error", error));
+            }
+        }
+
+        Map<String, Object> toMap() {
+            long durationMs = Math.max(1, System.currentTimeMillis() - startedAt);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("format", format);
+            map.put("lines", lines);
+            map.put("accepted", accepted);
+            map.put("duplicates", duplicates);
+            map.put("invalid", invalid);
+            map.put("errors", errors);
+            map.put("durationMs", durationMs);
+            map.put("urlsPerSecond", String.format("%.0f", accepted * 1000.0 / durationMs));
+            map.put("timestamp", new Date());
+            return map;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.utmn.chamortsev.urlparser.service;
 
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.core.ContactScanner;
+import com.utmn.chamortsev.urlparser.core.ContentFingerprint;
 import com.utmn.chamortsev.urlparser.entity.UrlEntity;
 import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
 import com.utmn.chamortsev.urlparser.repository.UrlRepository;
@@ -8,24 +11,20 @@ import com.utmn.chamortsev.urlparser.repository.UrlResultRepository;
 import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 import java.util.concurrent.*;
-import java.net.http.*;
-import java.net.URI;
-import java.time.Duration;
+import java.net.http.HttpResponse;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,16 +39,32 @@ public class UrlProcessingService {
     private Counter databaseWriteCounter;
     private AtomicInteger activeProcessingCount;
     private DistributionSummary responseTimeDistribution;
-    private AtomicLong totalUrlsInDatabase;
 
     private final UrlRepository urlRepository;
     private final UrlResultRepository urlResultRepository;
     private final ThreadPoolExecutor threadPoolExecutor;
+    private final VirtualThreadFetchExecutor virtualFetchExecutor;
+    private final CrawlerProperties.ExecutionMode executionMode;
     private final ForkJoinPool forkJoinPool;
-    private final HttpClient httpClient;
+    private final CrawlerProperties.ForkJoin forkJoinConfig;
+    private final int forkJoinParallelism;
+    // Сглаженное среднее время ответа по ForkJoin запускам, мс (0 - еще не измерено)
+    private volatile double forkJoinLatencyMs = 0;
+    private final ExecutorService extractionExecutor;
+    private final ExecutorService persistenceExecutor;
+    private final int pipelineMaxInFlight;
+    private final PageFetcher pageFetcher;
+    private final HostPolitenessScheduler hostScheduler;
+    private final UrlResultSink resultSink;
+    private final EntityCountTracker countTracker;
+    private final PageValidatorStore validatorStore;
+    private final ActiveUrlSource activeUrlSource;
+    private final UrlStatsStore urlStatsStore;
     private static final int THREAD_POOL_SIZE = 5;
-    private static final int FORK_JOIN_PARALLELISM = 8;
-    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    // Вес последнего запуска в сглаженной задержке ForkJoin
+    private static final double FORK_JOIN_LATENCY_ALPHA = 0.3;
+    // Сколько результатов отдельных URL ForkJoin возвращает в ответе
+    private static final int FORK_JOIN_RESULT_SAMPLE = 100;
     private final TracingService tracingService;
     private final SimpMessagingTemplate messagingTemplate;
 
@@ -57,13 +72,28 @@ public class UrlProcessingService {
                                 UrlResultRepository urlResultRepository,
                                 MeterRegistry meterRegistry,
                                 TracingService tracingService,
-                                SimpMessagingTemplate messagingTemplate) {
+                                SimpMessagingTemplate messagingTemplate,
+                                CrawlerProperties crawlerProperties,
+                                PageFetcher pageFetcher,
+                                HostPolitenessScheduler hostScheduler,
+                                UrlResultSink resultSink,
+                                EntityCountTracker countTracker,
+                                PageValidatorStore validatorStore,
+                                ActiveUrlSource activeUrlSource,
+                                UrlStatsStore urlStatsStore) {
 
         this.urlRepository = urlRepository;
         this.urlResultRepository = urlResultRepository;
         this.meterRegistry = meterRegistry;
         this.tracingService = tracingService;
         this.messagingTemplate = messagingTemplate;
+        this.pageFetcher = pageFetcher;
+        this.hostScheduler = hostScheduler;
+        this.resultSink = resultSink;
+        this.countTracker = countTracker;
+        this.validatorStore = validatorStore;
+        this.activeUrlSource = activeUrlSource;
+        this.urlStatsStore = urlStatsStore;
 
         this.threadPoolExecutor = new ThreadPoolExecutor(
                 THREAD_POOL_SIZE,
@@ -73,15 +103,38 @@ public class UrlProcessingService {
                 new ThreadPoolExecutor.CallerRunsPolicy()
         );
 
-        this.forkJoinPool = new ForkJoinPool(FORK_JOIN_PARALLELISM);
-
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(TIMEOUT)
-                .followRedirects(HttpClient.Redirect.NORMAL)
-                .build();
+        this.executionMode = crawlerProperties.getExecution().getMode();
+        this.virtualFetchExecutor = executionMode == CrawlerProperties.ExecutionMode.VIRTUAL
+                ? new VirtualThreadFetchExecutor(crawlerProperties.getExecution().getMaxConcurrency())
+                : null;
+
+        // Запас потоков сверх параллелизма - для подмены заблокированных в managedBlock;
+        // при исчерпании запаса задачи продолжают ждать без подмены
+        this.forkJoinConfig = crawlerProperties.getForkJoin();
+        this.forkJoinParallelism = forkJoinConfig.getParallelism() > 0
+                ? forkJoinConfig.getParallelism() : Runtime.getRuntime().availableProcessors();
+        this.forkJoinPool = new ForkJoinPool(forkJoinParallelism,
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false,
+                0, forkJoinParallelism + forkJoinConfig.getMaxBlockedWorkers(), 1,
+                pool -> true, 60L, TimeUnit.SECONDS);
+
+        // Отдельные пулы для стадий async-конвейера: CPU-извлечение и запись в БД
+        CrawlerProperties.Pipeline pipeline = crawlerProperties.getPipeline();
+        int extractionThreads = pipeline.getExtractionThreads() > 0
+                ? pipeline.getExtractionThreads() : Runtime.getRuntime().availableProcessors();
+        this.extractionExecutor = Executors.newFixedThreadPool(extractionThreads,
+                Thread.ofPlatform().name("url-extract-", 0).daemon().factory());
+        this.persistenceExecutor = Executors.newFixedThreadPool(pipeline.getPersistenceThreads(),
+                Thread.ofPlatform().name("url-persist-", 0).daemon().factory());
+        this.pipelineMaxInFlight = pipeline.getMaxInFlight();
 
         logger.info("ThreadPoolExecutor запущен с {} потоками", THREAD_POOL_SIZE);
-        logger.info("ForkJoinPool запущен с параллелизмом {}", FORK_JOIN_PARALLELISM);
+        if (virtualFetchExecutor != null) {
+            logger.info("Режим VIRTUAL: виртуальные потоки, лимит параллельных URL {}",
+                    virtualFetchExecutor.getMaxConcurrency());
+        }
+        logger.info("ForkJoinPool запущен с параллелизмом {}, managedBlock: {}, запас потоков {}",
+                forkJoinParallelism, forkJoinConfig.isManagedBlocking(), forkJoinConfig.getMaxBlockedWorkers());
         logger.info("TracingService инициализирован: {}", tracingService != null);
     }
 
@@ -126,25 +179,57 @@ public class UrlProcessingService {
                 .baseUnit("milliseconds")
                 .register(meterRegistry);
 
-        // Gauge для общего количества URL в базе
-        totalUrlsInDatabase = new AtomicLong(0);
-        Gauge.builder("database.urls.total", totalUrlsInDatabase, AtomicLong::get)
+        // Gauge для количества строк - из EntityCountTracker, без запросов к БД при опросе
+        Gauge.builder("database.urls.total", countTracker, EntityCountTracker::getTotalUrls)
                 .description("Общее количество URL в базе данных")
                 .register(meterRegistry);
 
         // Gauge для общего количества результатов в базе
-        Gauge.builder("database.results.total", urlResultRepository::count)
+        Gauge.builder("database.results.total", countTracker, EntityCountTracker::getTotalResults)
                 .description("Общее количество результатов парсинга")
                 .register(meterRegistry);
 
         // Gauge для активных URL
-        Gauge.builder("database.urls.active", urlRepository::countActiveUrls)
+        Gauge.builder("database.urls.active", countTracker, EntityCountTracker::getActiveUrls)
                 .description("Количество активных URL")
                 .register(meterRegistry);
 
+        // Gauge для выполняемых и ожидающих загрузок URL
+        Gauge.builder("url.fetch.inflight", this, UrlProcessingService::getFetchInFlight)
+                .description("Загрузки URL, выполняемые в данный момент")
+                .tags("mode", executionMode.name())
+                .register(meterRegistry);
+
+        Gauge.builder("url.fetch.queued", this, UrlProcessingService::getFetchQueued)
+                .description("Загрузки URL, ожидающие свободного слота")
+                .tags("mode", executionMode.name())
+                .register(meterRegistry);
+
         logger.info("Метрики успешно инициализированы");
     }
 
+    @PreDestroy
+    private void shutdownExecutors() {
+        if (virtualFetchExecutor != null) {
+            virtualFetchExecutor.shutdown();
+        }
+        extractionExecutor.shutdown();
+        persistenceExecutor.shutdown();
+    }
+
+    // Executor для загрузки URL в зависимости от режима выполнения
+    private Executor fetchExecutor() {
+        return virtualFetchExecutor != null ? virtualFetchExecutor : threadPoolExecutor;
+    }
+
+    private double getFetchInFlight() {
+        return virtualFetchExecutor != null ? virtualFetchExecutor.getInFlight() : threadPoolExecutor.getActiveCount();
+    }
+
+    private double getFetchQueued() {
+        return virtualFetchExecutor != null ? virtualFetchExecutor.getQueued() : threadPoolExecutor.getQueue().size();
+    }
+
     //КЭШ МЕТОДЫ
     @Cacheable(value = "urlById", key = "#id")
     public UrlEntity getUrlById(Long id) {
@@ -153,23 +238,14 @@ public class UrlProcessingService {
                 .orElseThrow(() -> new RuntimeException("URL not found: " + id));
     }
 
-    @Cacheable(value = "urls")
-    public List<UrlEntity> getAllUrls() {
-        logger.info("CACHE MISS - DB query for ALL URLs");
-        return urlRepository.findAll();
-    }
-
-    @Caching(evict = {
-            @CacheEvict(value = "urlById", key = "#url.id"),
-            @CacheEvict(value = "urls", allEntries = true)
-    })
+    @CacheEvict(value = "urlById", key = "#url.id")
     @Transactional
     public UrlEntity updateUrlEntity(UrlEntity url) {
         logger.info("CACHE EVICT - updating URL ID: {}", url.getId());
         return urlRepository.save(url);
     }
 
-    @CacheEvict(value = {"urlById", "urls"}, key = "#id")
+    @CacheEvict(value = "urlById", key = "#id")
     @Transactional
     public void deleteUrlById(Long id) {
         logger.info("CACHE EVICT - deleting URL ID: {}", id);
@@ -178,34 +254,58 @@ public class UrlProcessingService {
         }
     }
 
-    // ForkJoin обработка
-    @Transactional
+    // ForkJoin обработка: активные URL страницами, по ForkJoin задаче на страницу
     public CompletableFuture<Map<String, Object>> processUrlsWithForkJoin() {
-        List<UrlEntity> activeUrls = urlRepository.findByActiveTrueOrderByCreatedAtDesc();
-
-        if (activeUrls.isEmpty()) {
-            return CompletableFuture.completedFuture(Map.of(
-                    "message", "Нет ни одного URL для обработки",
-                    "processedCount", 0,
-                    "aggregatedStats", Map.of()
-            ));
-        }
-
-        logger.info("Запуск ForkJoin обработки для {} URLs", activeUrls.size());
+        logger.info("Запуск ForkJoin обработки активных URLs");
 
         return CompletableFuture.supplyAsync(() -> {
-            UrlProcessingTask mainTask = new UrlProcessingTask(activeUrls, this);
-            Map<String, Object> forkJoinResult = forkJoinPool.invoke(mainTask);
+            // Результаты URL уже записаны в UrlResultSink и разосланы по WebSocket,
+            // в ответ попадает только ограниченная выборка
+            ResultSample sample = new ResultSample(FORK_JOIN_RESULT_SAMPLE);
+            ForkJoinStats stats = new ForkJoinStats();
+            ForkJoinPlan[] lastPlan = new ForkJoinPlan[1];
+
+            long total = activeUrlSource.forEachChunk(chunk -> {
+                // План на каждую страницу: учитывает задержку, измеренную на предыдущих
+                ForkJoinPlan plan = ForkJoinPlan.of(chunk.size(), forkJoinParallelism,
+                        forkJoinLatencyMs, forkJoinConfig);
+                logger.debug("ForkJoin план: порог разбиения {}, одновременных загрузок до {}, задержка {} мс",
+                        plan.splitThreshold(), plan.maxConcurrentFetches(), String.format("%.1f", plan.observedLatencyMs()));
+
+                ForkJoinStats chunkStats = forkJoinPool.invoke(new UrlProcessingTask(chunk, this, sample::add, plan));
+                updateForkJoinLatency(chunkStats);
+                stats.merge(chunkStats);
+                lastPlan[0] = plan;
+            });
+
+            if (total == 0) {
+                return Map.<String, Object>of(
+                        "message", "Нет ни одного URL для обработки",
+                        "processedCount", 0,
+                        "aggregatedStats", Map.of()
+                );
+            }
 
             // Добавляем агрегированную статистику
-            Map<String, Object> finalResult = enhanceWithAggregatedStats(forkJoinResult);
-            logger.info("ForkJoin обработка завершена. Обработано {} URLs",
-                    forkJoinResult.get("processedCount"));
+            Map<String, Object> finalResult = enhanceWithAggregatedStats(stats, sample, lastPlan[0],
+                    forkJoinPool.getPoolSize());
+            logger.info("ForkJoin обработка завершена. Обработано {} URLs", stats.processed);
 
             return finalResult;
         }, threadPoolExecutor);
     }
 
+    // Сглаживание задержки между запусками: следующий план учитывает последние замеры
+    private void updateForkJoinLatency(ForkJoinStats stats) {
+        if (!stats.hasResponseTimes()) {
+            return;
+        }
+        double latest = stats.averageResponseTime();
+        double previous = forkJoinLatencyMs;
+        forkJoinLatencyMs = previous > 0
+                ? previous + FORK_JOIN_LATENCY_ALPHA * (latest - previous) : latest;
+    }
+
     // Метод для использования в ForkJoin задачах
     public Map<String, Object> processSingleUrlForForkJoin(UrlEntity urlEntity) throws Exception {
         return tracingService.traceOperation("processSingleUrlForForkJoin",
@@ -217,15 +317,9 @@ public class UrlProcessingService {
                     activeProcessingCount.incrementAndGet();
 
                     try {
-                        HttpRequest request = HttpRequest.newBuilder()
-                                .uri(URI.create(urlEntity.getUrl()))
-                                .timeout(TIMEOUT)
-                                .header("User-Agent", "URL-Parser-Bot/1.0")
-                                .GET()
-                                .build();
-
-                        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-                        long responseTime = System.currentTimeMillis() - startTime;
+                        QueuedPage queued = fetchPageInHostQueue(urlEntity);
+                        FetchedPage page = queued.page();
+                        long responseTime = System.currentTimeMillis() - queued.startedAt();
 
                         // Регистрируем время ответа
                         responseTimeDistribution.record(responseTime);
@@ -234,13 +328,14 @@ public class UrlProcessingService {
                         result.put("urlId", urlEntity.getId());
                         result.put("url", urlEntity.getUrl());
                         result.put("name", urlEntity.getName());
-                        result.put("statusCode", response.statusCode());
+                        result.put("statusCode", page.statusCode());
                         result.put("responseTime", responseTime);
-                        result.put("success", response.statusCode() == 200);
+                        result.put("success", page.statusCode() == 200);
+                        result.put("notModified", page.notModified());
                         result.put("processedAt", new Date());
 
-                        // Извлекаем контактную информацию
-                        Map<String, String> contactInfo = extractContactInfo(response.body());
+                        // Контактная информация уже извлечена при загрузке
+                        Map<String, String> contactInfo = page.contacts();
                         result.putAll(contactInfo);
 
                         // Подсчет количества найденных элементов
@@ -249,7 +344,7 @@ public class UrlProcessingService {
                         result.put("totalContactsFound", calculateTotalContacts(contactInfo));
 
                         // Сохраняем в базу и обновляем метрики
-                        if (saveUrlResult(urlEntity, response.statusCode(), responseTime, contactInfo, null)) {
+                        if (saveUrlResult(urlEntity, page, responseTime)) {
                             successfulParsingCounter.increment();
                             databaseWriteCounter.increment();
                         }
@@ -281,48 +376,74 @@ public class UrlProcessingService {
                         throw new RuntimeException("Ошибка обработки URL: " + e.getMessage(), e);
                     } finally {
                         activeProcessingCount.decrementAndGet();
-                        updateUrlCountMetrics();
                     }
                 });
     }
 
-    // Метод сохранения результатов
-    private boolean saveUrlResult(UrlEntity urlEntity, Integer statusCode, Long responseTime,
-                                  Map<String, String> contactInfo, String errorMessage) throws Exception {
-        return tracingService.traceOperation("saveUrlResult",
-                "db://url/" + urlEntity.getId(), () -> {
-                    try {
-                        UrlResultEntity result = new UrlResultEntity(urlEntity, statusCode, responseTime);
-                        if (contactInfo != null) {
-                            result.setEmail(contactInfo.get("email"));
-                            result.setPhone(contactInfo.get("phone"));
-                            result.setAddress(contactInfo.get("address"));
-                            result.setWorkingHours(contactInfo.get("workingHours"));
-                        }
-                        if (errorMessage != null) {
-                            result.setErrorMessage(errorMessage);
-                        }
-                        urlResultRepository.save(result);
-                        return true;
-                    } catch (Exception e) {
-                        logger.error("Ошибка сохранения результата для URL: {}", urlEntity.getUrl(), e);
-                        throw new RuntimeException("Ошибка сохранения в БД: " + e.getMessage(), e);
-                    }
-                });
+    // Блокирующая загрузка через очередь хоста - для ForkJoin задач и нагрузочного теста: поток ждет слот
+    // хоста и ответ (в ForkJoin задаче ожидание идет через managedBlock), лимиты и пауза между запросами
+    // к хосту соблюдаются так же, как в асинхронных запусках. startedAt - начало загрузки без ожидания в очереди
+    private QueuedPage fetchPageInHostQueue(UrlEntity urlEntity) throws Exception {
+        if (!hostScheduler.isEnabled()) {
+            long startedAt = System.currentTimeMillis();
+            return new QueuedPage(fetchPage(urlEntity), startedAt);
+        }
+        CompletableFuture<QueuedPage> queued = hostScheduler.submit(urlEntity.getUrl(), () -> {
+            long startedAt = System.currentTimeMillis();
+            return fetchPageAsync(urlEntity).thenApply(page -> new QueuedPage(page, startedAt));
+        });
+        try {
+            return queued.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
     }
 
-    private void updateUrlCountMetrics() {
-        // Обновляем метрики счетчиков
-        totalUrlsInDatabase.set(urlRepository.count());
+    private record QueuedPage(FetchedPage page, long startedAt) {
     }
 
-    // Агрегированная статистика
-    private Map<String, Object> enhanceWithAggregatedStats(Map<String, Object> forkJoinResult) {
-        Map<String, Object> enhanced = new HashMap<>(forkJoinResult);
+    // Метод сохранения результатов: запись пачками в UrlResultSink (спан трейсинга - на пачку)
+    private boolean saveUrlResult(UrlEntity urlEntity, FetchedPage page, Long responseTime) {
+        UrlResultEntity result = new UrlResultEntity(urlEntity, page.statusCode(), responseTime);
+        applyContactsToEntity(page.contacts(), result);
+        result.setRepeatOf(page.previousResultId());
+        resultSink.submit(result);
+        return true;
+    }
 
-        int processedCount = (int) forkJoinResult.getOrDefault("processedCount", 0);
-        int successCount = (int) forkJoinResult.getOrDefault("successCount", 0);
-        long totalResponseTime = (long) forkJoinResult.getOrDefault("totalResponseTime", 0L);
+    private boolean saveUrlResult(UrlEntity urlEntity, Integer statusCode, Long responseTime,
+                                  Map<String, String> contactInfo, String errorMessage) {
+        UrlResultEntity result = new UrlResultEntity(urlEntity, statusCode, responseTime);
+        if (contactInfo != null) {
+            result.setEmail(contactInfo.get("email"));
+            result.setPhone(contactInfo.get("phone"));
+            result.setAddress(contactInfo.get("address"));
+            result.setWorkingHours(contactInfo.get("workingHours"));
+        }
+        if (errorMessage != null) {
+            result.setErrorMessage(errorMessage);
+        }
+        resultSink.submit(result);
+        return true;
+    }
+
+    // Агрегированная статистика
+    private Map<String, Object> enhanceWithAggregatedStats(ForkJoinStats stats, ResultSample sample,
+                                                           ForkJoinPlan plan, int poolSize) {
+        Map<String, Object> enhanced = new HashMap<>();
+        enhanced.put("processedCount", stats.processed);
+        enhanced.put("successCount", stats.success);
+        enhanced.put("failedCount", stats.failed);
+        enhanced.put("totalResponseTime", stats.totalResponseTime);
+        enhanced.put("emailsFound", stats.emailsFound);
+        enhanced.put("phonesFound", stats.phonesFound);
+        enhanced.put("addressesFound", stats.addressesFound);
+        enhanced.put("totalBatches", stats.batches);
+        enhanced.put("results", sample.snapshot());
+        enhanced.put("resultsTruncated", stats.processed > sample.size());
+
+        int processedCount = stats.processed;
+        int successCount = stats.success;
 
         // Основная агрегированная статистика
         Map<String, Object> aggregatedStats = new HashMap<>();
@@ -331,22 +452,30 @@ public class UrlProcessingService {
         aggregatedStats.put("successRate", processedCount > 0 ?
                 String.format("%.1f%%", successCount * 100.0 / processedCount) : "0%");
         aggregatedStats.put("averageResponseTime", successCount > 0 ?
-                String.format("%.2f ms", totalResponseTime * 1.0 / successCount) : "N/A");
+                String.format("%.2f ms", stats.totalResponseTime * 1.0 / successCount) : "N/A");
+        if (stats.hasResponseTimes()) {
+            aggregatedStats.put("minResponseTime", stats.minResponseTime);
+            aggregatedStats.put("maxResponseTime", stats.maxResponseTime);
+        }
+        aggregatedStats.put("responseTimeHistogram", stats.histogramToMap());
 
         // Статистика по контактам
-        aggregatedStats.put("totalEmailsFound", forkJoinResult.getOrDefault("emailsFound", 0));
-        aggregatedStats.put("totalPhonesFound", forkJoinResult.getOrDefault("phonesFound", 0));
-        aggregatedStats.put("totalAddressesFound", forkJoinResult.getOrDefault("addressesFound", 0));
+        aggregatedStats.put("totalEmailsFound", stats.emailsFound);
+        aggregatedStats.put("totalPhonesFound", stats.phonesFound);
+        aggregatedStats.put("totalAddressesFound", stats.addressesFound);
 
         // Эффективность извлечения
         aggregatedStats.put("emailExtractionRate", processedCount > 0 ?
-                String.format("%.1f%%", (int)forkJoinResult.getOrDefault("emailsFound", 0) * 100.0 / processedCount) : "0%");
+                String.format("%.1f%%", stats.emailsFound * 100.0 / processedCount) : "0%");
         aggregatedStats.put("phoneExtractionRate", processedCount > 0 ?
-                String.format("%.1f%%", (int)forkJoinResult.getOrDefault("phonesFound", 0) * 100.0 / processedCount) : "0%");
+                String.format("%.1f%%", stats.phonesFound * 100.0 / processedCount) : "0%");
 
         // Производительность
-        aggregatedStats.put("totalBatchesProcessed", forkJoinResult.getOrDefault("totalBatches", 0));
-        aggregatedStats.put("forkJoinParallelism", FORK_JOIN_PARALLELISM);
+        aggregatedStats.put("totalBatchesProcessed", stats.batches);
+        aggregatedStats.put("forkJoinParallelism", plan.parallelism());
+        aggregatedStats.put("forkJoinPlan", plan.toMap());
+        // Больше параллелизма - пул подменял потоки, ждавшие сеть
+        aggregatedStats.put("forkJoinPoolSize", poolSize);
 
         enhanced.put("aggregatedStats", aggregatedStats);
         enhanced.put("processingType", "FORK_JOIN_RECURSIVE");
@@ -375,81 +504,123 @@ public class UrlProcessingService {
         return total;
     }
 
-    // СИНХРОННЫЙ МЕТОД - для оригинального контроллера
-    @Transactional
-    public CompletableFuture<Map<String, Object>> processAllUrls() {
-        List<UrlEntity> activeUrls = urlRepository.findByActiveTrueOrderByCreatedAtDesc();
-
-        if (activeUrls.isEmpty()) {
-            return CompletableFuture.completedFuture(Map.of(
-                    "message", "Нет ни одного URL",
-                    "processedCount", 0
-            ));
-        }
-
-        logger.info("начинаем обработку {} URLs", activeUrls.size());
-
-        List<CompletableFuture<UrlResultEntity>> futures = new ArrayList<>();
-
-        for (UrlEntity url : activeUrls) {
-            CompletableFuture<UrlResultEntity> future = CompletableFuture.supplyAsync(() -> {
-                try {
-                    return processSingleUrl(url);
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }, threadPoolExecutor);
-            futures.add(future);
-        }
-
-        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                .thenApply(v -> {
-                    List<UrlResultEntity> results = futures.stream()
-                            .map(CompletableFuture::join)
-                            .filter(Objects::nonNull)
-                            .toList();
-
-                    logger.info("Процесс обработки {} URLs завершен", results.size());
-
-                    return Map.of(
-                            "message", "Обработка URL завершена",
-                            "processedCount", results.size(),
-                            "status", "COMPLETED"
-                    );
-                });
+    // Обработка одного URL на пуле загрузок; очередь хоста - на стороне вызывающего (CrawlJobService)
+    public CompletableFuture<UrlResultEntity> processSingleUrlAsync(UrlEntity url) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return processSingleUrl(url);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }, fetchExecutor());
     }
 
-    // АСИНХРОННЫЙ МЕТОД - для Async контроллера
-    @Transactional
+    // АСИНХРОННЫЙ МЕТОД - для Async контроллера.
+    // Ответ содержит результат каждого URL; выборка и подача URL - страницами, без транзакции
     public CompletableFuture<List<Map<String, Object>>> processAllUrlsAsync() {
-        List<UrlEntity> activeUrls = urlRepository.findByActiveTrueOrderByCreatedAtDesc();
-
-        if (activeUrls.isEmpty()) {
-            return CompletableFuture.completedFuture(Collections.emptyList());
-        }
+        logger.info("Начинаем асинхронную обработку активных URLs");
+
+        List<Map<String, Object>> results = Collections.synchronizedList(new ArrayList<>());
+        // Статистика URL читается одной выборкой на страницу до подачи ее URL; запись удаляется при подаче,
+        // поэтому в памяти не больше окна и одной страницы
+        Map<Long, Map<String, Object>> additionalInfo = new ConcurrentHashMap<>();
+        Consumer<Consumer<UrlEntity>> source = consumer -> activeUrlSource.forEachChunk(chunk -> {
+            additionalInfo.putAll(urlStatsStore.summaries(chunk.stream().map(UrlEntity::getId).toList()));
+            chunk.forEach(consumer);
+        });
+        return ActiveUrlSource.dispatch("url-async-dispatcher", activeUrlSource.getMaxPending(), source,
+                        url -> processUrlWithTransformations(url,
+                                Objects.requireNonNullElse(additionalInfo.remove(url.getId()), Map.of())),
+                        (result, ex) -> {
+                            if (result != null) {
+                                results.add(result);
+                            }
+                        })
+                .thenApply(count -> {
+                    logger.info("Асинхронная обработка завершена, обработано {} URLs", results.size());
+                    return results;
+                });
+    }
 
-        logger.info("Начинаем асинхронную обработку {} URLs", activeUrls.size());
+    // NON-BLOCKING КОНВЕЙЕР - sendAsync -> извлечение -> запись в БД
+    public CompletableFuture<Map<String, Object>> processAllUrlsPipeline() {
+        // Без планировщика хостов окно ограничивает запросы "в полете". С ним лимиты держит планировщик
+        // (иначе медленный хост занял бы все окно), а окно лишь не дает очередям хостов расти с таблицей
+        int window = hostScheduler.isEnabled() ? activeUrlSource.getMaxPending() : pipelineMaxInFlight;
+        logger.info("Запуск non-blocking конвейера для активных URLs (окно {})", window);
+
+        PipelineRun run = new PipelineRun("NON_BLOCKING_PIPELINE");
+        return activeUrlSource.dispatch("url-pipeline-dispatcher", window,
+                        url -> hostScheduler.submit(url.getUrl(), () -> processUrlPipelined(url)),
+                        (result, ex) -> run.record(result))
+                .thenApply(count -> {
+                    logger.info("Конвейер завершен: обработано {} URLs", count);
+                    return run.toMap();
+                });
+    }
 
-        // Создаем список CompletableFuture для каждого URL
-        List<CompletableFuture<Map<String, Object>>> urlFutures = activeUrls.stream()
-                .map(this::processUrlWithTransformations)
-                .collect(Collectors.toList());
+    // Обход одного URL по расписанию (RecrawlScheduler) - те же стадии конвейера через планировщик хостов
+    public CompletableFuture<UrlResultEntity> processUrlScheduled(UrlEntity urlEntity) {
+        return hostScheduler.submit(urlEntity.getUrl(), () -> processUrlPipelined(urlEntity));
+    }
 
-        // Объединяем все futures в один
-        return CompletableFuture.allOf(urlFutures.toArray(new CompletableFuture[0]))
-                .thenApply(v -> urlFutures.stream()
-                        .map(CompletableFuture::join)
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList()))
-                .thenApply(results -> {
-                    logger.info("Асинхронная обработка завершена, обработано {} URLs", results.size());
-                    return results;
+    // Цепочка стадий для одного URL, ни одна стадия не блокируется на сети
+    private CompletableFuture<UrlResultEntity> processUrlPipelined(UrlEntity urlEntity) {
+        long startTime = System.currentTimeMillis();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        activeProcessingCount.incrementAndGet();
+
+        return fetchPageAsync(urlEntity)
+                .thenApplyAsync(page -> {
+                    long responseTime = System.currentTimeMillis() - startTime;
+                    responseTimeDistribution.record(responseTime);
+
+                    UrlResultEntity result = new UrlResultEntity(urlEntity, page.statusCode(), responseTime);
+                    applyContactsToEntity(page.contacts(), result);
+                    result.setRepeatOf(page.previousResultId());
+                    resultSink.submit(result);
+                    // Ответ получен, но 404/5xx - неудачная обработка, как и в остальных путях
+                    boolean success = page.statusCode() == 200;
+                    if (success) {
+                        successfulParsingCounter.increment();
+                    } else {
+                        failedParsingCounter.increment();
+                    }
+                    databaseWriteCounter.increment();
+                    notifyResult(urlEntity.getId(), Map.of(
+                            "urlId", urlEntity.getId(),
+                            "url", urlEntity.getUrl(),
+                            "statusCode", result.getStatusCode(),
+                            "responseTime", result.getResponseTime(),
+                            "success", success));
+                    return result;
+                }, persistenceExecutor)
+                .exceptionallyAsync(ex -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    failedParsingCounter.increment();
+                    logger.error("Ошибка конвейера для URL: {} - Error: {}", urlEntity.getUrl(), cause.getMessage());
+
+                    UrlResultEntity errorResult = new UrlResultEntity(urlEntity, -1,
+                            System.currentTimeMillis() - startTime);
+                    errorResult.setErrorMessage(cause.getMessage());
+                    try {
+                        resultSink.submit(errorResult);
+                        return errorResult;
+                    } catch (Exception e) {
+                        logger.error("Ошибка сохранения результата для URL: {}", urlEntity.getUrl(), e);
+                        return errorResult;
+                    }
+                }, persistenceExecutor)
+                .whenComplete((result, ex) -> {
+                    sample.stop(parsingTimer);
+                    activeProcessingCount.decrementAndGet();
                 });
     }
 
     // Асинхронная обработка одного URL с преобразованиями
-    private CompletableFuture<Map<String, Object>> processUrlWithTransformations(UrlEntity urlEntity) {
-        return CompletableFuture.supplyAsync(() -> {
+    private CompletableFuture<Map<String, Object>> processUrlWithTransformations(UrlEntity urlEntity,
+                                                                              Map<String, Object> additionalInfo) {
+        return hostScheduler.submit(urlEntity.getUrl(), () -> CompletableFuture.supplyAsync(() -> {
                     try {
                         // Получаем базовые данные URL
                         Map<String, Object> baseData = getUrlBaseData(urlEntity);
@@ -458,9 +629,9 @@ public class UrlProcessingService {
                         logger.error("Ошибка получения базовых данных для URL: {}", urlEntity.getUrl(), e);
                         return createErrorResult(urlEntity, e.getMessage());
                     }
-                }, threadPoolExecutor)
-                .thenApply(this::applyDataTransformations) // Применяем преобразования
-                .thenCombine(getAdditionalUrlInfo(urlEntity.getId()), this::combineResults) // Объединяем с доп. информацией
+                }, fetchExecutor()))
+                .thenApply(UrlResultTransformer::applyDataTransformations) // Применяем преобразования
+                .thenApply(data -> UrlResultTransformer.combineResults(data, additionalInfo)) // Объединяем со статистикой URL
                 .exceptionally(ex -> {
                     logger.error("Ошибка в цепочке обработки для URL: {}", urlEntity.getUrl(), ex);
                     return createErrorResult(urlEntity, ex.getMessage());
@@ -477,14 +648,7 @@ public class UrlProcessingService {
             activeProcessingCount.incrementAndGet();
 
             try {
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(urlEntity.getUrl()))
-                        .timeout(TIMEOUT)
-                        .header("User-Agent", "URL-Parser-Bot/1.0")
-                        .GET()
-                        .build();
-
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                FetchedPage page = fetchPage(urlEntity);
                 long responseTime = System.currentTimeMillis() - startTime;
 
                 // Регистрируем время ответа
@@ -495,23 +659,24 @@ public class UrlProcessingService {
                 result.put("urlId", urlEntity.getId());
                 result.put("url", urlEntity.getUrl());
                 result.put("name", urlEntity.getName());
-                result.put("statusCode", response.statusCode());
+                result.put("statusCode", page.statusCode());
                 result.put("responseTime", responseTime);
-                result.put("success", response.statusCode() == 200);
+                result.put("success", page.statusCode() == 200);
+                result.put("notModified", page.notModified());
                 result.put("processedAt", new Date());
 
-                // Извлекаем контактную информацию
-                Map<String, String> contactInfo = extractContactInfo(response.body());
+                // Контактная информация уже извлечена при загрузке
+                Map<String, String> contactInfo = page.contacts();
                 result.putAll(contactInfo);
 
                 // Сохраняем в базу и обновляем метрики
-                if (saveUrlResult(urlEntity, response.statusCode(), responseTime, contactInfo, null)) {
+                if (saveUrlResult(urlEntity, page, responseTime)) {
                     successfulParsingCounter.increment();
                     databaseWriteCounter.increment();
                 }
 
                 logger.debug("Успешно обработан URL: {} - Status: {} - Time: {}ms",
-                        urlEntity.getUrl(), response.statusCode(), responseTime);
+                        urlEntity.getUrl(), page.statusCode(), responseTime);
 
                 // Останавливаем таймер
                 sample.stop(parsingTimer);
@@ -534,104 +699,12 @@ public class UrlProcessingService {
                 throw new RuntimeException("Ошибка получения базовых данных: " + e.getMessage(), e);
             } finally {
                 activeProcessingCount.decrementAndGet();
-                updateUrlCountMetrics();
             }
         });
     }
 
-    // Применение преобразований к данным
-    private Map<String, Object> applyDataTransformations(Map<String, Object> data) {
-        Map<String, Object> transformed = new HashMap<>(data);
-
-        // Фильтрация: помечаем медленные запросы
-        Long responseTime = (Long) data.get("responseTime");
-        if (responseTime != null && responseTime > 5000) {
-            transformed.put("performance", "SLOW");
-        } else if (responseTime != null && responseTime > 2000) {
-            transformed.put("performance", "MEDIUM");
-        } else {
-            transformed.put("performance", "FAST");
-        }
-
-        // Форматирование: улучшаем читаемость данных
-        String email = (String) data.get("email");
-        if (email != null && !email.isEmpty()) {
-            transformed.put("emailFormatted", formatEmail(email));
-        }
-
-        String phone = (String) data.get("phone");
-        if (phone != null && !phone.isEmpty()) {
-            transformed.put("phoneFormatted", formatPhone(phone));
-        }
-
-        // Обогащение: добавляем оценку качества данных
-        int dataQualityScore = calculateDataQualityScore(data);
-        transformed.put("dataQualityScore", dataQualityScore);
-        transformed.put("dataQuality", dataQualityScore >= 8 ? "HIGH" :
-                dataQualityScore >= 5 ? "MEDIUM" : "LOW");
-
-        return transformed;
-    }
-
-    // Асинхронное получение дополнительной информации
-    private CompletableFuture<Map<String, Object>> getAdditionalUrlInfo(Long urlId) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                Map<String, Object> additionalInfo = new HashMap<>();
-
-                // Симулируем получение дополнительных данных
-                Thread.sleep(100);
-
-                // Получаем исторические данные
-                List<UrlResultEntity> history = urlResultRepository.findByUrlEntityIdOrderByProcessedAtDesc(urlId);
-                if (!history.isEmpty()) {
-                    additionalInfo.put("previousSuccessRate", calculateSuccessRate(history));
-                    additionalInfo.put("totalProcessings", history.size());
-
-                    // Среднее время ответа из истории
-                    Double avgHistoricalTime = history.stream()
-                            .filter(h -> h.getStatusCode() == 200)
-                            .mapToLong(UrlResultEntity::getResponseTime)
-                            .average()
-                            .orElse(0.0);
-                    additionalInfo.put("avgHistoricalResponseTime", avgHistoricalTime);
-                }
-
-                // Рейтинг надежности
-                additionalInfo.put("reliabilityRating", calculateReliabilityRating(urlId));
-
-                return additionalInfo;
-
-            } catch (Exception e) {
-                logger.warn("Ошибка получения дополнительной информации для URL ID: {}", urlId, e);
-                return Collections.emptyMap();
-            }
-        }, threadPoolExecutor);
-    }
-
-    // Объединение основных и дополнительных данных
-    private Map<String, Object> combineResults(Map<String, Object> mainData, Map<String, Object> additionalInfo) {
-        Map<String, Object> combined = new HashMap<>(mainData);
-        combined.putAll(additionalInfo);
-
-        // Создаем сводную оценку
-        int dataQualityScore = (Integer) mainData.getOrDefault("dataQualityScore", 0);
-        double reliabilityRating = (Double) additionalInfo.getOrDefault("reliabilityRating", 0.5);
-        double performanceScore = calculatePerformanceScore(mainData);
-
-        double overallScore = (dataQualityScore / 10.0 * 0.4) +
-                (reliabilityRating * 0.4) +
-                (performanceScore * 0.2);
-
-        combined.put("overallScore", Math.round(overallScore * 100.0) / 100.0);
-        combined.put("overallRating", overallScore >= 0.8 ? "EXCELLENT" :
-                overallScore >= 0.6 ? "GOOD" : overallScore >= 0.4 ? "FAIR" : "POOR");
-
-        return combined;
-    }
-
-    // Метод обработки одного URL
-    @Transactional
+    // Метод обработки одного URL. Без транзакции: результат пишет UrlResultSink своей транзакцией,
+    // соединение с БД не удерживается на время загрузки
     public UrlResultEntity processSingleUrl(UrlEntity urlEntity) throws Exception {
         return tracingService.traceOperation("processSingleUrl", urlEntity.getUrl(), () -> {
             long startTime = System.currentTimeMillis();
@@ -642,30 +715,24 @@ public class UrlProcessingService {
             activeProcessingCount.incrementAndGet();
 
             try {
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(urlEntity.getUrl()))
-                        .timeout(TIMEOUT)
-                        .header("User-Agent", "URL-Parser-Bot/1.0")
-                        .GET()
-                        .build();
-
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                FetchedPage page = fetchPage(urlEntity);
                 long responseTime = System.currentTimeMillis() - startTime;
 
                 // Регистрируем время ответа
                 responseTimeDistribution.record(responseTime);
 
-                UrlResultEntity result = new UrlResultEntity(urlEntity, response.statusCode(), responseTime);
-                extractContactInfoToEntity(response.body(), result);
+                UrlResultEntity result = new UrlResultEntity(urlEntity, page.statusCode(), responseTime);
+                applyContactsToEntity(page.contacts(), result);
+                result.setRepeatOf(page.previousResultId());
 
-                UrlResultEntity savedResult = urlResultRepository.save(result);
+                resultSink.submit(result);
 
                 // Обновляем метрики
                 successfulParsingCounter.increment();
                 databaseWriteCounter.increment();
 
                 logger.info("Успешно обработан URL: {} - Status: {} - Time: {}ms",
-                        urlEntity.getUrl(), response.statusCode(), responseTime);
+                        urlEntity.getUrl(), page.statusCode(), responseTime);
 
                 // Останавливаем таймер
                 sample.stop(parsingTimer);
@@ -675,20 +742,20 @@ public class UrlProcessingService {
                     Map<String, Object> wsResult = new HashMap<>();
                     wsResult.put("urlId", urlEntity.getId());
                     wsResult.put("url", urlEntity.getUrl());
-                    wsResult.put("statusCode", response.statusCode());
+                    wsResult.put("statusCode", page.statusCode());
                     wsResult.put("responseTime", responseTime);
                     wsResult.put("success", true);
                     messagingTemplate.convertAndSend("/topic/url/" + urlEntity.getId(), wsResult);
                 }
 
-                return savedResult;
+                return result;
 
             } catch (Exception e) {
                 long responseTime = System.currentTimeMillis() - startTime;
                 UrlResultEntity result = new UrlResultEntity(urlEntity, -1, responseTime);
                 result.setErrorMessage(e.getMessage());
 
-                UrlResultEntity savedResult = urlResultRepository.save(result);
+                resultSink.submit(result);
 
                 // Обновляем метрики ошибок
                 failedParsingCounter.increment();
@@ -702,17 +769,78 @@ public class UrlProcessingService {
                 throw new RuntimeException("Ошибка обработки URL: " + e.getMessage(), e);
             } finally {
                 activeProcessingCount.decrementAndGet();
-                updateUrlCountMetrics();
             }
         });
     }
 
-    // метод извлечения контактов в Entity
-    private void extractContactInfoToEntity(String content, UrlResultEntity result) throws Exception {
-        if (content == null) return;
+    // Загрузка страницы с извлечением контактов: потоково или из тела целиком.
+    // Если содержимое не изменилось (304 или тот же отпечаток), контакты берутся из прошлого результата
+    private FetchedPage fetchPage(UrlEntity urlEntity) throws Exception {
+        boolean conditional = validatorStore.hasValidators(urlEntity);
+        FetchedPage page;
+        if (pageFetcher.isStreaming()) {
+            HttpResponse<ExtractedPage> response = pageFetcher.sendStreaming(urlEntity);
+            ExtractedPage body = response.body();
+            page = toFetchedPage(urlEntity, conditional, response, body.bytesRead() + body.bytesSkipped(),
+                    body.contentHash(), body::contacts);
+        } else {
+            HttpResponse<String> response = pageFetcher.send(urlEntity);
+            page = toFetchedPage(urlEntity, conditional, response, response.body().length(),
+                    ContentFingerprint.of(response.body()), () -> extractContactInfo(response.body()));
+        }
+        if (page != null) {
+            return page;
+        }
+        FetchedPage previous = validatorStore.reusePrevious(urlEntity);
+        return previous != null ? previous : fetchPage(urlEntity);
+    }
 
-        Map<String, String> contacts = extractContactInfo(content);
+    // Неблокирующий вариант: при буферизации извлечение идет в пуле извлечения
+    private CompletableFuture<FetchedPage> fetchPageAsync(UrlEntity urlEntity) {
+        boolean conditional = validatorStore.hasValidators(urlEntity);
+        CompletableFuture<FetchedPage> fetched;
+        if (pageFetcher.isStreaming()) {
+            fetched = pageFetcher.sendStreamingAsync(urlEntity)
+                    .thenApplyAsync(response -> {
+                        ExtractedPage body = response.body();
+                        return toFetchedPage(urlEntity, conditional, response, body.bytesRead() + body.bytesSkipped(),
+                                body.contentHash(), body::contacts);
+                    }, persistenceExecutor);
+        } else {
+            fetched = pageFetcher.sendAsync(urlEntity)
+                    .thenApplyAsync(response -> toFetchedPage(urlEntity, conditional, response,
+                            response.body().length(), ContentFingerprint.of(response.body()),
+                            () -> extractContactInfo(response.body())), extractionExecutor);
+        }
+        return fetched.thenCompose(page -> page != null
+                ? CompletableFuture.completedFuture(page)
+                : CompletableFuture.supplyAsync(() -> validatorStore.reusePrevious(urlEntity), persistenceExecutor)
+                        .thenCompose(previous -> previous != null
+                                ? CompletableFuture.completedFuture(previous)
+                                : fetchPageAsync(urlEntity)));
+    }
+
+    // null - содержимое не изменилось, результат нужно взять из прошлой загрузки.
+    // В буферизованном режиме извлечение контактов при этом не выполняется
+    private FetchedPage toFetchedPage(UrlEntity urlEntity, boolean conditional, HttpResponse<?> response,
+                                      long bodyBytes, long contentHash, Callable<Map<String, String>> contacts) {
+        if (conditional && response.statusCode() == 304) {
+            validatorStore.notModified(urlEntity);
+            return null;
+        }
+        if (validatorStore.remember(urlEntity, response.statusCode(), response.headers(),
+                bodyBytes, conditional, contentHash)) {
+            return null;
+        }
+        try {
+            return new FetchedPage(response.statusCode(), contacts.call());
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
 
+    // метод переноса контактов в Entity
+    private void applyContactsToEntity(Map<String, String> contacts, UrlResultEntity result) {
         if (contacts.containsKey("email")) {
             result.setEmail(contacts.get("email"));
         }
@@ -731,94 +859,12 @@ public class UrlProcessingService {
     private Map<String, String> extractContactInfo(String content) throws Exception {
         return tracingService.traceOperation("extractContactInfo",
                 "content://" + (content != null ? content.hashCode() : "null"), () -> {
-                    Map<String, String> contacts = new HashMap<>();
-                    if (content == null) return contacts;
-
-                    // Регулярные выражения для извлечения контактов
-                    String emailRegex = "\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Z|a-z]{2,}\\b";
-                    String phoneRegex = "(\\+?\\d{1,3}[-.\\s]?)?\\(?\\d{3}\\)?[-.\\s]?\\d{3}[-.\\s]?\\d{4}";
-                    String addressRegex = "\\b(ул\\.|улица|проспект|пр\\.|бульвар|б-р|переулок|пер\\.)[^,.]{1,50},\\s*[^,.]{1,50}";
-                    String hoursRegex = "(пн|вт|ср|чт|пт|сб|вс|понед|вторник|среда|четверг|пятница|суббота|воскресенье)[^.]*\\d{1,2}[:.]\\d{2}[^.]*\\d{1,2}[:.]\\d{2}";
-
-                    // Извлечение email
-                    Pattern emailPattern = Pattern.compile(emailRegex);
-                    Matcher emailMatcher = emailPattern.matcher(content);
-                    Set<String> emails = new HashSet<>();
-                    while (emailMatcher.find()) {
-                        emails.add(emailMatcher.group());
-                    }
-                    if (!emails.isEmpty()) {
-                        contacts.put("email", String.join(", ", emails));
-                    }
+                    if (content == null) return new HashMap<>();
 
-                    // Извлечение телефонов
-                    Pattern phonePattern = Pattern.compile(phoneRegex);
-                    Matcher phoneMatcher = phonePattern.matcher(content);
-                    Set<String> phones = new HashSet<>();
-                    while (phoneMatcher.find()) {
-                        phones.add(phoneMatcher.group());
-                    }
-                    if (!phones.isEmpty()) {
-                        contacts.put("phone", String.join(", ", phones));
-                    }
-
-                    // Извлечение адреса
-                    Pattern addressPattern = Pattern.compile(addressRegex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
-                    Matcher addressMatcher = addressPattern.matcher(content);
-                    if (addressMatcher.find()) {
-                        contacts.put("address", addressMatcher.group());
-                    }
-
-                    // Извлечение часов работы
-                    Pattern hoursPattern = Pattern.compile(hoursRegex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
-                    Matcher hoursMatcher = hoursPattern.matcher(content);
-                    if (hoursMatcher.find()) {
-                        contacts.put("workingHours", hoursMatcher.group());
-                    }
-
-                    return contacts;
+                    return ContactScanner.scan(content).toMap();
                 });
     }
 
-    private String formatEmail(String email) {
-        return email.toLowerCase().trim();
-    }
-
-    private String formatPhone(String phone) {
-        return phone.replaceAll("\\s+", " ").trim();
-    }
-
-    private int calculateDataQualityScore(Map<String, Object> data) {
-        int score = 0;
-        if (data.get("email") != null && !((String) data.get("email")).isEmpty()) score += 3;
-        if (data.get("phone") != null && !((String) data.get("phone")).isEmpty()) score += 3;
-        if (data.get("address") != null && !((String) data.get("address")).isEmpty()) score += 2;
-        if (data.get("workingHours") != null && !((String) data.get("workingHours")).isEmpty()) score += 2;
-        return score;
-    }
-
-    private double calculateSuccessRate(List<UrlResultEntity> history) {
-        long successCount = history.stream()
-                .filter(h -> h.getStatusCode() == 200)
-                .count();
-        return history.isEmpty() ? 0.0 : (double) successCount / history.size();
-    }
-
-    private double calculateReliabilityRating(Long urlId) {
-        // Симулируем расчет рейтинга надежности
-        return ThreadLocalRandom.current().nextDouble(0.3, 1.0);
-    }
-
-    private double calculatePerformanceScore(Map<String, Object> data) {
-        Long responseTime = (Long) data.get("responseTime");
-        if (responseTime == null) return 0.0;
-
-        if (responseTime < 1000) return 1.0;
-        if (responseTime < 3000) return 0.7;
-        if (responseTime < 5000) return 0.4;
-        return 0.1;
-    }
-
     private Map<String, Object> createErrorResult(UrlEntity urlEntity, String errorMessage) {
         Map<String, Object> errorResult = new HashMap<>();
         errorResult.put("urlId", urlEntity.getId());
@@ -875,6 +921,9 @@ public class UrlProcessingService {
         stats.put("threadPoolActiveThreads", threadPoolExecutor.getActiveCount());
         stats.put("threadPoolQueueSize", threadPoolExecutor.getQueue().size());
         stats.put("threadPoolCompletedTasks", threadPoolExecutor.getCompletedTaskCount());
+        stats.put("executionMode", executionMode.name());
+        stats.put("fetchInFlight", (int) getFetchInFlight());
+        stats.put("fetchQueued", (int) getFetchQueued());
 
         return stats;
     }
@@ -942,11 +991,7 @@ public class UrlProcessingService {
                             metrics.put("responseTimeTotal", "N/A");
                         }
 
-                        if (totalUrlsInDatabase != null) {
-                            metrics.put("totalUrlsInDatabase", totalUrlsInDatabase.get());
-                        } else {
-                            metrics.put("totalUrlsInDatabase", 0);
-                        }
+                        metrics.put("totalUrlsInDatabase", countTracker.getTotalUrls());
 
                         // Добавляем системные метрики
                         metrics.put("jvmMemoryUsedBytes", Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
@@ -1008,6 +1053,67 @@ public class UrlProcessingService {
                 });
     }
 
+    // Итоги одного запуска без хранения списка результатов
+    private static final class PipelineRun {
+        private final String processingType;
+        private final long startedAt = System.currentTimeMillis();
+        private final AtomicInteger completed = new AtomicInteger(0);
+        private final AtomicInteger successCount = new AtomicInteger(0);
+        private final AtomicInteger failedCount = new AtomicInteger(0);
+
+        PipelineRun(String processingType) {
+            this.processingType = processingType;
+        }
+
+        void record(UrlResultEntity result) {
+            if (result != null && result.getStatusCode() != null && result.getStatusCode() == 200) {
+                successCount.incrementAndGet();
+            } else {
+                failedCount.incrementAndGet();
+            }
+            completed.incrementAndGet();
+        }
+
+        Map<String, Object> toMap() {
+            long durationMs = Math.max(1, System.currentTimeMillis() - startedAt);
+            Map<String, Object> summary = new HashMap<>();
+            summary.put("message", completed.get() > 0 ? "Обработка URL завершена" : "Нет ни одного URL");
+            summary.put("processingType", processingType);
+            summary.put("processedCount", completed.get());
+            summary.put("successCount", successCount.get());
+            summary.put("failedCount", failedCount.get());
+            summary.put("durationMs", durationMs);
+            summary.put("urlsPerSecond", String.format("%.2f", completed.get() * 1000.0 / durationMs));
+            summary.put("status", "COMPLETED");
+            return summary;
+        }
+    }
+
+    // Первые N результатов ForkJoin обработки, остальные только учитываются в ForkJoinStats
+    private static final class ResultSample {
+        private final int limit;
+        private final List<Map<String, Object>> results;
+
+        ResultSample(int limit) {
+            this.limit = limit;
+            this.results = new ArrayList<>(limit);
+        }
+
+        synchronized void add(Map<String, Object> result) {
+            if (results.size() < limit) {
+                results.add(result);
+            }
+        }
+
+        synchronized int size() {
+            return results.size();
+        }
+
+        synchronized List<Map<String, Object>> snapshot() {
+            return new ArrayList<>(results);
+        }
+    }
+
     public ThreadPoolExecutor getThreadPoolExecutor() {
         return threadPoolExecutor;
     }
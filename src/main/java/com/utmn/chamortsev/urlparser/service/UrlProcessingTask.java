@@ -3,149 +3,121 @@ package com.utmn.chamortsev.urlparser.service;
 import com.utmn.chamortsev.urlparser.entity.UrlEntity;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 
-// ForkJoin задачи
-class UrlProcessingTask extends RecursiveTask<Map<String, Object>> {
-    private static final int BATCH_SIZE = 3;
+// ForkJoin задачи: вверх по дереву поднимается только ForkJoinStats,
+// результаты отдельных URL сразу уходят в resultSink. Порог разбиения задает ForkJoinPlan
+class UrlProcessingTask extends RecursiveTask<ForkJoinStats> {
     private final List<UrlEntity> urls;
     private final UrlProcessingService service;
+    private final Consumer<Map<String, Object>> resultSink;
+    private final ForkJoinPlan plan;
     private final int start;
     private final int end;
 
-    public UrlProcessingTask(List<UrlEntity> urls, UrlProcessingService service) {
-        this(urls, service, 0, urls.size());
+    public UrlProcessingTask(List<UrlEntity> urls, UrlProcessingService service,
+                             Consumer<Map<String, Object>> resultSink, ForkJoinPlan plan) {
+        this(urls, service, resultSink, plan, 0, urls.size());
     }
 
-    private UrlProcessingTask(List<UrlEntity> urls, UrlProcessingService service, int start, int end) {
+    private UrlProcessingTask(List<UrlEntity> urls, UrlProcessingService service,
+                              Consumer<Map<String, Object>> resultSink, ForkJoinPlan plan, int start, int end) {
         this.urls = urls;
         this.service = service;
+        this.resultSink = resultSink;
+        this.plan = plan;
         this.start = start;
         this.end = end;
     }
 
     @Override
-    protected Map<String, Object> compute() {
+    protected ForkJoinStats compute() {
         int length = end - start;
 
         // Если задача маленькая - обрабатываем напрямую
-        if (length <= BATCH_SIZE) {
+        if (length <= plan.splitThreshold()) {
             return processBatch();
         }
 
         // Разбиваем задачу на подзадачи
         int middle = start + length / 2;
-        UrlProcessingTask leftTask = new UrlProcessingTask(urls, service, start, middle);
-        UrlProcessingTask rightTask = new UrlProcessingTask(urls, service, middle, end);
+        UrlProcessingTask leftTask = new UrlProcessingTask(urls, service, resultSink, plan, start, middle);
+        UrlProcessingTask rightTask = new UrlProcessingTask(urls, service, resultSink, plan, middle, end);
 
         // Асинхронно запускаем подзадачи
         leftTask.fork();
-        Map<String, Object> rightResult = rightTask.compute();
-        Map<String, Object> leftResult = leftTask.join();
+        ForkJoinStats rightResult = rightTask.compute();
+        ForkJoinStats leftResult = leftTask.join();
 
         // Объединяем результат
-        return mergeResults(leftResult, rightResult);
+        return leftResult.merge(rightResult);
     }
 
-    private Map<String, Object> processBatch() {
-        List<Map<String, Object>> batchResults = new ArrayList<>();
-        Map<String, Object> batchStats = new HashMap<>();
-
-        batchStats.put("batchSize", end - start);
-        batchStats.put("batchStart", start);
-        batchStats.put("batchEnd", end);
+    private ForkJoinStats processBatch() {
+        ForkJoinStats batchStats = new ForkJoinStats();
+        batchStats.batches = 1;
 
         for (int i = start; i < end; i++) {
             try {
                 UrlEntity url = urls.get(i);
-                Map<String, Object> result = service.processSingleUrlForForkJoin(url);
-                batchResults.add(result);
+                Map<String, Object> result = process(url);
 
                 // Агрегируем статистику
-                aggregateStats(batchStats, result);
+                batchStats.record(result);
+                resultSink.accept(result);
             } catch (Exception e) {
                 Map<String, Object> errorResult = new HashMap<>();
                 errorResult.put("url", urls.get(i).getUrl());
                 errorResult.put("success", false);
                 errorResult.put("error", e.getMessage());
-                batchResults.add(errorResult);
+
+                batchStats.recordFailure();
+                resultSink.accept(errorResult);
             }
         }
 
-        batchStats.put("processedCount", batchResults.size());
-        batchStats.put("results", batchResults);
-
         return batchStats;
     }
 
-    private void aggregateStats(Map<String, Object> stats, Map<String, Object> result) {
-        // Счетчик успешных запросов
-        if (Boolean.TRUE.equals(result.get("success"))) {
-            int successCount = (int) stats.getOrDefault("successCount", 0);
-            stats.put("successCount", successCount + 1);
+    private Map<String, Object> process(UrlEntity url) throws Exception {
+        if (!plan.managedBlocking()) {
+            return service.processSingleUrlForForkJoin(url);
         }
-
-        // Сумма времени ответа
-        Long responseTime = (Long) result.get("responseTime");
-        if (responseTime != null) {
-            long totalResponseTime = (long) stats.getOrDefault("totalResponseTime", 0L);
-            stats.put("totalResponseTime", totalResponseTime + responseTime);
-        }
-
-        // Подсчет контактных данных
-        if (result.get("email") != null && !((String) result.get("email")).isEmpty()) {
-            int emailCount = (int) stats.getOrDefault("emailsFound", 0);
-            stats.put("emailsFound", emailCount + 1);
-        }
-        if (result.get("phone") != null && !((String) result.get("phone")).isEmpty()) {
-            int phoneCount = (int) stats.getOrDefault("phonesFound", 0);
-            stats.put("phonesFound", phoneCount + 1);
-        }
-        if (result.get("address") != null && !((String) result.get("address")).isEmpty()) {
-            int addressCount = (int) stats.getOrDefault("addressesFound", 0);
-            stats.put("addressesFound", addressCount + 1);
+        // Пока поток ждет сеть, пул запускает замещающий поток для остальных задач
+        FetchBlocker blocker = new FetchBlocker(url);
+        ForkJoinPool.managedBlock(blocker);
+        if (blocker.error != null) {
+            throw blocker.error;
         }
+        return blocker.result;
     }
 
-    private Map<String, Object> mergeResults(Map<String, Object> left, Map<String, Object> right) {
-        Map<String, Object> merged = new HashMap<>();
-
-        // Объединяем статистику
-        merged.put("totalBatches",
-                (int) left.getOrDefault("totalBatches", 1) +
-                        (int) right.getOrDefault("totalBatches", 1));
-
-        merged.put("processedCount",
-                (int) left.getOrDefault("processedCount", 0) +
-                        (int) right.getOrDefault("processedCount", 0));
-
-        // Объединяем счетчики
-        merged.put("successCount",
-                (int) left.getOrDefault("successCount", 0) +
-                        (int) right.getOrDefault("successCount", 0));
+    private final class FetchBlocker implements ForkJoinPool.ManagedBlocker {
+        private final UrlEntity url;
+        private Map<String, Object> result;
+        private Exception error;
+        private boolean done;
 
-        merged.put("totalResponseTime",
-                (long) left.getOrDefault("totalResponseTime", 0L) +
-                        (long) right.getOrDefault("totalResponseTime", 0L));
-
-        merged.put("emailsFound",
-                (int) left.getOrDefault("emailsFound", 0) +
-                        (int) right.getOrDefault("emailsFound", 0));
-
-        merged.put("phonesFound",
-                (int) left.getOrDefault("phonesFound", 0) +
-                        (int) right.getOrDefault("phonesFound", 0));
-
-        merged.put("addressesFound",
-                (int) left.getOrDefault("addressesFound", 0) +
-                        (int) right.getOrDefault("addressesFound", 0));
+        FetchBlocker(UrlEntity url) {
+            this.url = url;
+        }
 
-        // Объединяем результат
-        List<Map<String, Object>> allResults = new ArrayList<>();
-        allResults.addAll((List<Map<String, Object>>) left.getOrDefault("results", Collections.emptyList()));
-        allResults.addAll((List<Map<String, Object>>) right.getOrDefault("results", Collections.emptyList()));
-        merged.put("results", allResults);
+        @Override
+        public boolean block() {
+            try {
+                result = service.processSingleUrlForForkJoin(url);
+            } catch (Exception e) {
+                error = e;
+            }
+            done = true;
+            return true;
+        }
 
-        return merged;
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
     }
 }
@@ -0,0 +1,109 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.dto.CursorPage;
+import com.utmn.chamortsev.urlparser.dto.UrlResultFilter;
+import com.utmn.chamortsev.urlparser.dto.UrlResultView;
+import com.utmn.chamortsev.urlparser.dto.UrlView;
+import com.utmn.chamortsev.urlparser.repository.UrlLatestResultRepository;
+import com.utmn.chamortsev.urlparser.repository.UrlRepository;
+import com.utmn.chamortsev.urlparser.repository.UrlResultRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToLongFunction;
+
+// Постраничные списки URL и результатов: keyset по id вместо OFFSET, проекции в DTO вместо сущностей.
+// Курсор - непрозрачная строка с id последнего элемента страницы; новые строки не сдвигают страницы
+@Service
+public class UrlQueryService {
+
+    private final UrlRepository urlRepository;
+    private final UrlResultRepository urlResultRepository;
+    private final UrlLatestResultRepository urlLatestResultRepository;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public UrlQueryService(UrlRepository urlRepository,
+                           UrlResultRepository urlResultRepository,
+                           UrlLatestResultRepository urlLatestResultRepository,
+                           CrawlerProperties crawlerProperties) {
+        this.urlRepository = urlRepository;
+        this.urlResultRepository = urlResultRepository;
+        this.urlLatestResultRepository = urlLatestResultRepository;
+        this.maxPageSize = Math.max(1, crawlerProperties.getApi().getMaxPageSize());
+        this.defaultPageSize = Math.min(maxPageSize, Math.max(1, crawlerProperties.getApi().getDefaultPageSize()));
+    }
+
+    public CursorPage<UrlView> findUrls(String cursor, Integer size, Boolean active, String host) {
+        int pageSize = pageSize(size);
+        List<UrlView> rows = urlRepository.findUrlPage(decodeCursor(cursor), active, normalizeHost(host),
+                Limit.of(pageSize + 1));
+        return page(rows, pageSize, UrlView::id);
+    }
+
+    public CursorPage<UrlResultView> findResults(String cursor, Integer size, UrlResultFilter filter) {
+        int pageSize = pageSize(size);
+        List<UrlResultView> rows = urlResultRepository.findResultPage(decodeCursor(cursor),
+                filter.urlId(), filter.active(), normalizeHost(filter.host()), filter.statusCode(),
+                filter.from(), filter.to(), filter.hasEmail(), filter.hasPhone(),
+                Limit.of(pageSize + 1));
+        return page(rows, pageSize, UrlResultView::id);
+    }
+
+    // Последний результат каждого активного URL; курсор - по id URL
+    public CursorPage<UrlResultView> findLatestResults(String cursor, Integer size, String host, Integer statusCode) {
+        int pageSize = pageSize(size);
+        List<UrlResultView> rows = urlLatestResultRepository.findActivePage(decodeCursor(cursor),
+                normalizeHost(host), statusCode, Limit.of(pageSize + 1));
+        return page(rows, pageSize, UrlResultView::urlId);
+    }
+
+    // Лишняя строка в выборке говорит, что следующая страница есть
+    private static <T> CursorPage<T> page(List<T> rows, int pageSize, ToLongFunction<T> id) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, rows.size(), null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new CursorPage<>(items, pageSize, encodeCursor(id.applyAsLong(items.get(pageSize - 1))));
+    }
+
+    private int pageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным");
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    static String normalizeHost(String host) {
+        return host == null || host.isBlank() ? null : host.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static String encodeCursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // Без курсора - первая страница
+    static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            long id = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.US_ASCII));
+            if (id > 0) {
+                return id;
+            }
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException - тоже IllegalArgumentException
+        }
+        throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+    }
+}
@@ -0,0 +1,249 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import com.utmn.chamortsev.urlparser.repository.UrlResultRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+// Отложенная запись результатов: все потоки обработки кладут результаты в ограниченную очередь,
+// один писатель сохраняет их пачками (по размеру или по времени) пакетными INSERT.
+// Полная очередь блокирует производителей - так БД притормаживает обход, а не копит память.
+// Результат с repeatOf (содержимое не изменилось) не вставляется, а отмечается в последней строке URL.
+// В той же транзакции обновляются url_latest_results (LatestResultStore) и url_stats (UrlStatsStore).
+@Component
+public class UrlResultSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(UrlResultSink.class);
+
+    private final UrlResultRepository urlResultRepository;
+    private final LatestResultStore latestResultStore;
+    private final UrlStatsStore urlStatsStore;
+    private final TransactionTemplate transactionTemplate;
+    private final TracingService tracingService;
+    private final BlockingQueue<UrlResultEntity> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Thread writer;
+    private volatile boolean running = true;
+    // Последний успешный результат URL (по id URL), который еще не записан: пока он в очереди,
+    // последняя строка в БД устарела и переиспользовать ее нельзя (PageValidatorStore)
+    private final ConcurrentMap<Long, UrlResultEntity> pendingSuccess = new ConcurrentHashMap<>();
+
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizeSummary;
+    private final Counter repeatCounter;
+
+    public UrlResultSink(UrlResultRepository urlResultRepository,
+                         LatestResultStore latestResultStore,
+                         UrlStatsStore urlStatsStore,
+                         PlatformTransactionManager transactionManager,
+                         TracingService tracingService,
+                         MeterRegistry meterRegistry,
+                         CrawlerProperties crawlerProperties) {
+        CrawlerProperties.Persistence persistence = crawlerProperties.getPersistence();
+        this.urlResultRepository = urlResultRepository;
+        this.latestResultStore = latestResultStore;
+        this.urlStatsStore = urlStatsStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tracingService = tracingService;
+        this.queue = new ArrayBlockingQueue<>(persistence.getQueueCapacity());
+        this.batchSize = persistence.getBatchSize();
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(persistence.getFlushIntervalMs());
+
+        Gauge.builder("url.results.sink.queue", queue, BlockingQueue::size)
+                .description("Результаты, ожидающие записи в БД")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("url.results.sink.flush.time")
+                .description("Время записи пачки результатов")
+                .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("url.results.sink.batch.size")
+                .description("Размер записанной пачки результатов")
+                .register(meterRegistry);
+        this.repeatCounter = Counter.builder("url.results.sink.repeats")
+                .description("Повторы результата: обновлена существующая строка вместо вставки")
+                .register(meterRegistry);
+
+        this.writer = Thread.ofPlatform().name("url-result-writer").daemon().start(this::writeLoop);
+        logger.info("UrlResultSink: пачка {}, интервал {} мс, очередь {}",
+                batchSize, persistence.getFlushIntervalMs(), persistence.getQueueCapacity());
+    }
+
+    // Ставит результат в очередь записи; при заполненной очереди ждет
+    public void submit(UrlResultEntity result) {
+        if (result.getProcessedAt() == null) {
+            // Время обработки, а не время записи пачки
+            result.setProcessedAt(LocalDateTime.now());
+        }
+        if (!running) {
+            saveOne(result);
+            return;
+        }
+        Long urlId = urlIdOf(result);
+        boolean success = urlId != null && result.getStatusCode() != null && result.getStatusCode() == 200;
+        if (success) {
+            pendingSuccess.put(urlId, result);
+        }
+        try {
+            queue.put(result);
+        } catch (InterruptedException e) {
+            if (success) {
+                pendingSuccess.remove(urlId, result);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Прервано ожидание места в очереди записи", e);
+        }
+    }
+
+    // Успешный результат URL, поставленный в очередь и еще не записанный, или null
+    public UrlResultEntity pendingSuccess(Long urlId) {
+        return pendingSuccess.get(urlId);
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void writeLoop() {
+        List<UrlResultEntity> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                UrlResultEntity first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Добираем пачку до размера или до истечения интервала с первого результата
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    UrlResultEntity next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                // Прерывание при остановке - дописываем остаток в shutdown()
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                logger.error("Ошибка записи пачки результатов", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<UrlResultEntity> batch) throws Exception {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Timer.Sample sample = Timer.start();
+        try {
+            tracingService.traceOperation("flushUrlResults", "db://url_results/batch/" + batch.size(), () ->
+                    transactionTemplate.execute(status -> {
+                        List<UrlResultEntity> inserts = new ArrayList<>(batch.size());
+                        for (UrlResultEntity result : batch) {
+                            if (!markRepeat(result)) {
+                                inserts.add(result);
+                            }
+                        }
+                        List<UrlResultEntity> saved = urlResultRepository.saveAll(inserts);
+                        latestResultStore.inserted(saved);
+                        urlStatsStore.record(batch);
+                        return saved;
+                    }));
+        } catch (Exception e) {
+            // Пачка откатилась целиком - пишем по одному, чтобы потерять только проблемные строки
+            logger.warn("Пачка из {} результатов не записана ({}), запись по одному", batch.size(), e.getMessage());
+            for (UrlResultEntity result : batch) {
+                try {
+                    result.setId(null);
+                    saveOne(result);
+                } catch (Exception rowError) {
+                    logger.error("Результат для URL ID {} не сохранен: {}",
+                            result.getUrlEntity() != null ? result.getUrlEntity().getId() : null,
+                            rowError.getMessage());
+                }
+            }
+        } finally {
+            // После фиксации транзакции последний результат читается из БД; более новый, уже
+            // поставленный в очередь, остается в pendingSuccess
+            for (UrlResultEntity result : batch) {
+                Long urlId = urlIdOf(result);
+                if (urlId != null) {
+                    pendingSuccess.remove(urlId, result);
+                }
+            }
+            sample.stop(flushTimer);
+            batchSizeSummary.record(batch.size());
+        }
+    }
+
+    private static Long urlIdOf(UrlResultEntity result) {
+        return result.getUrlEntity() != null ? result.getUrlEntity().getId() : null;
+    }
+
+    private void saveOne(UrlResultEntity result) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!markRepeat(result)) {
+                latestResultStore.inserted(List.of(urlResultRepository.save(result)));
+            }
+            urlStatsStore.record(List.of(result));
+        });
+    }
+
+    // false - строка уже не последняя для URL (или это не повтор), результат нужно вставить
+    private boolean markRepeat(UrlResultEntity result) {
+        if (result.getRepeatOf() == null
+                || urlResultRepository.markSeenAgain(result.getRepeatOf(), result.getProcessedAt()) == 0) {
+            return false;
+        }
+        latestResultStore.seenAgain(result.getRepeatOf(), result.getProcessedAt());
+        repeatCounter.increment();
+        return true;
+    }
+
+    @PreDestroy
+    void shutdown() throws Exception {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        if (writer.isAlive()) {
+            writer.interrupt();
+            writer.join();
+        }
+
+        // Остаток очереди, если писатель был прерван
+        List<UrlResultEntity> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (int from = 0; from < rest.size(); from += batchSize) {
+            flush(rest.subList(from, Math.min(rest.size(), from + batchSize)));
+        }
+        logger.info("UrlResultSink остановлен, очередь записана");
+    }
+}
@@ -0,0 +1,93 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Преобразования результата обработки URL: классификация, форматирование, оценки качества
+final class UrlResultTransformer {
+
+    private UrlResultTransformer() {
+    }
+
+    // Применение преобразований к данным
+    static Map<String, Object> applyDataTransformations(Map<String, Object> data) {
+        Map<String, Object> transformed = new HashMap<>(data);
+
+        // Фильтрация: помечаем медленные запросы
+        Long responseTime = (Long) data.get("responseTime");
+        if (responseTime != null && responseTime > 5000) {
+            transformed.put("performance", "SLOW");
+        } else if (responseTime != null && responseTime > 2000) {
+            transformed.put("performance", "MEDIUM");
+        } else {
+            transformed.put("performance", "FAST");
+        }
+
+        // Форматирование: улучшаем читаемость данных
+        String email = (String) data.get("email");
+        if (email != null && !email.isEmpty()) {
+            transformed.put("emailFormatted", formatEmail(email));
+        }
+
+        String phone = (String) data.get("phone");
+        if (phone != null && !phone.isEmpty()) {
+            transformed.put("phoneFormatted", formatPhone(phone));
+        }
+
+        // Обогащение: добавляем оценку качества данных
+        int dataQualityScore = calculateDataQualityScore(data);
+        transformed.put("dataQualityScore", dataQualityScore);
+        transformed.put("dataQuality", dataQualityScore >= 8 ? "HIGH" :
+                dataQualityScore >= 5 ? "MEDIUM" : "LOW");
+
+        return transformed;
+    }
+
+    // Объединение основных и дополнительных данных
+    static Map<String, Object> combineResults(Map<String, Object> mainData, Map<String, Object> additionalInfo) {
+        Map<String, Object> combined = new HashMap<>(mainData);
+        combined.putAll(additionalInfo);
+
+        // Создаем сводную оценку
+        int dataQualityScore = (Integer) mainData.getOrDefault("dataQualityScore", 0);
+        double reliabilityRating = (Double) additionalInfo.getOrDefault("reliabilityRating", 0.5);
+        double performanceScore = calculatePerformanceScore(mainData);
+
+        double overallScore = (dataQualityScore / 10.0 * 0.4) +
+                (reliabilityRating * 0.4) +
+                (performanceScore * 0.2);
+
+        combined.put("overallScore", Math.round(overallScore * 100.0) / 100.0);
+        combined.put("overallRating", overallScore >= 0.8 ? "EXCELLENT" :
+                overallScore >= 0.6 ? "GOOD" : overallScore >= 0.4 ? "FAIR" : "POOR");
+
+        return combined;
+    }
+
+    private static String formatEmail(String email) {
+        return email.toLowerCase().trim();
+    }
+
+    private static String formatPhone(String phone) {
+        return phone.replaceAll("\\s+", " ").trim();
+    }
+
+    private static int calculateDataQualityScore(Map<String, Object> data) {
+        int score = 0;
+        if (data.get("email") != null && !((String) data.get("email")).isEmpty()) score += 3;
+        if (data.get("phone") != null && !((String) data.get("phone")).isEmpty()) score += 3;
+        if (data.get("address") != null && !((String) data.get("address")).isEmpty()) score += 2;
+        if (data.get("workingHours") != null && !((String) data.get("workingHours")).isEmpty()) score += 2;
+        return score;
+    }
+
+    private static double calculatePerformanceScore(Map<String, Object> data) {
+        Long responseTime = (Long) data.get("responseTime");
+        if (responseTime == null) return 0.0;
+
+        if (responseTime < 1000) return 1.0;
+        if (responseTime < 3000) return 0.7;
+        if (responseTime < 5000) return 0.4;
+        return 0.1;
+    }
+}
@@ -0,0 +1,114 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.core.RecentOutcomes;
+import com.utmn.chamortsev.urlparser.entity.UrlEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlStatsEntity;
+import com.utmn.chamortsev.urlparser.repository.UrlStatsRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Накопительная статистика URL (url_stats) вместо пересчета по истории url_results.
+// Запись - из UrlResultSink в его транзакции: одна выборка строк статистики на пачку, изменения
+// уходят пакетными UPDATE при фиксации. Писатель один, поэтому чтение-изменение-запись без блокировок
+@Component
+public class UrlStatsStore {
+
+    // Столбец recent - 1024 символа, элемент "статус:мс" - до ~20
+    private static final int MAX_WINDOW = 50;
+
+    private final UrlStatsRepository urlStatsRepository;
+    private final EntityManager entityManager;
+    private final double alpha;
+    private final int window;
+
+    public UrlStatsStore(UrlStatsRepository urlStatsRepository,
+                         EntityManager entityManager,
+                         CrawlerProperties crawlerProperties) {
+        this.urlStatsRepository = urlStatsRepository;
+        this.entityManager = entityManager;
+        this.alpha = Math.min(1.0, Math.max(0.01, crawlerProperties.getStats().getEwmaAlpha()));
+        this.window = Math.min(MAX_WINDOW, Math.max(1, crawlerProperties.getStats().getWindow()));
+    }
+
+    // Все записанные обходы, включая повторы; вызывается внутри транзакции
+    public void record(List<UrlResultEntity> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        Map<Long, List<UrlResultEntity>> byUrl = new LinkedHashMap<>();
+        for (UrlResultEntity result : results) {
+            byUrl.computeIfAbsent(result.getUrlEntity().getId(), id -> new ArrayList<>()).add(result);
+        }
+        Map<Long, UrlStatsEntity> existing = new HashMap<>();
+        for (UrlStatsEntity stats : urlStatsRepository.findAllById(byUrl.keySet())) {
+            existing.put(stats.getUrlId(), stats);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        byUrl.forEach((urlId, urlResults) -> {
+            UrlStatsEntity stats = existing.get(urlId);
+            boolean created = stats == null;
+            if (created) {
+                stats = new UrlStatsEntity();
+                stats.setUrlId(urlId);
+                stats.setUrlEntity(entityManager.getReference(UrlEntity.class, urlId));
+            }
+            RecentOutcomes recent = RecentOutcomes.parse(stats.getRecent(), window);
+            for (UrlResultEntity result : urlResults) {
+                apply(stats, recent, result);
+            }
+            stats.setRecent(recent.encode());
+            stats.setUpdatedAt(now);
+            if (created) {
+                entityManager.persist(stats);
+            }
+        });
+    }
+
+    private void apply(UrlStatsEntity stats, RecentOutcomes recent, UrlResultEntity result) {
+        int status = result.getStatusCode() != null ? result.getStatusCode() : -1;
+        long responseTime = result.getResponseTime() != null ? result.getResponseTime() : 0;
+        stats.setCrawlCount(stats.getCrawlCount() + 1);
+        if (status == 200) {
+            stats.setSuccessCount(stats.getSuccessCount() + 1);
+            stats.setSuccessTimeSum(stats.getSuccessTimeSum() + responseTime);
+            Double ewma = stats.getEwmaResponseTime();
+            stats.setEwmaResponseTime(ewma == null ? responseTime : ewma + alpha * (responseTime - ewma));
+        }
+        recent.add(status, responseTime);
+    }
+
+    // Сводки для обогащения результатов одной выборкой на набор URL; URL без обходов в ответ не попадают
+    public Map<Long, Map<String, Object>> summaries(Collection<Long> urlIds) {
+        Map<Long, Map<String, Object>> summaries = new HashMap<>();
+        if (urlIds.isEmpty()) {
+            return summaries;
+        }
+        for (UrlStatsEntity stats : urlStatsRepository.findAllById(urlIds)) {
+            summaries.put(stats.getUrlId(), summary(stats));
+        }
+        return summaries;
+    }
+
+    private Map<String, Object> summary(UrlStatsEntity stats) {
+        RecentOutcomes recent = RecentOutcomes.parse(stats.getRecent(), window);
+        double recentSuccessRate = recent.size() > 0 ? recent.successRate() : 0.0;
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("totalProcessings", stats.getCrawlCount());
+        summary.put("previousSuccessRate", stats.getCrawlCount() == 0 ? 0.0
+                : (double) stats.getSuccessCount() / stats.getCrawlCount());
+        summary.put("avgHistoricalResponseTime", stats.getSuccessCount() == 0 ? 0.0
+                : (double) stats.getSuccessTimeSum() / stats.getSuccessCount());
+        summary.put("ewmaResponseTime", stats.getEwmaResponseTime() != null ? stats.getEwmaResponseTime() : 0.0);
+        summary.put("recentSuccessRate", recentSuccessRate);
+        summary.put("recentProcessings", recent.size());
+        // Надежность - доля успехов в последних обходах: отражает текущее состояние сайта
+        summary.put("reliabilityRating", recentSuccessRate);
+        return summary;
+    }
+}
@@ -0,0 +1,57 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Executor: каждый URL в своем виртуальном потоке, глобальный лимит через семафор
+class VirtualThreadFetchExecutor implements Executor {
+
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicInteger queued = new AtomicInteger(0);
+
+    VirtualThreadFetchExecutor(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+        this.delegate = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("url-fetch-", 0).factory());
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        queued.incrementAndGet();
+        delegate.execute(() -> {
+            // Ожидание разрешения блокирует только виртуальный поток
+            permits.acquireUninterruptibly();
+            queued.decrementAndGet();
+            inFlight.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                inFlight.decrementAndGet();
+                permits.release();
+            }
+        });
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    int getQueued() {
+        return queued.get();
+    }
+
+    int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    void shutdown() {
+        delegate.shutdown();
+    }
+}
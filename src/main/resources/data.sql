@@ -3,24 +3,25 @@ DELETE FROM url_results;
 DELETE FROM urls;
 
 -- Вставка начальных URL по которым производим парсинг
-INSERT INTO urls (url, name, description, created_at, active) VALUES
-('https://jsonplaceholder.typicode.com/users', 'JSONPlaceholder Users', 'Test API for users data', CURRENT_TIMESTAMP, true),
-('https://api.github.com/users', 'GitHub Users API', 'GitHub public users API', CURRENT_TIMESTAMP, true),
-('https://reqres.in/api/users', 'ReqRes API', 'Test API for user operations', CURRENT_TIMESTAMP, true),
-('https://httpbin.org/json', 'HTTPBin JSON', 'HTTP testing service', CURRENT_TIMESTAMP, true),
-('https://catfact.ninja/fact', 'Cat Facts API', 'Random cat facts', CURRENT_TIMESTAMP, true),
-('https://dog.ceo/api/breeds/image/random', 'Dog CEO API', 'Random dog images', CURRENT_TIMESTAMP, true),
-('https://api.agify.io/?name=alex', 'Agify API', 'Age prediction by name', CURRENT_TIMESTAMP, true),
-('https://api.genderize.io/?name=alex', 'Genderize API', 'Gender prediction by name', CURRENT_TIMESTAMP, true),
-('https://api.nationalize.io/?name=alex', 'Nationalize API', 'Nationality prediction by name', CURRENT_TIMESTAMP, true),
-('https://www.boredapi.com/api/activity', 'Bored API', 'Random activities', CURRENT_TIMESTAMP, true),
-('https://api.publicapis.org/entries', 'Public APIs', 'List of public APIs', CURRENT_TIMESTAMP, true),
-('https://api.zippopotam.us/us/90210', 'Zippopotam API', 'Zip code information', CURRENT_TIMESTAMP, true),
-('https://datausa.io/api/data?drilldowns=Nation&measures=Population', 'Data USA API', 'US population data', CURRENT_TIMESTAMP, true),
-('https://api.kanye.rest/', 'Kanye Rest API', 'Random Kanye West quotes', CURRENT_TIMESTAMP, true),
-('https://official-joke-api.appspot.com/random_joke', 'Joke API', 'Random jokes', CURRENT_TIMESTAMP, true),
-('https://randomuser.me/api/', 'Random User API', 'Random user data', CURRENT_TIMESTAMP, true),
-('https://api.adviceslip.com/advice', 'Advice Slip API', 'Random advice', CURRENT_TIMESTAMP, true),
-('https://www.thecocktaildb.com/api/json/v1/1/random.php', 'Cocktail DB API', 'Random cocktail recipes', CURRENT_TIMESTAMP, true),
-('https://api.coindesk.com/v1/bpi/currentprice.json', 'CoinDesk API', 'Bitcoin price index', CURRENT_TIMESTAMP, true),
-('https://openlibrary.org/books/OL7353617M.json', 'Open Library API', 'Book information', CURRENT_TIMESTAMP, true);
\ No newline at end of file
+-- canonical_url и host (UrlCanonicalizer) при JPA-вставке заполняет UrlEntity
+INSERT INTO urls (url, canonical_url, host, name, description, created_at, active) VALUES
+('https://jsonplaceholder.typicode.com/users', 'https://jsonplaceholder.typicode.com/users', 'jsonplaceholder.typicode.com', 'JSONPlaceholder Users', 'Test API for users data', CURRENT_TIMESTAMP, true),
+('https://api.github.com/users', 'https://api.github.com/users', 'api.github.com', 'GitHub Users API', 'GitHub public users API', CURRENT_TIMESTAMP, true),
+('https://reqres.in/api/users', 'https://reqres.in/api/users', 'reqres.in', 'ReqRes API', 'Test API for user operations', CURRENT_TIMESTAMP, true),
+('https://httpbin.org/json', 'https://httpbin.org/json', 'httpbin.org', 'HTTPBin JSON', 'HTTP testing service', CURRENT_TIMESTAMP, true),
+('https://catfact.ninja/fact', 'https://catfact.ninja/fact', 'catfact.ninja', 'Cat Facts API', 'Random cat facts', CURRENT_TIMESTAMP, true),
+('https://dog.ceo/api/breeds/image/random', 'https://dog.ceo/api/breeds/image/random', 'dog.ceo', 'Dog CEO API', 'Random dog images', CURRENT_TIMESTAMP, true),
+('https://api.agify.io/?name=alex', 'https://api.agify.io/?name=alex', 'api.agify.io', 'Agify API', 'Age prediction by name', CURRENT_TIMESTAMP, true),
+('https://api.genderize.io/?name=alex', 'https://api.genderize.io/?name=alex', 'api.genderize.io', 'Genderize API', 'Gender prediction by name', CURRENT_TIMESTAMP, true),
+('https://api.nationalize.io/?name=alex', 'https://api.nationalize.io/?name=alex', 'api.nationalize.io', 'Nationalize API', 'Nationality prediction by name', CURRENT_TIMESTAMP, true),
+('https://www.boredapi.com/api/activity', 'https://www.boredapi.com/api/activity', 'www.boredapi.com', 'Bored API', 'Random activities', CURRENT_TIMESTAMP, true),
+('https://api.publicapis.org/entries', 'https://api.publicapis.org/entries', 'api.publicapis.org', 'Public APIs', 'List of public APIs', CURRENT_TIMESTAMP, true),
+('https://api.zippopotam.us/us/90210', 'https://api.zippopotam.us/us/90210', 'api.zippopotam.us', 'Zippopotam API', 'Zip code information', CURRENT_TIMESTAMP, true),
+('https://datausa.io/api/data?drilldowns=Nation&measures=Population', 'https://datausa.io/api/data?drilldowns=Nation&measures=Population', 'datausa.io', 'Data USA API', 'US population data', CURRENT_TIMESTAMP, true),
+('https://api.kanye.rest/', 'https://api.kanye.rest/', 'api.kanye.rest', 'Kanye Rest API', 'Random Kanye West quotes', CURRENT_TIMESTAMP, true),
+('https://official-joke-api.appspot.com/random_joke', 'https://official-joke-api.appspot.com/random_joke', 'official-joke-api.appspot.com', 'Joke API', 'Random jokes', CURRENT_TIMESTAMP, true),
+('https://randomuser.me/api/', 'https://randomuser.me/api', 'randomuser.me', 'Random User API', 'Random user data', CURRENT_TIMESTAMP, true),
+('https://api.adviceslip.com/advice', 'https://api.adviceslip.com/advice', 'api.adviceslip.com', 'Advice Slip API', 'Random advice', CURRENT_TIMESTAMP, true),
+('https://www.thecocktaildb.com/api/json/v1/1/random.php', 'https://www.thecocktaildb.com/api/json/v1/1/random.php', 'www.thecocktaildb.com', 'Cocktail DB API', 'Random cocktail recipes', CURRENT_TIMESTAMP, true),
+('https://api.coindesk.com/v1/bpi/currentprice.json', 'https://api.coindesk.com/v1/bpi/currentprice.json', 'api.coindesk.com', 'CoinDesk API', 'Bitcoin price index', CURRENT_TIMESTAMP, true),
+('https://openlibrary.org/books/OL7353617M.json', 'https://openlibrary.org/books/OL7353617M.json', 'openlibrary.org', 'Open Library API', 'Book information', CURRENT_TIMESTAMP, true);
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.utmn.chamortsev.urlparser.adapters;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpContentFetcherTest {
+
+    private static final String PAGE = "<p>info@example.com</p>".repeat(100);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/gzip", exchange -> respond(exchange, "gzip", gzip(PAGE)));
+        server.createContext("/deflate", exchange -> respond(exchange, "deflate", deflate(PAGE)));
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void compressedBodiesAreDecodedAndCounted() {
+        HttpContentFetcher fetcher = fetcher(1024 * 1024);
+
+        assertEquals(PAGE, fetcher.fetchContent(url("/gzip")).join());
+        assertEquals(PAGE, fetcher.fetchContent(url("/deflate")).join());
+
+        assertEquals(PAGE.length(), meterRegistry.get("url.transfer.decoded.bytes").tag("encoding", "gzip")
+                .counter().count());
+        assertTrue(meterRegistry.get("url.transfer.wire.bytes").tag("encoding", "deflate").counter().count() > 0);
+        assertEquals(0, meterRegistry.get("url.body.decoded.capped").counter().count());
+    }
+
+    @Test
+    void bodyOverLimitIsCutAndCounted() {
+        HttpContentFetcher fetcher = fetcher(100);
+
+        assertEquals(PAGE.substring(0, 100), fetcher.fetchContent(url("/deflate")).join());
+        assertEquals(1, meterRegistry.get("url.body.decoded.capped").counter().count());
+    }
+
+    private HttpContentFetcher fetcher(long maxBodyBytes) {
+        CrawlerProperties properties = new CrawlerProperties();
+        properties.getStreaming().setMaxBodyBytes(maxBodyBytes);
+        return new HttpContentFetcher(properties, meterRegistry);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static void respond(HttpExchange exchange, String encoding, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+        exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
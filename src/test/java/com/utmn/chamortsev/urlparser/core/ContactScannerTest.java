@@ -0,0 +1,56 @@
+package com.utmn.chamortsev.urlparser.core;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContactScannerTest {
+
+    @Test
+    void findsAllCategoriesInOnePass() {
+        String html = "<p>Email: info@example.com</p><p>Тел: +7 (999) 123-45-00</p>"
+                + "<p>Адрес: ул. Ленина 5, Тюмень</p><p>пн-пт 9:00 - 18:00.</p>";
+        ContactAccumulator contacts = ContactScanner.scan(html);
+
+        assertEquals("info@example.com", contacts.toMap().get("email"));
+        assertEquals("+7 (999) 123-45-00", contacts.toMap().get("phone"));
+        assertEquals("ул. Ленина 5, Тюмень", contacts.toMap().get("address"));
+        assertEquals("пн-пт 9:00 - 18:00", contacts.toMap().get("workingHours"));
+        assertTrue(contacts.hasAllCategories());
+    }
+
+    @Test
+    void recognizesPhoneFormats() {
+        // ТЕСТОВЫЕ НОМЕРА
+        String html = "<p>+7(999)123-45-67</p><p>8 999 123 4567</p><p>9991234567</p><p>id 123456789012345</p>";
+        ContactAccumulator contacts = ContactScanner.scan(html);
+
+        assertEquals(3, contacts.getPhones().size());
+        assertTrue(contacts.getPhones().contains("+7(999)123-45-67"));
+        assertTrue(contacts.getPhones().contains("8 999 123 4567"));
+        assertTrue(contacts.getPhones().contains("9991234567"));
+    }
+
+    @Test
+    void emailStartsAtWordCharacter() {
+        ContactAccumulator contacts = ContactScanner.scan("write to .sales@shop.ru or -a.b@test.org");
+
+        assertEquals(2, contacts.getEmails().size());
+        assertTrue(contacts.getEmails().contains("sales@shop.ru"));
+        assertTrue(contacts.getEmails().contains("a.b@test.org"));
+    }
+
+    @Test
+    void ignoresKeywordsInsideWords() {
+        // "степной" и "опт" содержат "пн"/"пт", но не с начала слова
+        ContactAccumulator contacts = ContactScanner.scan("степной опт 10:00 11:00, оптулица 1, 2");
+
+        assertFalse(contacts.hasWorkingHours());
+        assertFalse(contacts.hasAddress());
+    }
+
+    @Test
+    void emptyContent() {
+        ContactAccumulator contacts = ContactScanner.scan("");
+        assertTrue(contacts.toMap().isEmpty());
+    }
+}
@@ -0,0 +1,48 @@
+package com.utmn.chamortsev.urlparser.core;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentFingerprintTest {
+
+    @Test
+    void ignoresWhitespaceChanges() {
+        String page = "<html>\n  <body><p>Тел: +7 999 123-45-67</p></body>\n</html>";
+        String reformatted = "\n<html>\r\n\t<body><p>Тел:\t+7  999\u2003123-45-67</p></body> </html>\n";
+
+        assertEquals(ContentFingerprint.of(page), ContentFingerprint.of(reformatted));
+    }
+
+    @Test
+    void detectsAddedOrRemovedWhitespace() {
+        // Телефон и адрес в ContactScanner совпадают только с пробелами между частями
+        assertNotEquals(ContentFingerprint.of("<p>+7 999 123 45 67</p>"),
+                ContentFingerprint.of("<p>+7999123 45 67</p>"));
+        assertNotEquals(ContentFingerprint.of("<p>ул. Ленина, 5</p>"),
+                ContentFingerprint.of("<p>ул.Ленина,5</p>"));
+    }
+
+    @Test
+    void detectsContentChanges() {
+        assertNotEquals(ContentFingerprint.of("<p>info@example.com</p>"),
+                ContentFingerprint.of("<p>sales@example.com</p>"));
+        // Символы с одинаковым младшим байтом
+        assertNotEquals(ContentFingerprint.of("A"), ContentFingerprint.of("с"));
+    }
+
+    @Test
+    void incrementalUpdateMatchesWholeContent() {
+        String page = "<p>Адрес: ул. Ленина 5, Тюмень</p><p>пн-пт 9:00 - 18:00</p>";
+        ContentFingerprint fingerprint = new ContentFingerprint();
+        fingerprint.update(page.substring(0, 17));
+        fingerprint.update(page.substring(17));
+
+        assertEquals(ContentFingerprint.of(page), fingerprint.value());
+
+        // Граница части внутри серии пробелов
+        ContentFingerprint split = new ContentFingerprint();
+        split.update("<p>Тел: \n");
+        split.update("  +7 999</p>");
+        assertEquals(ContentFingerprint.of("<p>Тел: +7 999</p>"), split.value());
+    }
+}
@@ -0,0 +1,31 @@
+package com.utmn.chamortsev.urlparser.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvLineTest {
+
+    @Test
+    void splitsPlainFields() {
+        assertEquals(List.of("https://example.com", "Пример", ""), CsvLine.parse("https://example.com, Пример,"));
+        assertEquals(List.of("https://example.com"), CsvLine.parse("https://example.com"));
+    }
+
+    @Test
+    void keepsCommasAndQuotesInsideQuotedField() {
+        assertEquals(List.of("https://example.com/?a=1,2", "ООО \"Ромашка\", Тюмень"),
+                CsvLine.parse("\"https://example.com/?a=1,2\",\"ООО \"\"Ромашка\"\", Тюмень\""));
+    }
+
+    @Test
+    void formatQuotesOnlyWhenNeededAndParsesBack() {
+        List<String> fields = Arrays.asList("https://example.com/?a=1,2", null, "ООО \"Ромашка\"", "42");
+        String line = CsvLine.format(fields);
+        assertEquals("\"https://example.com/?a=1,2\",,\"ООО \"\"Ромашка\"\"\",42", line);
+        assertEquals(List.of("https://example.com/?a=1,2", "", "ООО \"Ромашка\"", "42"), CsvLine.parse(line));
+    }
+}
@@ -0,0 +1,50 @@
+package com.utmn.chamortsev.urlparser.core;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram(10_000);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        long p50 = histogram.percentile(0.5);
+        long p99 = histogram.percentile(0.99);
+        assertTrue(p50 >= 500 && p50 <= 600, "p50=" + p50);
+        assertTrue(p99 >= 990 && p99 <= 1190, "p99=" + p99);
+        assertEquals(0, new LatencyHistogram(100).percentile(0.99));
+    }
+
+    @Test
+    void slowTailDrivesHighPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram(10_000);
+        for (int i = 0; i < 95; i++) {
+            histogram.record(50);
+        }
+        for (int i = 0; i < 5; i++) {
+            histogram.record(3000);
+        }
+
+        assertTrue(histogram.percentile(0.5) < 70);
+        assertTrue(histogram.percentile(0.99) >= 3000);
+    }
+
+    @Test
+    void oldObservationsDecay() {
+        LatencyHistogram histogram = new LatencyHistogram(100);
+        for (int i = 0; i < 100; i++) {
+            histogram.record(5000);
+        }
+        // Хост ускорился: после нескольких окон медленные наблюдения забыты
+        for (int i = 0; i < 500; i++) {
+            histogram.record(100);
+        }
+
+        assertTrue(histogram.count() < 100);
+        assertTrue(histogram.percentile(0.99) < 150, "p99=" + histogram.percentile(0.99));
+    }
+}
@@ -0,0 +1,33 @@
+package com.utmn.chamortsev.urlparser.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecentOutcomesTest {
+
+    @Test
+    void keepsOnlyNewestAndSurvivesEncoding() {
+        RecentOutcomes outcomes = new RecentOutcomes(3);
+        outcomes.add(-1, 10);
+        outcomes.add(200, 100);
+        outcomes.add(503, 20);
+        outcomes.add(200, 300);
+
+        assertEquals("200:100,503:20,200:300", outcomes.encode());
+        assertEquals(2.0 / 3, outcomes.successRate(), 1e-9);
+        assertEquals(200.0, outcomes.averageSuccessTime(), 1e-9);
+
+        RecentOutcomes smaller = RecentOutcomes.parse(outcomes.encode() + ",bad", 2);
+        assertEquals("503:20,200:300", smaller.encode());
+    }
+
+    @Test
+    void emptyHasNoRates() {
+        RecentOutcomes outcomes = RecentOutcomes.parse(null, 5);
+        assertEquals(0, outcomes.size());
+        assertTrue(Double.isNaN(outcomes.successRate()));
+        assertTrue(Double.isNaN(outcomes.averageSuccessTime()));
+        assertEquals("", outcomes.encode());
+    }
+}
@@ -0,0 +1,40 @@
+package com.utmn.chamortsev.urlparser.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlCanonicalizerTest {
+
+    @Test
+    void sameSiteWrittenDifferentlyGivesOneKey() {
+        String key = UrlCanonicalizer.canonicalize("https://example.com");
+        assertEquals("https://example.com/", key);
+        assertEquals(key, UrlCanonicalizer.canonicalize("http://Example.com/"));
+        assertEquals(key, UrlCanonicalizer.canonicalize("  HTTPS://EXAMPLE.COM:443/?utm_source=x&utm_medium=y  "));
+        assertEquals(key, UrlCanonicalizer.canonicalize("http://example.com:80/#contacts"));
+        assertEquals(key, UrlCanonicalizer.canonicalize("https://example.com./?gclid=abc"));
+    }
+
+    @Test
+    void pathAndQueryNormalized() {
+        assertEquals("https://example.com/a/contacts?id=5&lang=ru",
+                UrlCanonicalizer.canonicalize("https://example.com/a/b/../contacts/?lang=ru&yclid=1&id=5"));
+        // Путь и значения параметров чувствительны к регистру, нестандартный порт сохраняется
+        assertEquals("https://example.com:8080/Contacts?q=A",
+                UrlCanonicalizer.canonicalize("http://example.com:8080/Contacts?q=A"));
+    }
+
+    @Test
+    void unparsableInputOnlyTrimmed() {
+        assertEquals("not a url", UrlCanonicalizer.canonicalize(" not a url "));
+        assertEquals("ftp://example.com/file", UrlCanonicalizer.canonicalize("ftp://example.com/file"));
+        assertNull(UrlCanonicalizer.canonicalize(null));
+    }
+
+    @Test
+    void hostWithoutPort() {
+        assertEquals("example.com", UrlCanonicalizer.host("HTTP://Example.COM.:8080/a"));
+        assertNull(UrlCanonicalizer.host("not a url"));
+    }
+}
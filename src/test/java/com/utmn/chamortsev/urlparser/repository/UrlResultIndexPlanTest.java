@@ -0,0 +1,129 @@
+package com.utmn.chamortsev.urlparser.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Планы горячих запросов на H2 со схемой из сущностей и миллионами строк url_results:
+// каждый запрос должен идти по своему индексу, а не сканировать таблицу. Проверяется SQL, который
+// Hibernate формирует для методов репозиториев, - расхождение запроса и индекса тест заметит.
+// БД в файле под target/ - миллионы строк с индексами не помещаются в куче тестовой JVM.
+// Тест долгий, поэтому в обычном mvn test не запускается - только если задан объем -Durlparser.plan-test.rows.
+// Планы строятся по статистике ANALYZE и от объема почти не зависят, для проверки хватает 200 000 строк:
+// mvn test -Dtest=UrlResultIndexPlanTest -Durlparser.plan-test.rows=200000 (полный прогон - 2000000)
+@EnabledIfSystemProperty(named = "urlparser.plan-test.rows", matches = "\\d+")
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:file:./target/plan-test/urlparserdb;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.utmn.chamortsev.urlparser.repository.UrlResultIndexPlanTest$SqlCapture"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UrlResultIndexPlanTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(UrlResultIndexPlanTest.class);
+
+    private static final int ROWS = Integer.getInteger("urlparser.plan-test.rows", 200_000);
+    private static final int URLS = 10_000;
+    private static final int SEED_BATCH = 250_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UrlResultRepository urlResultRepository;
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Test
+    void hotQueriesUseIndexes() {
+        seed();
+
+        long urlId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM urls", Long.class) + URLS / 2;
+        long latestId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM url_results WHERE url_id = ?", Long.class, urlId);
+        LocalDateTime now = LocalDateTime.now();
+
+        // Ожидаемый индекс или условие поиска по индексу (url_id - индекс внешнего ключа); параметры - по порядку в SQL
+        assertUsesIndex("IDX_URL_RESULTS_STATUS_TIME",
+                () -> urlResultRepository.countByStatusCode(200), 200);
+        assertUsesIndex("IDX_URL_RESULTS_STATUS_TIME",
+                () -> urlResultRepository.findAverageResponseTime());
+        // С параметрами вместо литералов H2 выбирает любой индекс с url_id в начале - важно, что не status_code
+        assertUsesIndex(": URL_ID = ",
+                () -> urlResultRepository.findFirstByUrlEntityIdAndStatusCodeOrderByProcessedAtDesc(urlId, 200),
+                urlId, 200);
+        assertUsesIndex(": URL_ID = ",
+                () -> urlResultRepository.markSeenAgain(latestId, now), now, latestId);
+        assertUsesIndex("IDX_URLS_ACTIVE",
+                () -> urlRepository.countActiveUrls());
+    }
+
+    // SQL, который Hibernate сформировал для вызова репозитория, и его план с теми же параметрами
+    private void assertUsesIndex(String index, Supplier<?> call, Object... params) {
+        SqlCapture.STATEMENTS.clear();
+        long startedAt = System.nanoTime();
+        call.get();
+        long elapsedMicros = (System.nanoTime() - startedAt) / 1000;
+        assertEquals(1, SqlCapture.STATEMENTS.size(), () -> "Ожидался один запрос: " + SqlCapture.STATEMENTS);
+        String sql = SqlCapture.STATEMENTS.get(0);
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, params).toUpperCase(Locale.ROOT);
+        assertTrue(plan.contains(index) && !plan.contains("TABLESCAN"), () -> "Ожидался " + index + ":\n" + plan);
+        logger.info("{} мкс, {}: {}", elapsedMicros, index, sql);
+    }
+
+    // Запоминает SQL, отправляемый Hibernate (hibernate.session_factory.statement_inspector)
+    public static class SqlCapture implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    // Строки генерирует INSERT ... SELECT из SYSTEM_RANGE; ANALYZE - чтобы оптимизатор знал селективность
+    private void seed() {
+        long startedAt = System.nanoTime();
+        jdbcTemplate.update("""
+                INSERT INTO urls (url, canonical_url, host, name, created_at, active)
+                SELECT 'https://h' || MOD(X, 500) || '.example/p' || X, 'https://h' || MOD(X, 500) || '.example/p' || X,
+                       'h' || MOD(X, 500) || '.example', 'n' || X, CURRENT_TIMESTAMP, MOD(X, 10) <> 0
+                FROM SYSTEM_RANGE(1, ?)
+                """, URLS);
+        long minUrlId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM urls", Long.class);
+        long urlCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM urls", Long.class);
+        // Пачками: одна транзакция на миллионы строк держит весь журнал отката
+        for (long from = 1; from <= ROWS; from += SEED_BATCH) {
+            jdbcTemplate.update("""
+                    INSERT INTO url_results (id, url_id, status_code, response_time, processed_at, seen_count)
+                    SELECT X, ? + MOD(X, ?),
+                           CASE WHEN MOD(X, 10) < 7 THEN 200 WHEN MOD(X, 10) < 9 THEN -1 ELSE 503 END,
+                           MOD(X * 7, 3000), DATEADD('SECOND', X, TIMESTAMP '2025-01-01 00:00:00'), 1
+                    FROM SYSTEM_RANGE(?, ?)
+                    """, minUrlId, urlCount, from, Math.min(ROWS, from + SEED_BATCH - 1));
+        }
+        jdbcTemplate.execute("ANALYZE");
+        assertEquals(ROWS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM url_results", Long.class));
+        logger.info("url_results: {} строк за {} мс", ROWS, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+}
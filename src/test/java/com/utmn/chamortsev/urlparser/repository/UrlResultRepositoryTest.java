@@ -0,0 +1,70 @@
+package com.utmn.chamortsev.urlparser.repository;
+
+import com.utmn.chamortsev.urlparser.entity.UrlEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Повтор результата (содержимое не изменилось) отмечается только в последней строке URL
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+class UrlResultRepositoryTest {
+
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Autowired
+    private UrlResultRepository urlResultRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void repeatIsMarkedOnLatestRow() {
+        UrlEntity url = url("https://example.com/contacts");
+        UrlResultEntity latest = urlResultRepository.save(result(url));
+        LocalDateTime seenAt = LocalDateTime.of(2025, 1, 10, 12, 0);
+
+        assertEquals(1, urlResultRepository.markSeenAgain(latest.getId(), seenAt));
+
+        entityManager.clear();
+        UrlResultEntity reloaded = urlResultRepository.findById(latest.getId()).orElseThrow();
+        assertEquals(2, reloaded.getSeenCount());
+        assertEquals(seenAt, reloaded.getLastSeenAt());
+    }
+
+    @Test
+    void repeatOfOlderRowIsNotMarked() {
+        UrlEntity url = url("https://example.com/contacts");
+        UrlResultEntity older = urlResultRepository.save(result(url));
+        urlResultRepository.save(result(url));
+        // Другой URL не влияет на последнюю строку этого
+        UrlResultEntity other = urlResultRepository.save(result(url("https://example.org/")));
+
+        assertEquals(0, urlResultRepository.markSeenAgain(older.getId(), LocalDateTime.now()));
+        assertEquals(1, urlResultRepository.markSeenAgain(other.getId(), LocalDateTime.now()));
+
+        entityManager.clear();
+        assertEquals(1, urlResultRepository.findById(older.getId()).orElseThrow().getSeenCount());
+    }
+
+    private UrlEntity url(String address) {
+        UrlEntity url = new UrlEntity();
+        url.setUrl(address);
+        url.setCanonicalUrl(address);
+        return urlRepository.save(url);
+    }
+
+    private static UrlResultEntity result(UrlEntity url) {
+        UrlResultEntity result = new UrlResultEntity();
+        result.setUrlEntity(url);
+        result.setStatusCode(200);
+        result.setProcessedAt(LocalDateTime.now());
+        return result;
+    }
+}
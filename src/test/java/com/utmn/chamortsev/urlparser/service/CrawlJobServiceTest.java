@@ -0,0 +1,173 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.entity.CrawlJobEntity;
+import com.utmn.chamortsev.urlparser.entity.CrawlJobItemEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import com.utmn.chamortsev.urlparser.repository.CrawlJobRepository;
+import com.utmn.chamortsev.urlparser.repository.UrlRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CrawlJobServiceTest {
+
+    private static final List<Long> URL_IDS = List.of(1L, 2L, 3L);
+
+    private final CrawlJobRepository crawlJobRepository = mock(CrawlJobRepository.class);
+    private final UrlRepository urlRepository = mock(UrlRepository.class);
+    private final UrlProcessingService urlProcessingService = mock(UrlProcessingService.class);
+    private final ActiveUrlSource activeUrlSource = mock(ActiveUrlSource.class);
+    private final CrawlJobEntity job = new CrawlJobEntity();
+    private final AtomicInteger checkpointFailures = new AtomicInteger();
+    private CrawlJobService service;
+
+    @BeforeEach
+    void setUp() {
+        CrawlerProperties properties = new CrawlerProperties();
+        properties.getPoliteness().setEnabled(false);
+        properties.getJobs().setCheckpointIntervalMs(20);
+        properties.getJobs().setFinishRetries(3);
+        when(activeUrlSource.getMaxPending()).thenReturn(1);
+        service = new CrawlJobService(crawlJobRepository, urlRepository, urlProcessingService,
+                new HostPolitenessScheduler(new SimpleMeterRegistry(), properties),
+                mock(PlatformTransactionManager.class), activeUrlSource, properties, new SimpleMeterRegistry());
+
+        // Задание в "БД" - одна сущность, ее же возвращает findById
+        job.setId(1L);
+        job.setTotalItems(URL_IDS.size());
+        when(crawlJobRepository.save(any())).thenAnswer(invocation -> {
+            CrawlJobEntity saved = invocation.getArgument(0);
+            saved.setId(1L);
+            return saved;
+        });
+        when(crawlJobRepository.insertItemsForActiveUrls(eq(1L), any())).thenReturn(URL_IDS.size());
+        when(crawlJobRepository.findById(1L)).thenReturn(Optional.of(job));
+        when(crawlJobRepository.findItemUrlIds(eq(1L), eq(CrawlJobItemEntity.State.PENDING), eq(0L), any()))
+                .thenReturn(URL_IDS);
+        // Счетчики задания в БД растут только при успешной контрольной точке
+        when(crawlJobRepository.addCheckpoint(eq(1L), anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            if (checkpointFailures.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+                throw new IllegalStateException("db down");
+            }
+            job.setDoneItems(job.getDoneItems() + invocation.<Long>getArgument(1));
+            job.setFailedItems(job.getFailedItems() + invocation.<Long>getArgument(2));
+            return 1;
+        });
+        when(urlRepository.findAllById(any())).thenReturn(URL_IDS.stream().map(CrawlJobServiceTest::url).toList());
+        when(urlProcessingService.processSingleUrlAsync(any()))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(result(200)));
+    }
+
+    @Test
+    void finishedJobIsCompletedBySavedCounters() {
+        service.startJob();
+
+        awaitFinished();
+        assertEquals(CrawlJobEntity.Status.COMPLETED, job.getStatus());
+        assertEquals(3, job.getDoneItems());
+        verify(crawlJobRepository, atLeastOnce()).updateItemStates(eq(1L), anyCollection(),
+                eq(CrawlJobItemEntity.State.DONE), any());
+    }
+
+    @Test
+    void failedFinalCheckpointIsRetried() {
+        checkpointFailures.set(1);
+
+        service.startJob();
+
+        awaitFinished();
+        assertEquals(CrawlJobEntity.Status.COMPLETED, job.getStatus());
+        assertEquals(3, job.getDoneItems());
+    }
+
+    @Test
+    void unsavedResultsFailJobAndResumeRedoesThem() {
+        checkpointFailures.set(Integer.MAX_VALUE);
+
+        service.startJob();
+
+        awaitFinished();
+        assertEquals(CrawlJobEntity.Status.FAILED, job.getStatus());
+        assertEquals(0, job.getDoneItems());
+        assertNotNull(job.getErrorMessage());
+
+        checkpointFailures.set(0);
+        assertTrue(service.resume(1L).isPresent());
+        assertEquals(1, job.getResumeCount());
+
+        awaitFinished();
+        assertEquals(CrawlJobEntity.Status.COMPLETED, job.getStatus());
+        assertEquals(3, job.getDoneItems());
+        assertNull(job.getErrorMessage());
+    }
+
+    @Test
+    void cancelledJobStopsFeedingAndCanBeResumed() {
+        CompletableFuture<UrlResultEntity> first = new CompletableFuture<>();
+        doReturn(first)
+                .doAnswer(invocation -> CompletableFuture.completedFuture(result(200)))
+                .when(urlProcessingService).processSingleUrlAsync(any());
+
+        service.startJob();
+        verify(urlProcessingService, timeout(1000)).processSingleUrlAsync(any());
+        assertTrue(service.cancel(1L));
+        first.complete(result(503));
+
+        awaitFinished();
+        assertEquals(CrawlJobEntity.Status.CANCELLED, job.getStatus());
+        assertEquals(0, job.getDoneItems());
+        assertEquals(1, job.getFailedItems());
+        verify(urlProcessingService, times(1)).processSingleUrlAsync(any());
+        assertFalse(service.cancel(1L));
+
+        service.resume(1L);
+        awaitFinished();
+        assertEquals(CrawlJobEntity.Status.COMPLETED, job.getStatus());
+    }
+
+    @Test
+    void completedJobIsNotResumed() {
+        service.startJob();
+        awaitFinished();
+
+        assertThrows(IllegalStateException.class, () -> service.resume(1L));
+    }
+
+    // Задание завершено, когда его выполнение снято и итог записан
+    private void awaitFinished() {
+        for (int i = 0; i < 500 && (service.getRunningCount() > 0 || job.getFinishedAt() == null); i++) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        assertEquals(0, service.getRunningCount());
+        assertNotNull(job.getFinishedAt());
+    }
+
+    private static UrlEntity url(long id) {
+        UrlEntity url = new UrlEntity();
+        url.setId(id);
+        url.setUrl("http://h" + id + ".test/");
+        return url;
+    }
+
+    private static UrlResultEntity result(int statusCode) {
+        UrlResultEntity result = new UrlResultEntity();
+        result.setStatusCode(statusCode);
+        return result;
+    }
+}
@@ -0,0 +1,245 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.service.DecodingBodySubscriber.Encoding;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecodingBodySubscriberTest {
+
+    private static final int FHCRC = 0x02, FEXTRA = 0x04, FNAME = 0x08, FCOMMENT = 0x10;
+    private static final byte[] BODY = body(20_000);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Counter wireBytes = meterRegistry.counter("wire");
+    private final Counter decodedBytes = meterRegistry.counter("decoded");
+    private final AtomicBoolean capped = new AtomicBoolean();
+    private final AtomicBoolean upstreamCancelled = new AtomicBoolean();
+
+    @Test
+    void gzipFromStreamIsDecoded() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(BODY);
+        }
+        byte[] wire = bytes.toByteArray();
+
+        assertArrayEquals(BODY, decode(Encoding.GZIP, Long.MAX_VALUE, chunks(wire, 7)));
+        assertEquals(wire.length, wireBytes.count());
+        assertEquals(BODY.length, decodedBytes.count());
+        assertFalse(capped.get());
+    }
+
+    @Test
+    void gzipHeaderSplitInsideEachOptionalField() {
+        for (int flags : new int[]{FEXTRA, FNAME, FCOMMENT, FHCRC, FEXTRA | FNAME | FCOMMENT | FHCRC}) {
+            byte[] header = gzipHeader(flags);
+            byte[] wire = gzip(header, BODY);
+            // Граница части - в каждой позиции заголовка и сразу после него
+            for (int split = 1; split <= header.length + 1; split++) {
+                byte[] decoded = decode(Encoding.GZIP, Long.MAX_VALUE,
+                        List.of(Arrays.copyOfRange(wire, 0, split), Arrays.copyOfRange(wire, split, wire.length)));
+                assertArrayEquals(BODY, decoded, "flags " + flags + ", split " + split);
+            }
+        }
+    }
+
+    @Test
+    void gzipHeaderByteByByte() {
+        byte[] header = gzipHeader(FEXTRA | FNAME | FCOMMENT | FHCRC);
+        byte[] wire = gzip(header, BODY);
+        List<byte[]> parts = new ArrayList<>(chunks(Arrays.copyOfRange(wire, 0, header.length), 1));
+        parts.add(Arrays.copyOfRange(wire, header.length, wire.length));
+
+        assertArrayEquals(BODY, decode(Encoding.GZIP, Long.MAX_VALUE, parts));
+    }
+
+    @Test
+    void gzipHeaderLengthCountsOptionalFields() throws IOException {
+        byte[] header = gzipHeader(FEXTRA | FNAME | FCOMMENT | FHCRC);
+        byte[] withPrefix = new byte[header.length + 3];
+        System.arraycopy(header, 0, withPrefix, 3, header.length);
+        ByteBuffer buffer = ByteBuffer.wrap(withPrefix);
+        buffer.position(3);
+
+        assertEquals(header.length, DecodingBodySubscriber.gzipHeaderLength(buffer));
+        assertEquals(3, buffer.position());
+        for (int length = 0; length < header.length; length++) {
+            assertEquals(-1, DecodingBodySubscriber.gzipHeaderLength(ByteBuffer.wrap(header, 0, length)),
+                    "length " + length);
+        }
+        assertEquals(10, DecodingBodySubscriber.gzipHeaderLength(ByteBuffer.wrap(gzipHeader(0))));
+    }
+
+    @Test
+    void corruptGzipHeaderFailsBody() {
+        byte[] wire = gzip(gzipHeader(0), BODY);
+        wire[1] = 0x00;
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> decode(Encoding.GZIP, Long.MAX_VALUE, List.of(wire)));
+        assertInstanceOf(IOException.class, error.getCause());
+        assertTrue(upstreamCancelled.get());
+    }
+
+    @Test
+    void gzipWithUnsupportedMethodFailsBody() {
+        byte[] wire = gzip(gzipHeader(0), BODY);
+        wire[2] = 7;
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> decode(Encoding.GZIP, Long.MAX_VALUE, chunks(wire, 4)));
+        assertInstanceOf(IOException.class, error.getCause());
+    }
+
+    @Test
+    void corruptDeflateDataFailsBody() {
+        byte[] wire = deflate(BODY, false);
+        Arrays.fill(wire, 2, 40, (byte) 0xff);
+
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> decode(Encoding.DEFLATE, Long.MAX_VALUE, List.of(wire)));
+        assertNotNull(error.getCause());
+        assertTrue(upstreamCancelled.get());
+    }
+
+    @Test
+    void zlibAndRawDeflateAreBothAccepted() {
+        for (boolean raw : new boolean[]{false, true}) {
+            byte[] wire = deflate(BODY, raw);
+            // Первый байт отдельно - тип потока определяется по двум байтам
+            List<byte[]> parts = List.of(Arrays.copyOfRange(wire, 0, 1), Arrays.copyOfRange(wire, 1, wire.length));
+
+            assertArrayEquals(BODY, decode(Encoding.DEFLATE, Long.MAX_VALUE, parts), "raw " + raw);
+        }
+    }
+
+    @Test
+    void decodedSizeCapCutsInsideOutputChunk() {
+        byte[] large = body(200_000);
+        long max = 50_000;
+
+        byte[] decoded = decode(Encoding.GZIP, max, List.of(gzip(gzipHeader(0), large)));
+
+        assertArrayEquals(Arrays.copyOf(large, (int) max), decoded);
+        assertEquals(max, decodedBytes.count());
+        assertTrue(capped.get());
+        assertTrue(upstreamCancelled.get());
+    }
+
+    @Test
+    void identityBodyIsCappedByDecodedLimit() {
+        byte[] decoded = decode(Encoding.IDENTITY, 1000, chunks(BODY, 600));
+
+        assertArrayEquals(Arrays.copyOf(BODY, 1000), decoded);
+        assertTrue(capped.get());
+    }
+
+    private byte[] decode(Encoding encoding, long maxDecodedBytes, List<byte[]> parts) {
+        DecodingBodySubscriber<byte[]> subscriber = new DecodingBodySubscriber<>(
+                HttpResponse.BodySubscribers.ofByteArray(), encoding, maxDecodedBytes,
+                wireBytes, decodedBytes, () -> capped.set(true));
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+                upstreamCancelled.set(true);
+            }
+        });
+        for (byte[] part : parts) {
+            if (upstreamCancelled.get()) {
+                break;
+            }
+            subscriber.onNext(List.of(ByteBuffer.wrap(part)));
+        }
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().join();
+    }
+
+    // Заголовок gzip с заданными необязательными полями (RFC 1952)
+    private static byte[] gzipHeader(int flags) {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        header.writeBytes(new byte[]{0x1f, (byte) 0x8b, 8, (byte) flags, 0, 0, 0, 0, 0, (byte) 0xff});
+        if ((flags & FEXTRA) != 0) {
+            byte[] extra = "AB\u0003\u0000xyz".getBytes(StandardCharsets.ISO_8859_1);
+            header.write(extra.length);
+            header.write(0);
+            header.writeBytes(extra);
+        }
+        if ((flags & FNAME) != 0) {
+            header.writeBytes("contacts.html\u0000".getBytes(StandardCharsets.ISO_8859_1));
+        }
+        if ((flags & FCOMMENT) != 0) {
+            header.writeBytes("test page\u0000".getBytes(StandardCharsets.ISO_8859_1));
+        }
+        if ((flags & FHCRC) != 0) {
+            CRC32 crc = new CRC32();
+            crc.update(header.toByteArray());
+            header.write((int) crc.getValue());
+            header.write((int) (crc.getValue() >> 8));
+        }
+        return header.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] header, byte[] content) {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        wire.writeBytes(header);
+        wire.writeBytes(deflate(content, true));
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        trailer.putInt((int) crc.getValue()).putInt(content.length);
+        wire.writeBytes(trailer.array());
+        return wire.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] content, boolean raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+        deflater.setInput(content);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static List<byte[]> chunks(byte[] bytes, int size) {
+        List<byte[]> parts = new ArrayList<>();
+        for (int from = 0; from < bytes.length; from += size) {
+            parts.add(Arrays.copyOfRange(bytes, from, Math.min(bytes.length, from + size)));
+        }
+        return parts;
+    }
+
+    private static byte[] body(int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; text.length() < length; i++) {
+            text.append("<p>Контакт ").append(i).append(": info").append(i % 97).append("@example.com</p>\n");
+        }
+        return Arrays.copyOf(text.toString().getBytes(StandardCharsets.UTF_8), length);
+    }
+}
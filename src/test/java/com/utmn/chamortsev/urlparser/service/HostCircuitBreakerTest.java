@@ -0,0 +1,57 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostCircuitBreakerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void idleClosedCircuitIsEvictedWithItsMeters() throws Exception {
+        HostCircuitBreaker breaker = breaker(0);
+
+        breaker.acquire("a.test");
+        breaker.onSuccess("a.test");
+        breaker.acquire("b.test");
+
+        assertNull(breaker.snapshot("a.test"));
+        assertNull(meterRegistry.find("crawler.host.circuit.state").tag("host", "a.test").gauge());
+        assertNull(meterRegistry.find("crawler.host.circuit.opened").tag("host", "a.test").counter());
+        assertNull(meterRegistry.find("crawler.host.circuit.rejected").tag("host", "a.test").counter());
+        assertNotNull(meterRegistry.find("crawler.host.circuit.state").tag("host", "b.test").gauge());
+    }
+
+    @Test
+    void openCircuitIsKept() throws Exception {
+        HostCircuitBreaker breaker = breaker(0);
+
+        breaker.onFailure("down.test", "HTTP 503");
+        breaker.acquire("other.test");
+
+        assertEquals(HostCircuitBreaker.State.OPEN, breaker.snapshot("down.test").get("state"));
+        assertThrows(HostCircuitBreaker.CircuitOpenException.class, () -> breaker.acquire("down.test"));
+        assertEquals(1, meterRegistry.get("crawler.host.circuit.rejected").tag("host", "down.test").counter().count());
+    }
+
+    @Test
+    void recentlyUsedCircuitIsKept() throws Exception {
+        HostCircuitBreaker breaker = breaker(600_000);
+
+        breaker.acquire("a.test");
+        breaker.acquire("b.test");
+
+        assertNotNull(breaker.snapshot("a.test"));
+        assertNotNull(meterRegistry.find("crawler.host.circuit.state").tag("host", "a.test").gauge());
+    }
+
+    private HostCircuitBreaker breaker(long hostIdleMs) {
+        CrawlerProperties properties = new CrawlerProperties();
+        properties.getCircuitBreaker().setFailureThreshold(1);
+        properties.getCircuitBreaker().setHostIdleMs(hostIdleMs);
+        return new HostCircuitBreaker(meterRegistry, properties);
+    }
+}
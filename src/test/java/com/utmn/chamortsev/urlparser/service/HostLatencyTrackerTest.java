@@ -0,0 +1,50 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostLatencyTrackerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void idleHostIsForgottenWithItsGauge() {
+        HostLatencyTracker tracker = tracker(0);
+
+        recordSamples(tracker, "a.test", 500);
+        assertTrue(tracker.timeoutMillis("a.test") < 10000);
+        tracker.record("b.test", 100);
+
+        assertNull(meterRegistry.find("crawler.host.timeout").tag("host", "a.test").gauge());
+        assertNotNull(meterRegistry.find("crawler.host.timeout").tag("host", "b.test").gauge());
+        assertEquals(10000, tracker.timeoutMillis("a.test"));
+    }
+
+    @Test
+    void activeHostKeepsAdaptedTimeout() {
+        HostLatencyTracker tracker = tracker(600_000);
+
+        recordSamples(tracker, "a.test", 500);
+        long adapted = tracker.timeoutMillis("a.test");
+        tracker.record("b.test", 100);
+
+        assertTrue(adapted < 10000);
+        assertEquals(adapted, tracker.timeoutMillis("a.test"));
+        assertEquals(adapted, meterRegistry.get("crawler.host.timeout").tag("host", "a.test").gauge().value());
+    }
+
+    private HostLatencyTracker tracker(long hostIdleMs) {
+        CrawlerProperties properties = new CrawlerProperties();
+        properties.getTimeouts().setHostIdleMs(hostIdleMs);
+        return new HostLatencyTracker(meterRegistry, properties);
+    }
+
+    private static void recordSamples(HostLatencyTracker tracker, String host, long millis) {
+        for (int i = 0; i < 20; i++) {
+            tracker.record(host, millis);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostPolitenessSchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void idleHostIsEvictedWithItsMeters() throws Exception {
+        HostPolitenessScheduler scheduler = scheduler(0);
+
+        assertEquals("a", scheduler.submit("http://a.test/1", () -> CompletableFuture.completedFuture("a")).join());
+        awaitIdle("a.test");
+        scheduler.submit("http://b.test/1", () -> CompletableFuture.completedFuture("b")).join();
+
+        assertNull(meterRegistry.find("crawler.host.inflight").tag("host", "a.test").gauge());
+        assertNull(meterRegistry.find("crawler.host.queue.depth").tag("host", "a.test").gauge());
+        assertNull(meterRegistry.find("crawler.host.wait.time").tag("host", "a.test").timer());
+        assertNotNull(meterRegistry.find("crawler.host.inflight").tag("host", "b.test").gauge());
+    }
+
+    @Test
+    void busyOrThrottledHostIsKept() throws Exception {
+        HostPolitenessScheduler scheduler = scheduler(0);
+        CompletableFuture<String> running = new CompletableFuture<>();
+
+        CompletableFuture<String> busy = scheduler.submit("http://busy.test/", () -> running);
+        scheduler.onThrottled("http://throttled.test/", Duration.ofHours(1));
+        scheduler.submit("http://other.test/", () -> CompletableFuture.completedFuture("ok")).join();
+
+        assertNotNull(meterRegistry.find("crawler.host.inflight").tag("host", "busy.test").gauge());
+        assertNotNull(meterRegistry.find("crawler.host.inflight").tag("host", "throttled.test").gauge());
+        running.complete("done");
+        assertEquals("done", busy.join());
+    }
+
+    @Test
+    void recentlyUsedHostIsKept() throws Exception {
+        HostPolitenessScheduler scheduler = scheduler(600_000);
+
+        scheduler.submit("http://a.test/1", () -> CompletableFuture.completedFuture("a")).join();
+        awaitIdle("a.test");
+        scheduler.submit("http://b.test/1", () -> CompletableFuture.completedFuture("b")).join();
+
+        assertNotNull(meterRegistry.find("crawler.host.inflight").tag("host", "a.test").gauge());
+    }
+
+    @Test
+    void queuedTaskDoesNotStartOnSchedulerThread() {
+        CrawlerProperties properties = new CrawlerProperties();
+        properties.getPoliteness().setMinDelayPerHostMs(0);
+        properties.getPoliteness().setMaxConcurrentPerHost(1);
+        HostPolitenessScheduler scheduler = new HostPolitenessScheduler(meterRegistry, properties);
+        CompletableFuture<String> running = new CompletableFuture<>();
+
+        CompletableFuture<String> first = scheduler.submit("http://a.test/1", () -> running);
+        // Вторая задача ждет слот хоста и стартует после освобождения первого
+        CompletableFuture<String> second = scheduler.submit("http://a.test/2",
+                () -> CompletableFuture.completedFuture(Thread.currentThread().getName()));
+        running.complete("done");
+
+        assertEquals("done", first.join());
+        assertTrue(second.join().startsWith("host-task-"), second.join());
+    }
+
+    private HostPolitenessScheduler scheduler(long hostIdleMs) {
+        CrawlerProperties properties = new CrawlerProperties();
+        properties.getPoliteness().setMinDelayPerHostMs(0);
+        properties.getPoliteness().setHostIdleMs(hostIdleMs);
+        return new HostPolitenessScheduler(meterRegistry, properties);
+    }
+
+    // Слот хоста освобождается в потоке планировщика после завершения задачи
+    private void awaitIdle(String host) throws InterruptedException {
+        for (int i = 0; i < 100 && meterRegistry.get("crawler.host.inflight").tag("host", host).gauge().value() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, meterRegistry.get("crawler.host.inflight").tag("host", host).gauge().value());
+    }
+}
@@ -0,0 +1,125 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.entity.UrlEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import com.utmn.chamortsev.urlparser.repository.UrlRepository;
+import com.utmn.chamortsev.urlparser.repository.UrlResultRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PageValidatorStoreTest {
+
+    private static final HttpHeaders HEADERS = HttpHeaders.of(
+            Map.of("ETag", List.of("\"v1\""), "Content-Length", List.of("1000")), (name, value) -> true);
+
+    private final UrlRepository urlRepository = mock(UrlRepository.class);
+    private final UrlResultRepository urlResultRepository = mock(UrlResultRepository.class);
+    private final UrlResultSink resultSink = mock(UrlResultSink.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PageValidatorStore store;
+    private UrlEntity url;
+
+    @BeforeEach
+    void setUp() {
+        store = new PageValidatorStore(urlRepository, urlResultRepository, resultSink, meterRegistry);
+        url = new UrlEntity();
+        url.setId(7L);
+        url.setUrl("http://example.com/contacts");
+    }
+
+    @Test
+    void firstFetchIsRememberedAsChanged() {
+        assertFalse(store.remember(url, 200, HEADERS, 1000, false, 42L));
+
+        verify(urlRepository).updateFetchState(7L, "\"v1\"", null, 1000L, 42L);
+        assertEquals(42L, url.getContentHash());
+        assertEquals(0, meterRegistry.get("url.content.unchanged").counter().count());
+    }
+
+    @Test
+    void sameFingerprintIsUnchangedWithoutWrite() {
+        store.remember(url, 200, HEADERS, 1000, false, 42L);
+        clearInvocations(urlRepository);
+
+        assertTrue(store.remember(url, 200, HEADERS, 1000, true, 42L));
+
+        verifyNoInteractions(urlRepository);
+        assertEquals(1, meterRegistry.get("url.content.unchanged").counter().count());
+        assertEquals(1, meterRegistry.get("url.conditional.requests").tag("result", "modified").counter().count());
+    }
+
+    @Test
+    void failedFetchIsNotRemembered() {
+        url.setContentHash(42L);
+
+        assertFalse(store.remember(url, 503, HEADERS, 1000, false, 42L));
+
+        verifyNoInteractions(urlRepository);
+    }
+
+    @Test
+    void reuseReturnsLatestSavedResult() {
+        UrlResultEntity previous = result(11L, "info@example.com", null);
+        when(urlResultRepository.findFirstByUrlEntityIdAndStatusCodeOrderByProcessedAtDesc(7L, 200))
+                .thenReturn(Optional.of(previous));
+
+        FetchedPage page = store.reusePrevious(url);
+
+        assertEquals(200, page.statusCode());
+        assertEquals(Map.of("email", "info@example.com"), page.contacts());
+        // Повтор ссылается на строку, которую отметит markSeenAgain
+        assertEquals(11L, page.previousResultId());
+    }
+
+    @Test
+    void reusePrefersResultStillQueuedForWrite() {
+        when(resultSink.pendingSuccess(7L)).thenReturn(result(null, "new@example.com", null));
+
+        FetchedPage page = store.reusePrevious(url);
+
+        assertEquals(Map.of("email", "new@example.com"), page.contacts());
+        // Ожидающий результат - новая строка, повтор тоже вставляется
+        assertNull(page.previousResultId());
+        verifyNoInteractions(urlResultRepository);
+    }
+
+    @Test
+    void queuedRepeatKeepsItsTarget() {
+        when(resultSink.pendingSuccess(7L)).thenReturn(result(null, "info@example.com", 11L));
+
+        assertEquals(11L, store.reusePrevious(url).previousResultId());
+    }
+
+    @Test
+    void missingPreviousResultResetsState() {
+        url.setEtag("\"v1\"");
+        url.setContentHash(42L);
+        when(urlResultRepository.findFirstByUrlEntityIdAndStatusCodeOrderByProcessedAtDesc(7L, 200))
+                .thenReturn(Optional.empty());
+
+        assertNull(store.reusePrevious(url));
+
+        verify(urlRepository).updateFetchState(7L, null, null, null, null);
+        assertNull(url.getContentHash());
+        assertFalse(store.hasValidators(url));
+    }
+
+    private static UrlResultEntity result(Long id, String email, Long repeatOf) {
+        UrlResultEntity result = new UrlResultEntity();
+        result.setId(id);
+        result.setStatusCode(200);
+        result.setEmail(email);
+        result.setRepeatOf(repeatOf);
+        return result;
+    }
+}
@@ -0,0 +1,172 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.entity.UrlEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import com.utmn.chamortsev.urlparser.repository.UrlRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RecrawlSchedulerTest {
+
+    private final UrlRepository urlRepository = mock(UrlRepository.class);
+    private final UrlProcessingService urlProcessingService = mock(UrlProcessingService.class);
+    private final ActiveUrlSource activeUrlSource = mock(ActiveUrlSource.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RecrawlScheduler scheduler;
+    private UrlEntity url;
+
+    @BeforeEach
+    void setUp() {
+        CrawlerProperties properties = new CrawlerProperties();
+        properties.getRecrawl().setInitialIntervalSec(1000);
+        properties.getRecrawl().setMinIntervalSec(300);
+        properties.getRecrawl().setMaxIntervalSec(2000);
+        properties.getRecrawl().setJitter(0);
+        scheduler = new RecrawlScheduler(urlRepository, urlProcessingService, activeUrlSource,
+                properties, meterRegistry);
+
+        url = new UrlEntity();
+        url.setId(1L);
+        url.setUrl("http://example.com");
+        doAnswer(invocation -> {
+            Consumer<UrlEntity> consumer = invocation.getArgument(0);
+            consumer.accept(url);
+            return 1L;
+        }).when(activeUrlSource).forEach(any());
+        when(urlRepository.findAllById(any())).thenReturn(List.of(url));
+    }
+
+    @Test
+    void firstVisitKeepsIntervalAndRemembersContacts() {
+        UrlResultEntity result = result(200, "info@example.com");
+
+        visit(result);
+
+        verify(urlRepository).updateRecrawlState(eq(1L), eq(1000L), any(),
+                eq(RecrawlScheduler.contactsHash(result)), isNull());
+        assertEquals(0, counter("changed") + counter("unchanged") + counter("failed"));
+    }
+
+    @Test
+    void changedContactsSpeedUpRecrawl() {
+        url.setRecrawlIntervalSec(1000L);
+        url.setContactsHash(RecrawlScheduler.contactsHash(result(200, "old@example.com")));
+        UrlResultEntity result = result(200, "new@example.com");
+
+        visit(result);
+
+        verify(urlRepository).updateRecrawlState(eq(1L), eq(500L), any(),
+                eq(RecrawlScheduler.contactsHash(result)), notNull());
+        assertEquals(1, counter("changed"));
+    }
+
+    @Test
+    void unchangedContactsBackOffUpToMaximum() {
+        url.setRecrawlIntervalSec(1600L);
+        UrlResultEntity result = result(200, "info@example.com");
+        url.setContactsHash(RecrawlScheduler.contactsHash(result));
+
+        visit(result);
+
+        verify(urlRepository).updateRecrawlState(eq(1L), eq(2000L), any(),
+                eq(RecrawlScheduler.contactsHash(result)), isNull());
+        assertEquals(1, counter("unchanged"));
+    }
+
+    @Test
+    void speedUpIsBoundedByMinimum() {
+        url.setRecrawlIntervalSec(400L);
+        url.setContactsHash(RecrawlScheduler.contactsHash(result(200, "old@example.com")));
+
+        visit(result(200, "new@example.com"));
+
+        verify(urlRepository).updateRecrawlState(eq(1L), eq(300L), any(), anyLong(), notNull());
+    }
+
+    @Test
+    void failedVisitBacksOffAndKeepsContactsHash() {
+        url.setRecrawlIntervalSec(1000L);
+        url.setContactsHash(42L);
+
+        visit(result(503, null));
+
+        verify(urlRepository).updateRecrawlState(eq(1L), eq(1500L), any(), eq(42L), isNull());
+        assertEquals(1, counter("failed"));
+    }
+
+    @Test
+    void exceptionFromProcessingCountsAsFailure() {
+        url.setRecrawlIntervalSec(1000L);
+        when(urlProcessingService.processUrlScheduled(url))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("timeout")));
+
+        scheduler.resync();
+        scheduler.tick();
+
+        verify(urlRepository).updateRecrawlState(eq(1L), eq(1500L), any(), isNull(), isNull());
+        assertEquals(1, counter("failed"));
+        assertEquals(0, gauge("crawler.recrawl.inflight"));
+        assertEquals(1, gauge("crawler.recrawl.queue.size"));
+    }
+
+    @Test
+    void repositoryErrorReleasesTakenUrls() {
+        when(urlRepository.findAllById(any())).thenThrow(new RuntimeException("db down"));
+
+        scheduler.resync();
+        assertEquals(1, gauge("crawler.recrawl.queue.size"));
+        scheduler.tick();
+
+        // Слот освобожден, URL не числится запланированным и возвращается при следующем resync
+        assertEquals(0, gauge("crawler.recrawl.inflight"));
+        assertEquals(0, gauge("crawler.recrawl.queue.size"));
+        scheduler.resync();
+        assertEquals(1, gauge("crawler.recrawl.queue.size"));
+        verifyNoInteractions(urlProcessingService);
+    }
+
+    @Test
+    void missingAndInactiveUrlsAreForgotten() {
+        url.setActive(false);
+
+        scheduler.resync();
+        scheduler.tick();
+
+        assertEquals(0, gauge("crawler.recrawl.inflight"));
+        assertEquals(0, gauge("crawler.recrawl.queue.size"));
+        verifyNoInteractions(urlProcessingService);
+    }
+
+    private void visit(UrlResultEntity result) {
+        when(urlProcessingService.processUrlScheduled(url)).thenReturn(CompletableFuture.completedFuture(result));
+        scheduler.resync();
+        scheduler.tick();
+        assertEquals(0, gauge("crawler.recrawl.inflight"));
+        assertEquals(1, gauge("crawler.recrawl.queue.size"));
+    }
+
+    private static UrlResultEntity result(int statusCode, String email) {
+        UrlResultEntity result = new UrlResultEntity();
+        result.setStatusCode(statusCode);
+        result.setEmail(email);
+        return result;
+    }
+
+    private double counter(String result) {
+        return meterRegistry.get("crawler.recrawl.visits").tag("result", result).counter().count();
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+}
@@ -0,0 +1,76 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.core.ContactScanner;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingContactSubscriberTest {
+
+    private static final Charset CP1251 = Charset.forName("windows-1251");
+    private static final int CHUNK = 1000;
+
+    @Test
+    void contactsOnWindowBoundaryMatchWholeBodyScan() {
+        String block = "<p>info@example.com</p><p>+7 (999) 123-45-67</p><p>ул. Ленина 5, Тюмень</p>";
+        // Блок контактов сдвигается через границу первого окна, чтобы разрезать каждое значение
+        int boundary = StreamingContactSubscriber.WINDOW_CHARS - StreamingContactSubscriber.OVERLAP_CHARS;
+        for (int offset = boundary - block.length() - 400; offset < boundary + 400; offset += 3) {
+            String body = filler(offset) + block + filler(12_000) + "<p>sales@shop.ru</p>";
+
+            ExtractedPage page = read(body, CP1251);
+
+            assertEquals(ContactScanner.scan(body).toMap(), page.contacts(), "offset " + offset);
+            assertFalse(page.stoppedEarly());
+        }
+    }
+
+    @Test
+    void contactsAcrossSeveralWindowsAreAllFound() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            body.append(filler(StreamingContactSubscriber.WINDOW_CHARS - 37 * i))
+                    .append("<p>user").append(i).append("@example.com +7 (999) 123-45-6").append(i).append("</p>");
+        }
+
+        ExtractedPage page = read(body.toString(), CP1251);
+        Map<String, String> expected = ContactScanner.scan(body).toMap();
+
+        assertEquals(expected, page.contacts());
+        assertEquals(10, expected.get("email").split(", ").length);
+    }
+
+    private static ExtractedPage read(String body, Charset charset) {
+        byte[] bytes = body.getBytes(charset);
+        StreamingContactSubscriber subscriber = new StreamingContactSubscriber(charset, Long.MAX_VALUE, bytes.length);
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        for (int from = 0; from < bytes.length; from += CHUNK) {
+            int length = Math.min(CHUNK, bytes.length - from);
+            subscriber.onNext(List.of(ByteBuffer.wrap(bytes, from, length)));
+        }
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().join();
+    }
+
+    private static String filler(int length) {
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.append("lorem ipsum ");
+        }
+        return text.substring(0, length);
+    }
+}
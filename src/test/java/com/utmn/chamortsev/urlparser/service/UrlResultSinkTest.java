@@ -0,0 +1,205 @@
+package com.utmn.chamortsev.urlparser.service;
+
+import com.utmn.chamortsev.urlparser.config.CrawlerProperties;
+import com.utmn.chamortsev.urlparser.entity.UrlEntity;
+import com.utmn.chamortsev.urlparser.entity.UrlResultEntity;
+import com.utmn.chamortsev.urlparser.repository.UrlResultRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UrlResultSinkTest {
+
+    private final UrlResultRepository urlResultRepository = mock(UrlResultRepository.class);
+    private final LatestResultStore latestResultStore = mock(LatestResultStore.class);
+    private final UrlStatsStore urlStatsStore = mock(UrlStatsStore.class);
+    private final TracingService tracingService = mock(TracingService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Записанные строки - пачкой или по одной
+    private final List<UrlResultEntity> saved = new CopyOnWriteArrayList<>();
+    // Результаты, учтенные в статистике (писатель очищает пачку после записи - копируем)
+    private final List<UrlResultEntity> counted = new CopyOnWriteArrayList<>();
+    private final AtomicLong ids = new AtomicLong(100);
+    // Пока открыт, запись пачки ждет - результаты остаются в очереди
+    private final CountDownLatch writeAllowed = new CountDownLatch(1);
+    private UrlResultSink sink;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        doAnswer(invocation -> invocation.<TracingService.TracingOperation<?>>getArgument(2).execute())
+                .when(tracingService).traceOperation(anyString(), anyString(), any());
+        when(urlResultRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            assertTrue(writeAllowed.await(10, TimeUnit.SECONDS));
+            List<UrlResultEntity> batch = new ArrayList<>(invocation.<Collection<UrlResultEntity>>getArgument(0));
+            batch.forEach(this::assignId);
+            saved.addAll(batch);
+            return batch;
+        });
+        doAnswer(invocation -> counted.addAll(invocation.getArgument(0)))
+                .when(urlStatsStore).record(anyList());
+        when(urlResultRepository.save(any())).thenAnswer(invocation -> {
+            UrlResultEntity result = invocation.getArgument(0);
+            assignId(result);
+            saved.add(result);
+            return result;
+        });
+
+        CrawlerProperties properties = new CrawlerProperties();
+        properties.getPersistence().setBatchSize(3);
+        properties.getPersistence().setFlushIntervalMs(50);
+        sink = new UrlResultSink(urlResultRepository, latestResultStore, urlStatsStore,
+                mock(PlatformTransactionManager.class), tracingService, meterRegistry, properties);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writeAllowed.countDown();
+        sink.shutdown();
+    }
+
+    @Test
+    void failedBatchIsWrittenRowByRow() throws Exception {
+        writeAllowed.countDown();
+        doThrow(new IllegalStateException("constraint")).when(urlResultRepository).saveAll(anyList());
+        UrlResultEntity bad = result(2L, 200);
+        // Строка, из-за которой откатилась пачка, не записывается и по одной
+        doThrow(new IllegalStateException("constraint")).when(urlResultRepository).save(same(bad));
+        List<UrlResultEntity> good = List.of(result(1L, 200), result(3L, 503));
+
+        sink.submit(good.get(0));
+        sink.submit(bad);
+        sink.submit(good.get(1));
+        sink.shutdown();
+
+        assertEquals(good, saved);
+        verify(latestResultStore, times(2)).inserted(anyList());
+        assertEquals(good, counted);
+        assertNull(sink.pendingSuccess(1L));
+        assertNull(sink.pendingSuccess(2L));
+    }
+
+    @Test
+    void repeatMarksLatestRowInsteadOfInsert() throws Exception {
+        writeAllowed.countDown();
+        when(urlResultRepository.markSeenAgain(eq(11L), any())).thenReturn(1);
+        UrlResultEntity repeat = result(1L, 200);
+        repeat.setRepeatOf(11L);
+
+        sink.submit(repeat);
+        sink.shutdown();
+
+        assertTrue(saved.isEmpty());
+        verify(latestResultStore).seenAgain(11L, repeat.getProcessedAt());
+        assertEquals(List.of(repeat), counted);
+        assertEquals(1, meterRegistry.get("url.results.sink.repeats").counter().count());
+    }
+
+    @Test
+    void repeatOfOutdatedRowIsInserted() throws Exception {
+        writeAllowed.countDown();
+        when(urlResultRepository.markSeenAgain(eq(11L), any())).thenReturn(0);
+        UrlResultEntity repeat = result(1L, 200);
+        repeat.setRepeatOf(11L);
+
+        sink.submit(repeat);
+        sink.shutdown();
+
+        assertEquals(List.of(repeat), saved);
+        verify(latestResultStore, never()).seenAgain(any(), any());
+        assertEquals(0, meterRegistry.get("url.results.sink.repeats").counter().count());
+    }
+
+    @Test
+    void queuedSuccessIsPendingUntilWritten() throws Exception {
+        UrlResultEntity success = result(1L, 200);
+        UrlResultEntity failure = result(2L, 503);
+
+        sink.submit(success);
+        sink.submit(failure);
+
+        assertSame(success, sink.pendingSuccess(1L));
+        assertNull(sink.pendingSuccess(2L));
+
+        writeAllowed.countDown();
+        sink.shutdown();
+
+        assertNull(sink.pendingSuccess(1L));
+        assertEquals(List.of(success, failure), saved);
+    }
+
+    @Test
+    void newerSuccessStaysPendingAfterOlderIsWritten() throws Exception {
+        UrlResultEntity older = result(1L, 200);
+        UrlResultEntity newer = result(1L, 200);
+        doAnswer(invocation -> {
+            List<UrlResultEntity> batch = invocation.getArgument(0);
+            if (batch.contains(older)) {
+                // Пока пишется старый результат, в очередь встает новый для того же URL
+                sink.submit(newer);
+            } else {
+                assertTrue(writeAllowed.await(10, TimeUnit.SECONDS));
+            }
+            saved.addAll(batch);
+            return batch;
+        }).when(urlResultRepository).saveAll(anyList());
+
+        sink.submit(older);
+        verify(urlResultRepository, timeout(5000).times(2)).saveAll(anyList());
+
+        // Старый записан, новый еще пишется
+        assertTrue(saved.contains(older));
+        assertSame(newer, sink.pendingSuccess(1L));
+        writeAllowed.countDown();
+        sink.shutdown();
+        assertTrue(saved.contains(newer));
+        assertNull(sink.pendingSuccess(1L));
+    }
+
+    @Test
+    void shutdownWritesWholeQueue() throws Exception {
+        List<UrlResultEntity> results = new ArrayList<>();
+        for (long urlId = 1; urlId <= 10; urlId++) {
+            results.add(result(urlId, 200));
+            sink.submit(results.get(results.size() - 1));
+        }
+
+        writeAllowed.countDown();
+        sink.shutdown();
+
+        assertEquals(results, saved);
+        assertEquals(0, sink.getQueueSize());
+
+        // После остановки результат пишется сразу, без очереди
+        UrlResultEntity late = result(11L, 200);
+        sink.submit(late);
+        assertEquals(late, saved.get(saved.size() - 1));
+        assertNull(sink.pendingSuccess(11L));
+    }
+
+    private void assignId(UrlResultEntity result) {
+        result.setId(ids.incrementAndGet());
+    }
+
+    private static UrlResultEntity result(long urlId, int statusCode) {
+        UrlEntity url = new UrlEntity();
+        url.setId(urlId);
+        UrlResultEntity result = new UrlResultEntity();
+        result.setUrlEntity(url);
+        result.setStatusCode(statusCode);
+        return result;
+    }
+}